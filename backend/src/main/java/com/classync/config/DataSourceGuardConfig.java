@@ -0,0 +1,53 @@
+package com.classync.config;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+
+/**
+ * 虚拟线程模式下为数据源加上连接守卫
+ * 守卫的上限默认取 min(连接池大小, CPU 核数 / 2)，并且不超过连接池大小：
+ * H2 和 JDBC 驱动在 synchronized 代码中做 I/O，Java 21 下会把虚拟线程钉在载体线程上，
+ * 载体线程数默认等于 CPU 核数，全部被数据库调用钉住时 WebSocket 发送等不访问数据库的虚拟线程也无法运行；
+ * 守卫至少给它们留出一半载体线程。超出上限的请求在守卫前排队，超过 acquire-timeout 快速失败，
+ * 不会在 Hikari 里等到更长的 connectionTimeout
+ */
+@Configuration
+@ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+public class DataSourceGuardConfig {
+
+    @Bean
+    public static BeanPostProcessor dataSourceGuardPostProcessor(Environment environment) {
+        int poolSize = environment.getProperty("spring.datasource.hikari.maximum-pool-size", Integer.class, 10);
+        Integer configured = environment.getProperty("db.guard.max-concurrent", Integer.class);
+        int maxConcurrent = resolveMaxConcurrent(configured, poolSize, Runtime.getRuntime().availableProcessors());
+        long acquireTimeoutMs = environment.getProperty("db.guard.acquire-timeout-ms", Long.class, 5000L);
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && !(bean instanceof ConnectionGuardDataSource)) {
+                    System.out.println("[DataSourceGuard] Limiting " + beanName + " to " + maxConcurrent
+                            + " concurrent connections (pool size " + poolSize + ")");
+                    return new ConnectionGuardDataSource(dataSource, maxConcurrent, acquireTimeoutMs);
+                }
+                return bean;
+            }
+        };
+    }
+
+    /**
+     * 未配置时按载体线程数的一半计算；配置值超过连接池大小没有意义（多出的线程只会在 Hikari 里排队），按连接池大小截断
+     */
+    static int resolveMaxConcurrent(Integer configured, int poolSize, int processors) {
+        int limit = configured != null ? configured : processors / 2;
+        if (configured != null && configured > poolSize) {
+            System.err.println("[DataSourceGuard] db.guard.max-concurrent=" + configured
+                    + " exceeds the connection pool size " + poolSize + ", using " + poolSize);
+        }
+        return Math.max(1, Math.min(limit, poolSize));
+    }
+}
@@ -0,0 +1,31 @@
+package com.classync.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.boot.task.SimpleAsyncTaskSchedulerBuilder;
+import org.springframework.boot.task.ThreadPoolTaskSchedulerBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.SimpleAsyncTaskScheduler;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+/**
+ * 定时任务专用的调度器（spring.task.scheduling.*）
+ * STOMP broker 注册了自己的 TaskScheduler，自动配置因此不再创建调度器，@Scheduled 任务会和 broker 心跳共用线程；
+ * 以 taskScheduler 为名注册后 @Scheduled 优先使用它，写回、清理等任务之间也不会互相排队
+ */
+@Configuration
+public class SchedulingConfig {
+
+    @Bean
+    @ConditionalOnThreading(Threading.PLATFORM)
+    public ThreadPoolTaskScheduler taskScheduler(ThreadPoolTaskSchedulerBuilder builder) {
+        return builder.build();
+    }
+
+    @Bean(name = "taskScheduler")
+    @ConditionalOnThreading(Threading.VIRTUAL)
+    public SimpleAsyncTaskScheduler virtualTaskScheduler(SimpleAsyncTaskSchedulerBuilder builder) {
+        return builder.build();
+    }
+}
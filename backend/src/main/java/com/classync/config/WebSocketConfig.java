@@ -1,26 +1,148 @@
 package com.classync.config;
 
+import com.classync.websocket.ClassroomEventLog;
+import com.classync.websocket.ClusterRelayBridge;
+import com.classync.websocket.ShardedOutboundExecutor;
+import com.classync.websocket.VirtualThreadChannelExecutor;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketSession;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
 
 @Configuration
 @EnableWebSocketMessageBroker
+@RequiredArgsConstructor
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
-    
+
+    private final MeterRegistry meterRegistry;
+    private final ClusterRelayBridge clusterRelayBridge;
+    private final ClassroomEventLog classroomEventLog;
+
+    @Value("${websocket.inbound.core-pool-size:8}")
+    private int inboundCorePoolSize;
+
+    @Value("${websocket.inbound.max-pool-size:32}")
+    private int inboundMaxPoolSize;
+
+    @Value("${websocket.inbound.queue-capacity:10000}")
+    private int inboundQueueCapacity;
+
+    @Value("${websocket.outbound.shards:4}")
+    private int outboundShards;
+
+    @Value("${websocket.outbound.threads-per-shard:4}")
+    private int outboundThreadsPerShard;
+
+    @Value("${websocket.outbound.session-queue-capacity:1000}")
+    private int sessionQueueCapacity;
+
+    @Value("${websocket.outbound.overflow-policy:DROP}")
+    private ShardedOutboundExecutor.OverflowPolicy overflowPolicy;
+
+    @Value("${websocket.outbound.stall-timeout-ms:2000}")
+    private long stallTimeoutMs;
+
+    @Value("${websocket.session.send-time-limit-ms:10000}")
+    private int sendTimeLimitMs;
+
+    @Value("${websocket.session.send-buffer-size-limit:524288}")
+    private int sendBufferSizeLimit;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreadsEnabled;
+
+    private ShardedOutboundExecutor outboundExecutor;
+
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
-        config.enableSimpleBroker("/topic");
+        // /queue 用于只发给单个会话的消息（客户端订阅 /user/queue/...）
+        config.enableSimpleBroker("/topic", "/queue");
         config.setApplicationDestinationPrefixes("/app");
+        config.setUserDestinationPrefix("/user");
+        // 课堂广播（包括集群转发来的）在本节点分配序号并记入事件日志，本节点产生的广播再转发到其他节点
+        config.configureBrokerChannel().interceptors(classroomEventLog, clusterRelayBridge);
     }
-    
+
     @Override
     public void registerStompEndpoints(StompEndpointRegistry registry) {
         registry.addEndpoint("/ws")
                 .setAllowedOrigins("http://localhost:5173", "http://localhost:5174")
                 .withSockJS();
+        // 同一会话的 SUBSCRIBE 先于随后的快照请求处理
+        registry.setPreserveReceiveOrder(true);
+    }
+
+    /**
+     * 虚拟线程模式下每条入站消息新建一个虚拟线程（不池化；阻塞的 JPA 调用不再占满平台线程池），数据库并发由连接守卫限制
+     */
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        if (useVirtualThreads()) {
+            registration.taskExecutor(new VirtualThreadChannelExecutor("clientInboundChannel-"));
+            return;
+        }
+        registration.taskExecutor()
+                .corePoolSize(inboundCorePoolSize)
+                .maxPoolSize(inboundMaxPoolSize)
+                .queueCapacity(inboundQueueCapacity);
     }
-}
 
+    /**
+     * 出站消息按课堂分片发送；同一会话的消息在分片内串行，因此无需再开启 preservePublishOrder
+     */
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        if (outboundShards > 0) {
+            registration.taskExecutor(outboundExecutor());
+        }
+    }
+
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        registration.setSendTimeLimit(sendTimeLimitMs);
+        registration.setSendBufferSizeLimit(sendBufferSizeLimit);
+        if (outboundShards > 0) {
+            // 登记会话并建立发送队列，供慢客户端断开策略和卡死检测使用
+            registration.addDecoratorFactory(handler -> new WebSocketHandlerDecorator(handler) {
+                @Override
+                public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+                    outboundExecutor().registerSession(session);
+                    super.afterConnectionEstablished(session);
+                }
+
+                @Override
+                public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
+                    outboundExecutor().unregisterSession(session.getId());
+                    super.afterConnectionClosed(session, closeStatus);
+                }
+            });
+        }
+    }
+
+    /**
+     * 分片执行器由 Spring 作为 clientOutboundChannelExecutor 管理生命周期
+     */
+    private synchronized ShardedOutboundExecutor outboundExecutor() {
+        if (outboundExecutor == null) {
+            outboundExecutor = new ShardedOutboundExecutor(outboundShards, outboundThreadsPerShard,
+                    sessionQueueCapacity, overflowPolicy, stallTimeoutMs, useVirtualThreads(), meterRegistry);
+        }
+        return outboundExecutor;
+    }
+
+    /**
+     * 与 Spring Boot 一致：开启 spring.threads.virtual.enabled 且运行在 Java 21 及以上时才使用虚拟线程
+     */
+    private boolean useVirtualThreads() {
+        return virtualThreadsEnabled && Runtime.version().feature() >= 21;
+    }
+}
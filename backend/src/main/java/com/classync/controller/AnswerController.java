@@ -2,13 +2,18 @@ package com.classync.controller;
 
 import com.classync.dto.AnswerRequest;
 import com.classync.dto.AnswerStatisticsDTO;
+import com.classync.dto.QuizStatisticsDTO;
+import com.classync.dto.WordFrequencyDTO;
 import com.classync.entity.Answer;
+import com.classync.service.AnswerIngestionBusyException;
 import com.classync.service.AnswerService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/answers")
@@ -24,8 +29,18 @@ public class AnswerController {
         answer.setUserId(request.getUserId());
         answer.setContent(request.getContent());
         
-        Answer created = answerService.submitAnswer(answer);
-        return ResponseEntity.ok(created);
+        try {
+            Answer created = answerService.submitAnswer(answer);
+            return ResponseEntity.ok(created);
+        } catch (IllegalArgumentException e) {
+            // 缺少必填字段或被数据库拒绝，只影响这一条提交
+            System.err.println("[AnswerController] Rejected answer: " + e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (AnswerIngestionBusyException e) {
+            // 写入队列已满或落库超时，提示客户端稍后重试
+            System.err.println("[AnswerController] Failed to submit answer: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
     }
     
     @GetMapping("/question/{questionId}")
@@ -34,12 +49,53 @@ public class AnswerController {
         return ResponseEntity.ok(answers);
     }
     
+    /**
+     * 已作答人数，不查询数据库
+     */
+    @GetMapping("/question/{questionId}/answered-count")
+    public ResponseEntity<Map<String, Object>> getAnsweredCount(@PathVariable Long questionId) {
+        int count = answerService.getAnsweredCount(questionId);
+        return ResponseEntity.ok(Map.of("questionId", questionId, "count", count));
+    }
+    
     @GetMapping("/statistics/{questionId}")
     public ResponseEntity<List<AnswerStatisticsDTO>> getAnswerStatistics(@PathVariable Long questionId) {
         List<AnswerStatisticsDTO> statistics = answerService.getAnswerStatistics(questionId);
         return ResponseEntity.ok(statistics);
     }
     
+    /**
+     * 测验子问题聚合统计，可通过 subQuestionIndex 只取单个子问题
+     */
+    @GetMapping("/quiz-statistics/{questionId}")
+    public ResponseEntity<QuizStatisticsDTO> getQuizStatistics(
+            @PathVariable Long questionId,
+            @RequestParam(required = false) Integer subQuestionIndex) {
+        QuizStatisticsDTO statistics = answerService.getQuizStatistics(questionId, subQuestionIndex);
+        if (statistics == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(statistics);
+    }
+    
+    /**
+     * 问答题词云词频（服务端增量分词），测验可通过 subQuestionIndex 指定子问题
+     */
+    @GetMapping("/word-frequency/{questionId}")
+    public ResponseEntity<List<WordFrequencyDTO>> getWordFrequency(
+            @PathVariable Long questionId,
+            @RequestParam(defaultValue = "50") int k,
+            @RequestParam(required = false) Integer subQuestionIndex) {
+        if (k < 1) {
+            return ResponseEntity.badRequest().build();
+        }
+        List<WordFrequencyDTO> words = answerService.getWordFrequency(questionId, subQuestionIndex, k);
+        if (words == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(words);
+    }
+    
     @GetMapping("/essay/{questionId}")
     public ResponseEntity<List<Answer>> getEssayAnswers(@PathVariable Long questionId) {
         List<Answer> answers = answerService.getEssayAnswersFull(questionId);
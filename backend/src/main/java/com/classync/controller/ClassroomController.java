@@ -2,13 +2,19 @@ package com.classync.controller;
 
 import com.classync.dto.ClassroomRequest;
 import com.classync.entity.Classroom;
+import com.classync.service.ChunkedUploadService;
 import com.classync.service.ClassroomService;
 import com.classync.service.FileService;
+import com.classync.service.PdfPageService;
+import com.classync.service.StorageSweeper;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -19,6 +25,9 @@ public class ClassroomController {
     
     private final ClassroomService classroomService;
     private final FileService fileService;
+    private final ChunkedUploadService chunkedUploadService;
+    private final PdfPageService pdfPageService;
+    private final StorageSweeper storageSweeper;
     
     @PostMapping
     public ResponseEntity<Classroom> createClassroom(@RequestBody ClassroomRequest request) {
@@ -72,7 +81,9 @@ public class ClassroomController {
     
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteClassroom(@PathVariable Long id) {
+        String pdfPath = classroomService.getClassroomById(id).map(Classroom::getPdfPath).orElse(null);
         classroomService.deleteClassroom(id);
+        storageSweeper.release(pdfPath);
         return ResponseEntity.ok().build();
     }
     
@@ -106,21 +117,126 @@ public class ClassroomController {
         }
     }
     
+    /**
+     * 单次上传 PDF（流式写入磁盘），sha256 可选，提供时校验文件完整性；保存后在后台拆分为单页
+     * 内容与已保存的文件相同时复用已有文件
+     */
     @PostMapping("/{id}/upload")
-    public ResponseEntity<Classroom> uploadPdf(@PathVariable Long id, @RequestParam("file") MultipartFile file) {
+    public ResponseEntity<Classroom> uploadPdf(@PathVariable Long id, @RequestParam("file") MultipartFile file,
+            @RequestParam(value = "sha256", required = false) String sha256) {
         try {
-            String filename = fileService.uploadFile(file);
             Classroom classroom = classroomService.getClassroomById(id).orElse(null);
             if (classroom == null) {
                 return ResponseEntity.notFound().build();
             }
-            classroom.setPdfPath(filename);
-            Classroom updated = classroomService.updateClassroom(classroom);
-            return ResponseEntity.ok(updated);
+            FileService.StoredFile stored = fileService.uploadFile(file, sha256);
+            return ResponseEntity.ok(attachPdf(classroom, stored));
         } catch (Exception e) {
+            System.err.println("[ClassroomController] Upload failed: " + e.getMessage());
             return ResponseEntity.badRequest().build();
         }
     }
+
+    /**
+     * 开始分片上传
+     * 请求体：{ filename, size, sha256(可选) }，返回 { uploadId, offset, size, chunkSize }；
+     * 服务端已有相同摘要的文件时不再传输，直接设置课堂 PDF，返回 { complete: true, duplicate: true, sha256, classroom }
+     */
+    @PostMapping("/{id}/upload/chunks")
+    public ResponseEntity<?> startChunkedUpload(@PathVariable Long id, @RequestBody Map<String, Object> request) {
+        try {
+            Classroom classroom = classroomService.getClassroomById(id).orElse(null);
+            if (classroom == null) {
+                return ResponseEntity.notFound().build();
+            }
+            String filename = (String) request.get("filename");
+            long size = Long.parseLong(request.get("size").toString());
+            String sha256 = (String) request.get("sha256");
+            FileService.StoredFile existing = fileService.findExisting(sha256, filename);
+            if (existing != null && existing.size() == size) {
+                System.out.println("[ClassroomController] Classroom " + id + " reuses stored file " + existing.filename());
+                Map<String, Object> response = new HashMap<>();
+                response.put("complete", true);
+                response.put("duplicate", true);
+                response.put("offset", size);
+                response.put("size", size);
+                response.put("sha256", existing.sha256());
+                response.put("classroom", attachPdf(classroom, existing));
+                return ResponseEntity.ok(response);
+            }
+            return ResponseEntity.ok(chunkedUploadService.start(id, filename, size, sha256));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            System.err.println("[ClassroomController] Failed to start chunked upload: " + e.getMessage());
+            return ResponseEntity.internalServerError().body(Map.of("error", "无法开始上传"));
+        }
+    }
+
+    /**
+     * 查询分片上传进度（断点续传时从返回的 offset 继续）
+     */
+    @GetMapping("/{id}/upload/chunks/{uploadId}")
+    public ResponseEntity<ChunkedUploadService.UploadStatus> getChunkedUpload(@PathVariable Long id,
+            @PathVariable String uploadId) {
+        ChunkedUploadService.UploadStatus status = chunkedUploadService.getStatus(id, uploadId);
+        return status != null ? ResponseEntity.ok(status) : ResponseEntity.notFound().build();
+    }
+
+    /**
+     * 上传一个分片：请求体为原始字节（application/octet-stream），offset 必须等于已接收的字节数。
+     * 最后一个分片完成后校验摘要并设置课堂 PDF，返回 { complete: true, sha256, duplicate, classroom }
+     */
+    @PutMapping("/{id}/upload/chunks/{uploadId}")
+    public ResponseEntity<?> uploadChunk(@PathVariable Long id, @PathVariable String uploadId,
+            @RequestParam("offset") long offset, HttpServletRequest request) {
+        try {
+            ChunkedUploadService.ChunkResult result = chunkedUploadService.writeChunk(id, uploadId, offset,
+                    request.getInputStream());
+            if (result == null) {
+                return ResponseEntity.notFound().build();
+            }
+            Map<String, Object> response = new HashMap<>();
+            response.put("uploadId", uploadId);
+            response.put("offset", result.status().offset());
+            response.put("size", result.status().size());
+            response.put("complete", result.complete());
+            if (result.complete()) {
+                Classroom classroom = classroomService.getClassroomById(id).orElse(null);
+                if (classroom == null) {
+                    return ResponseEntity.notFound().build();
+                }
+                response.put("sha256", result.file().sha256());
+                response.put("duplicate", result.file().duplicate());
+                response.put("classroom", attachPdf(classroom, result.file()));
+            }
+            return ResponseEntity.ok(response);
+        } catch (IllegalStateException e) {
+            ChunkedUploadService.UploadStatus status = chunkedUploadService.getStatus(id, uploadId);
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of(
+                    "error", e.getMessage(),
+                    "offset", status != null ? status.offset() : 0));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            System.err.println("[ClassroomController] Chunk upload interrupted for " + uploadId + ": " + e.getMessage());
+            return ResponseEntity.badRequest().body(Map.of("error", "分片传输中断"));
+        }
+    }
+    
+    /**
+     * 设置课堂 PDF：在后台拆分单页，原课件没有其他课堂引用时回收
+     */
+    private Classroom attachPdf(Classroom classroom, FileService.StoredFile stored) {
+        String previous = classroom.getPdfPath();
+        classroom.setPdfPath(stored.filename());
+        Classroom updated = classroomService.updateClassroom(classroom);
+        pdfPageService.splitAsync(stored.filename());
+        if (previous != null && !previous.equals(stored.filename())) {
+            storageSweeper.release(previous);
+        }
+        return updated;
+    }
     
     /**
      * 设置放映页展示问题
@@ -130,29 +246,15 @@ public class ClassroomController {
             @PathVariable Long id,
             @RequestBody Map<String, Object> request) {
         try {
-            Classroom classroom = classroomService.getClassroomById(id).orElse(null);
-            if (classroom == null) {
-                return ResponseEntity.notFound().build();
-            }
-            
-            // 从请求中获取 questionId 和 mode
+            // 从请求中获取 questionId 和 mode，questionId 为空表示清除展示状态
             Object questionIdObj = request.get("questionId");
             String mode = (String) request.get("mode");
+            Long questionId = questionIdObj == null ? null : Long.valueOf(questionIdObj.toString());
             
-            if (questionIdObj == null) {
-                // 清除展示状态
-                classroom.setDisplayQuestionId(null);
-                classroom.setDisplayQuestionMode(null);
-            } else {
-                // 设置展示状态
-                Long questionId = questionIdObj instanceof Integer 
-                    ? ((Integer) questionIdObj).longValue() 
-                    : (Long) questionIdObj;
-                classroom.setDisplayQuestionId(questionId);
-                classroom.setDisplayQuestionMode(mode);
+            Classroom updated = classroomService.updateDisplayQuestion(id, questionId, mode).orElse(null);
+            if (updated == null) {
+                return ResponseEntity.notFound().build();
             }
-            
-            Classroom updated = classroomService.updateClassroom(classroom);
             System.out.println("[ClassroomController] Display question updated: questionId=" 
                 + updated.getDisplayQuestionId() + ", mode=" + updated.getDisplayQuestionMode());
             return ResponseEntity.ok(updated);
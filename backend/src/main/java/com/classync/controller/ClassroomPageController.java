@@ -0,0 +1,225 @@
+package com.classync.controller;
+
+import com.classync.entity.Classroom;
+import com.classync.pdf.PdfException;
+import com.classync.service.ClassroomService;
+import com.classync.service.FileService;
+import com.classync.service.PageLockService;
+import com.classync.service.PageRasterService;
+import com.classync.service.PdfPageService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 按页获取课件（单页 PDF 和页面位图）
+ * 锁定的页面只有主讲人可以获取，完整课件也只提供给主讲人。单页 PDF 地址不含版本，每次使用前向服务端确认；
+ * 位图地址带课件摘要作为版本号，内容不变，可在浏览器中长期缓存
+ */
+@RestController
+@RequestMapping("/api/classrooms")
+@RequiredArgsConstructor
+public class ClassroomPageController {
+
+    private static final String PAGE_CACHE = "private, no-cache";
+    private static final String RASTER_CACHE = "private, max-age=31536000, immutable";
+
+    private final ClassroomService classroomService;
+    private final PageLockService pageLockService;
+    private final PdfPageService pdfPageService;
+    private final PageRasterService pageRasterService;
+    private final FileService fileService;
+
+    /**
+     * 获取课件页数，返回 { pageCount }
+     */
+    @GetMapping("/{id}/pages")
+    public ResponseEntity<?> getPageCount(@PathVariable Long id) {
+        Classroom classroom = classroomService.getClassroomById(id).orElse(null);
+        if (classroom == null || classroom.getPdfPath() == null) {
+            return ResponseEntity.notFound().build();
+        }
+        try {
+            return ResponseEntity.ok(Map.of("pageCount", pdfPageService.getPageCount(classroom.getPdfPath())));
+        } catch (TimeoutException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .body(Map.of("error", "课件正在分页"));
+        } catch (PdfException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", "课件无法分页"));
+        } catch (IOException e) {
+            System.err.println("[ClassroomPageController] Failed to read pages of classroom " + id + ": "
+                    + e.getMessage());
+            return ResponseEntity.internalServerError().body(Map.of("error", "无法读取课件"));
+        }
+    }
+
+    /**
+     * 主讲人获取完整课件（主讲人端缩略图与翻页、位图上传），其他人返回 403
+     */
+    @GetMapping("/{id}/pdf")
+    public void getDeck(@PathVariable Long id, @RequestParam(value = "userId", required = false) Long userId,
+            HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Classroom classroom = classroomService.getClassroomById(id).orElse(null);
+        if (classroom == null || classroom.getPdfPath() == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        if (userId == null || !userId.equals(classroom.getHostUserId())) {
+            response.sendError(HttpServletResponse.SC_FORBIDDEN, "只有主讲人可以获取完整课件");
+            return;
+        }
+        Path deck = fileService.resolve(classroom.getPdfPath());
+        if (deck == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        FileSender.send(deck, "application/pdf", PAGE_CACHE, request, response);
+    }
+
+    /**
+     * 获取单页 PDF，页面已锁定且请求者不是主讲人时返回 403
+     */
+    @GetMapping("/{id}/pages/{pageNumber}")
+    public void getPage(@PathVariable Long id, @PathVariable int pageNumber,
+            @RequestParam(value = "userId", required = false) Long userId,
+            HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Classroom classroom = classroomService.getClassroomById(id).orElse(null);
+        if (classroom == null || classroom.getPdfPath() == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        boolean isHost = userId != null && userId.equals(classroom.getHostUserId());
+        if (!isHost && pageLockService.isPageLocked(id, pageNumber)) {
+            response.sendError(HttpServletResponse.SC_FORBIDDEN, "页面已锁定");
+            return;
+        }
+
+        Path page;
+        try {
+            page = pdfPageService.getPage(classroom.getPdfPath(), pageNumber);
+        } catch (TimeoutException e) {
+            response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+            response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "课件正在分页");
+            return;
+        } catch (PdfException e) {
+            response.sendError(HttpServletResponse.SC_CONFLICT, "课件无法分页");
+            return;
+        }
+        if (page == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        FileSender.send(page, "application/pdf", PAGE_CACHE, request, response);
+    }
+
+    /**
+     * 获取已缓存的页面位图：{ key, widths, pages }
+     */
+    @GetMapping("/{id}/rasters")
+    public ResponseEntity<?> getRasterStatus(@PathVariable Long id) {
+        Classroom classroom = classroomService.getClassroomById(id).orElse(null);
+        if (classroom == null || classroom.getPdfPath() == null) {
+            return ResponseEntity.notFound().build();
+        }
+        try {
+            PageRasterService.RasterStatus status = pageRasterService.getStatus(classroom.getPdfPath());
+            return status != null ? ResponseEntity.ok(status) : ResponseEntity.notFound().build();
+        } catch (IOException e) {
+            System.err.println("[ClassroomPageController] Failed to read rasters of classroom " + id + ": "
+                    + e.getMessage());
+            return ResponseEntity.internalServerError().body(Map.of("error", "无法读取页面位图"));
+        }
+    }
+
+    /**
+     * 主讲人上传一页的渲染结果（请求体为 PNG 或 JPEG），服务端在后台缩放为各个宽度，返回 202
+     */
+    @PutMapping("/{id}/pages/{pageNumber}/raster")
+    public ResponseEntity<?> uploadRaster(@PathVariable Long id, @PathVariable int pageNumber,
+            @RequestParam("userId") Long userId, HttpServletRequest request) {
+        Classroom classroom = classroomService.getClassroomById(id).orElse(null);
+        if (classroom == null || classroom.getPdfPath() == null) {
+            return ResponseEntity.notFound().build();
+        }
+        if (!userId.equals(classroom.getHostUserId())) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        if (pageNumber < 1) {
+            return ResponseEntity.badRequest().body(Map.of("error", "页码必须大于 0"));
+        }
+        try {
+            long maxBytes = pageRasterService.getMaxSourceBytes();
+            if (request.getContentLengthLong() > maxBytes) {
+                return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).build();
+            }
+            byte[] source;
+            try (InputStream in = request.getInputStream()) {
+                source = in.readNBytes((int) maxBytes + 1);
+            }
+            if (source.length > maxBytes) {
+                return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).build();
+            }
+            pageRasterService.submit(classroom.getPdfPath(), pageNumber, source);
+            return ResponseEntity.accepted().build();
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "5")
+                    .body(Map.of("error", "渲染队列已满"));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (IOException e) {
+            System.err.println("[ClassroomPageController] Raster upload interrupted for classroom " + id + ": "
+                    + e.getMessage());
+            return ResponseEntity.badRequest().body(Map.of("error", "上传中断"));
+        }
+    }
+
+    /**
+     * 获取页面位图：返回不小于 width 的最小已缓存宽度。
+     * v 为 /rasters 返回的 key，与当前课件不一致时返回 404，避免旧地址缓存到新课件的图片
+     */
+    @GetMapping("/{id}/pages/{pageNumber}/raster")
+    public void getRaster(@PathVariable Long id, @PathVariable int pageNumber,
+            @RequestParam(value = "width", defaultValue = "320") int width,
+            @RequestParam(value = "v", required = false) String version,
+            @RequestParam(value = "userId", required = false) Long userId,
+            HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Classroom classroom = classroomService.getClassroomById(id).orElse(null);
+        if (classroom == null || classroom.getPdfPath() == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        boolean isHost = userId != null && userId.equals(classroom.getHostUserId());
+        if (!isHost && pageLockService.isPageLocked(id, pageNumber)) {
+            response.sendError(HttpServletResponse.SC_FORBIDDEN, "页面已锁定");
+            return;
+        }
+        if (version != null && !version.equals(pageRasterService.cacheKey(classroom.getPdfPath()))) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        Path raster = pageRasterService.getRaster(classroom.getPdfPath(), pageNumber, width);
+        if (raster == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        FileSender.send(raster, "image/jpeg", version != null ? RASTER_CACHE : PAGE_CACHE, request, response);
+    }
+}
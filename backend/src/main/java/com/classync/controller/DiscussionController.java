@@ -4,7 +4,9 @@ import com.classync.dto.DiscussionRequest;
 import com.classync.dto.DiscussionWithUserDTO;
 import com.classync.entity.Discussion;
 import com.classync.service.DiscussionService;
+import com.classync.service.RateLimitExceededException;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -17,12 +19,40 @@ public class DiscussionController {
     
     private final DiscussionService discussionService;
     
+    private static final int MAX_PAGE_SIZE = 200;
+    
+    /**
+     * 获取课堂讨论。不带 limit 时返回全部（按时间正序）；
+     * 带 limit 时按游标分页：afterId 为上一页最后一条的 ID，order=desc 时最新在前
+     */
     @GetMapping("/classroom/{classroomId}")
-    public ResponseEntity<List<DiscussionWithUserDTO>> getDiscussionsByClassroomId(@PathVariable Long classroomId) {
-        List<DiscussionWithUserDTO> discussions = discussionService.getDiscussionsByClassroomId(classroomId);
+    public ResponseEntity<List<DiscussionWithUserDTO>> getDiscussionsByClassroomId(
+            @PathVariable Long classroomId,
+            @RequestParam(required = false) Long afterId,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(defaultValue = "asc") String order) {
+        if (limit == null && afterId == null) {
+            return ResponseEntity.ok(discussionService.getDiscussionsByClassroomId(classroomId));
+        }
+        if (limit != null && limit <= 0) {
+            return ResponseEntity.badRequest().build();
+        }
+        int pageSize = limit == null ? MAX_PAGE_SIZE : Math.min(limit, MAX_PAGE_SIZE);
+        List<DiscussionWithUserDTO> discussions = discussionService.getDiscussionPage(
+                classroomId, afterId, pageSize, "desc".equalsIgnoreCase(order));
         return ResponseEntity.ok(discussions);
     }
     
+    /**
+     * 增量获取 lastId 之后的新讨论（最近的讨论直接从内存返回）
+     */
+    @GetMapping("/classroom/{classroomId}/since/{lastId}")
+    public ResponseEntity<List<DiscussionWithUserDTO>> getDiscussionsSince(
+            @PathVariable Long classroomId,
+            @PathVariable Long lastId) {
+        return ResponseEntity.ok(discussionService.getDiscussionsSince(classroomId, lastId));
+    }
+    
     @PostMapping
     public ResponseEntity<Discussion> createDiscussion(@RequestBody DiscussionRequest request) {
         Discussion discussion = new Discussion();
@@ -32,8 +62,14 @@ public class DiscussionController {
         discussion.setReplyToId(request.getReplyToId());
         discussion.setIsAnonymous(request.getIsAnonymous());
         
-        Discussion created = discussionService.createDiscussion(discussion);
-        return ResponseEntity.ok(created);
+        try {
+            Discussion created = discussionService.createDiscussion(discussion);
+            return ResponseEntity.ok(created);
+        } catch (RateLimitExceededException e) {
+            // 发送过于频繁，提示客户端稍后再试
+            System.err.println("[DiscussionController] Rejected discussion: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).build();
+        }
     }
 }
 
@@ -0,0 +1,54 @@
+package com.classync.controller;
+
+import com.classync.service.ClassroomService;
+import com.classync.service.FileService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.regex.Pattern;
+
+/**
+ * 上传文件下载（替代 /uploads/** 静态资源映射）
+ * 只提供给引用该文件的课堂的主讲人（复制课堂时下载原文件），其他请求一律 404：
+ * 学生只能通过按页接口获取课件，页面锁定由服务端执行。
+ * 上传文件只新建不覆盖，名称为 UUID 或内容摘要的文件在浏览器中长期缓存；
+ * Range、条件请求和 sendfile 由 FileSender 处理
+ */
+@RestController
+@RequiredArgsConstructor
+public class FileController {
+
+    private static final Pattern IMMUTABLE_NAME = Pattern.compile(
+            "^([0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}|[0-9a-f]{64})(\\.[A-Za-z0-9]+)?$");
+    private static final String IMMUTABLE_CACHE = "private, max-age=31536000, immutable";
+
+    private final FileService fileService;
+    private final ClassroomService classroomService;
+
+    @GetMapping("/uploads/{filename:.+}")
+    public void download(@PathVariable String filename,
+            @RequestParam(value = "userId", required = false) Long userId,
+            HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (!classroomService.isFileHost(userId, filename)) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        Path file = fileService.resolve(filename);
+        if (file == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        FileSender.send(file,
+                MediaTypeFactory.getMediaType(filename).map(Object::toString).orElse("application/octet-stream"),
+                IMMUTABLE_NAME.matcher(filename).matches() ? IMMUTABLE_CACHE : "no-cache",
+                request, response);
+    }
+}
@@ -1,11 +1,13 @@
 package com.classync.controller;
 
-import com.classync.entity.PageLock;
 import com.classync.service.PageLockService;
+import com.classync.service.PageLockSet;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -16,19 +18,18 @@ public class PageLockController {
     private final PageLockService pageLockService;
 
     /**
-     * 获取课堂的所有页面锁定状态
+     * 获取课堂的所有页面锁定状态，返回已锁定页面的区间列表，如 [[1,5],[20,300]]
      */
     @GetMapping("/classroom/{classroomId}")
-    public ResponseEntity<Map<Integer, Boolean>> getPageLocks(@PathVariable Long classroomId) {
-        Map<Integer, Boolean> locks = pageLockService.getPageLocksByClassroom(classroomId);
-        return ResponseEntity.ok(locks);
+    public ResponseEntity<PageLockSet> getPageLocks(@PathVariable Long classroomId) {
+        return ResponseEntity.ok(pageLockService.getPageLocksByClassroom(classroomId));
     }
 
     /**
      * 切换单个页面的锁定状态
      */
     @PostMapping("/toggle")
-    public ResponseEntity<PageLock> togglePageLock(@RequestBody Map<String, Object> request) {
+    public ResponseEntity<Map<String, Object>> togglePageLock(@RequestBody Map<String, Object> request) {
         try {
             System.out.println("[PageLockController] Toggle request: " + request);
 
@@ -38,11 +39,18 @@ public class PageLockController {
             System.out.println(
                     "[PageLockController] Toggling lock for classroom " + classroomId + ", page " + pageNumber);
 
-            PageLock lock = pageLockService.togglePageLock(classroomId, pageNumber);
+            boolean isLocked = pageLockService.togglePageLock(classroomId, pageNumber);
 
-            System.out.println("[PageLockController] Lock toggled successfully: " + lock);
+            System.out.println("[PageLockController] Lock toggled successfully: isLocked=" + isLocked);
 
-            return ResponseEntity.ok(lock);
+            return ResponseEntity.ok(Map.of(
+                    "classroomId", classroomId,
+                    "pageNumber", pageNumber,
+                    "isLocked", isLocked));
+        } catch (IllegalArgumentException e) {
+            // 页码不合法（小于 1 或超过 PageLockSet.MAX_PAGE）
+            System.err.println("[PageLockController] Rejected toggle: " + e.getMessage());
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         } catch (Exception e) {
             System.err.println("[PageLockController] Error toggling page lock: " + e.getMessage());
             e.printStackTrace();
@@ -54,17 +62,57 @@ public class PageLockController {
      * 批量锁定从指定页面开始的所有后续页面
      */
     @PostMapping("/lock-from")
-    public ResponseEntity<Void> lockPagesFrom(@RequestBody Map<String, Object> request) {
-        Long classroomId = Long.valueOf(request.get("classroomId").toString());
-        Integer fromPage = Integer.valueOf(request.get("fromPage").toString());
-        Integer totalPages = Integer.valueOf(request.get("totalPages").toString());
+    public ResponseEntity<Map<String, Object>> lockPagesFrom(@RequestBody Map<String, Object> request) {
+        try {
+            Long classroomId = Long.valueOf(request.get("classroomId").toString());
+            Integer fromPage = Integer.valueOf(request.get("fromPage").toString());
+            Integer totalPages = Integer.valueOf(request.get("totalPages").toString());
+
+            pageLockService.lockPagesFrom(classroomId, fromPage, totalPages);
+            return ResponseEntity.ok().build();
+        } catch (IllegalArgumentException e) {
+            System.err.println("[PageLockController] Rejected lock-from: " + e.getMessage());
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * 一次锁定或解锁多个页面区间
+     * 请求体：{ classroomId, ranges: [[5,9],[20,40]], isLocked: true }
+     */
+    @PostMapping("/ranges")
+    public ResponseEntity<Map<String, Object>> setPageRanges(@RequestBody Map<String, Object> request) {
+        try {
+            System.out.println("[PageLockController] Ranges request: " + request);
 
-        pageLockService.lockPagesFrom(classroomId, fromPage, totalPages);
-        return ResponseEntity.ok().build();
+            Long classroomId = Long.valueOf(request.get("classroomId").toString());
+            boolean isLocked = Boolean.parseBoolean(request.get("isLocked").toString());
+            List<int[]> ranges = new ArrayList<>();
+            for (Object item : (List<?>) request.get("ranges")) {
+                List<?> range = (List<?>) item;
+                int from = Integer.parseInt(range.get(0).toString());
+                int to = range.size() > 1 ? Integer.parseInt(range.get(1).toString()) : from;
+                ranges.add(new int[] { from, to });
+            }
+
+            int count = pageLockService.setPageRanges(classroomId, ranges, isLocked);
+
+            System.out.println("[PageLockController] Updated " + count + " pages");
+
+            return ResponseEntity.ok(Map.of("count", count));
+        } catch (IllegalArgumentException e) {
+            // 页码不合法（小于 1、超过 PageLockSet.MAX_PAGE 或不是整数）
+            System.err.println("[PageLockController] Rejected page ranges: " + e.getMessage());
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            System.err.println("[PageLockController] Error updating page ranges: " + e.getMessage());
+            e.printStackTrace();
+            throw e;
+        }
     }
 
     /**
-     * 批量解锁从指定页面开始的所有页面（一次 SQL）
+     * 批量解锁从指定页面开始的所有页面
      */
     @PostMapping("/unlock-from")
     public ResponseEntity<Map<String, Object>> unlockPagesFrom(@RequestBody Map<String, Object> request) {
@@ -87,7 +135,7 @@ public class PageLockController {
     }
 
     /**
-     * 批量解锁所有页面（一次 SQL）
+     * 批量解锁所有页面
      */
     @PostMapping("/unlock-all")
     public ResponseEntity<Map<String, Object>> unlockAllPages(@RequestBody Map<String, Object> request) {
@@ -0,0 +1,15 @@
+package com.classync.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class QuizEssayAnswerDTO {
+    private String content;
+    private LocalDateTime createdAt;
+}
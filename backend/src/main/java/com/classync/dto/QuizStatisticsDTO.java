@@ -0,0 +1,12 @@
+package com.classync.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class QuizStatisticsDTO {
+    private Long questionId;
+    private Long totalAnswers; // 提交测验的人数
+    private List<SubQuestionStatisticsDTO> subQuestions;
+}
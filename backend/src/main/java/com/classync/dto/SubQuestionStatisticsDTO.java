@@ -0,0 +1,13 @@
+package com.classync.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class SubQuestionStatisticsDTO {
+    private Integer subQuestionIndex;
+    private String type; // SINGLE_CHOICE / MULTIPLE_CHOICE / ESSAY
+    private List<AnswerStatisticsDTO> options; // 选择题子问题的选项统计
+    private List<QuizEssayAnswerDTO> essayAnswers; // 问答题子问题的回答列表
+}
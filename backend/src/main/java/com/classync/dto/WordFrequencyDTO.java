@@ -0,0 +1,14 @@
+package com.classync.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class WordFrequencyDTO {
+    private String word;
+    private Long count;
+    private Double normalizedFrequency; // 相对最高词频的比例，用于词云字号计算
+}
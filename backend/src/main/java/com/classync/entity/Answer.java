@@ -7,7 +7,7 @@ import java.time.LocalDateTime;
 
 @Data
 @Entity
-@Table(name = "answers")
+@Table(name = "answers", uniqueConstraints = @UniqueConstraint(columnNames = { "question_id", "user_id" }))
 public class Answer {
     
     @Id
@@ -1,5 +1,7 @@
 package com.classync.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
 import lombok.Data;
 
@@ -26,6 +28,8 @@ public class Classroom {
     @Column(name = "class_code", nullable = false, unique = true, length = 10)
     private String classCode;
     
+    // 课件文件名不下发给客户端：学生按页获取课件（锁定由服务端执行），主讲人通过课堂的课件接口下载
+    @JsonIgnore
     @Column(name = "pdf_path")
     private String pdfPath;
     
@@ -45,6 +49,11 @@ public class Classroom {
     @Column(name = "created_at")
     private LocalDateTime createdAt;
     
+    @JsonProperty("hasPdf")
+    public boolean hasPdf() {
+        return pdfPath != null;
+    }
+    
     @PrePersist
     protected void onCreate() {
         createdAt = LocalDateTime.now();
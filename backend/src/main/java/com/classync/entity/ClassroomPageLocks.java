@@ -0,0 +1,33 @@
+package com.classync.entity;
+
+import com.classync.service.PageLockSet;
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 课堂的页面锁定状态，每个课堂一行，已锁定页面编码为区间列表（如 "1-5,10,20-300"）
+ */
+@Data
+@Entity
+@Table(name = "classroom_page_locks")
+public class ClassroomPageLocks {
+
+    @Id
+    @Column(name = "classroom_id")
+    private Long classroomId;
+
+    // 按 PageLockSet.MAX_PAGE 下最坏情况的编码长度定义
+    @Column(name = "locked_ranges", nullable = false, length = PageLockSet.MAX_ENCODED_LENGTH)
+    private String lockedRanges;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    @PreUpdate
+    protected void onSave() {
+        updatedAt = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,587 @@
+package com.classync.pdf;
+
+import com.classync.pdf.PdfParser.Name;
+import com.classync.pdf.PdfParser.Num;
+import com.classync.pdf.PdfParser.Ref;
+import com.classync.pdf.PdfParser.Stream;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * 只读的 PDF 文档：交叉引用（表、交叉引用流及增量更新链）、对象流和页面树。
+ * 文件以内存映射方式读取，解析过的对象按对象号缓存；交叉引用损坏时扫描全文重建。
+ * 不支持加密文档
+ */
+final class PdfDocument {
+
+    private static final Set<String> INHERITABLE = Set.of("Resources", "MediaBox", "CropBox", "Rotate");
+
+    /** 单个流解压后的上限，防止高压缩比的数据撑爆内存 */
+    static final int MAX_INFLATED_BYTES = 64 * 1024 * 1024;
+
+    private record XrefEntry(int type, long offset, int index) {
+    }
+
+    /**
+     * 页面：number 为页面字典的对象号（直接对象为 -1），dict 已合并继承的属性
+     */
+    record Page(int number, Map<String, Object> dict) {
+    }
+
+    private final ByteBuffer data;
+    private final Map<Integer, XrefEntry> xref = new HashMap<>();
+    private final Map<Integer, Object> objects = new HashMap<>();
+    private final Map<Integer, ObjectStream> objectStreams = new HashMap<>();
+    private final Set<Integer> resolving = new HashSet<>();
+    private Map<String, Object> trailer;
+    private String version = "1.4";
+    private boolean rebuilt;
+
+    private PdfDocument(ByteBuffer data) {
+        this.data = data;
+    }
+
+    static PdfDocument open(Path file) throws IOException {
+        ByteBuffer data;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new PdfException("文件过大");
+            }
+            data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        PdfDocument document = new PdfDocument(data);
+        document.readHeader();
+        try {
+            document.readXref(document.findStartxref());
+        } catch (PdfException | RuntimeException e) {
+            document.reconstructXref();
+        }
+        if (document.trailer == null || !(document.trailer.get("Root") instanceof Ref)) {
+            document.reconstructXref();
+        }
+        if (document.trailer.containsKey("Encrypt")) {
+            throw new PdfException("不支持加密的 PDF");
+        }
+        return document;
+    }
+
+    String version() {
+        return version;
+    }
+
+    /**
+     * 交叉引用是否因损坏而由扫描全文重建
+     */
+    boolean rebuilt() {
+        return rebuilt;
+    }
+
+    /**
+     * 按文档顺序返回所有页面
+     */
+    List<Page> pages() throws PdfException {
+        Object catalog = resolve(trailer.get("Root"));
+        if (!(catalog instanceof Map<?, ?> root)) {
+            throw new PdfException("缺少文档目录");
+        }
+        Object catalogVersion = root.get("Version");
+        if (catalogVersion instanceof Name name && name.raw().compareTo(version) > 0) {
+            version = name.raw();
+        }
+        List<Page> pages = new ArrayList<>();
+        collectPages(root.get("Pages"), Map.of(), pages, new HashSet<>());
+        return pages;
+    }
+
+    /**
+     * 间接引用解析为对象，其他值原样返回；不存在的对象返回 null 对象
+     */
+    Object resolve(Object value) {
+        return value instanceof Ref ref ? resolveRef(ref) : value;
+    }
+
+    /**
+     * 解码流内容（仅支持 FlateDecode 及 PNG 预测器，用于对象流和交叉引用流）
+     */
+    static byte[] decode(Stream stream) throws PdfException {
+        Object filter = stream.dict().get("Filter");
+        Object parms = stream.dict().get("DecodeParms");
+        List<?> filters = filter instanceof List<?> list ? list : filter == null ? List.of() : List.of(filter);
+        List<?> parmsList = parms instanceof List<?> list ? list : parms == null ? List.of() : List.of(parms);
+
+        byte[] bytes = new byte[stream.data().remaining()];
+        stream.data().duplicate().get(bytes);
+        for (int i = 0; i < filters.size(); i++) {
+            if (!(filters.get(i) instanceof Name name)
+                    || !("FlateDecode".equals(name.raw()) || "Fl".equals(name.raw()))) {
+                throw new PdfException("不支持的流过滤器: " + filters.get(i));
+            }
+            bytes = inflate(bytes);
+            if (i < parmsList.size() && parmsList.get(i) instanceof Map<?, ?> decodeParms) {
+                bytes = unpredict(bytes, decodeParms);
+            }
+        }
+        return bytes;
+    }
+
+    private void collectPages(Object node, Map<String, Object> inherited, List<Page> pages,
+            Set<Integer> visited) throws PdfException {
+        if (node instanceof Ref ref && !visited.add(ref.number())) {
+            return;
+        }
+        Object resolved = resolve(node);
+        if (!(resolved instanceof Map<?, ?> map)) {
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        Map<String, Object> dict = (Map<String, Object>) map;
+        Object kids = resolve(dict.get("Kids"));
+        Object type = dict.get("Type");
+        boolean isPageNode = type instanceof Name name ? "Pages".equals(name.raw()) : kids instanceof List;
+        if (isPageNode) {
+            Map<String, Object> next = new HashMap<>(inherited);
+            for (String key : INHERITABLE) {
+                if (dict.containsKey(key)) {
+                    next.put(key, dict.get(key));
+                }
+            }
+            if (kids instanceof List<?> list) {
+                for (Object kid : list) {
+                    collectPages(kid, next, pages, visited);
+                }
+            }
+            return;
+        }
+        Map<String, Object> page = new LinkedHashMap<>(dict);
+        inherited.forEach(page::putIfAbsent);
+        pages.add(new Page(node instanceof Ref ref ? ref.number() : -1, page));
+    }
+
+    private Object resolveRef(Ref ref) {
+        int number = ref.number();
+        Object cached = objects.get(number);
+        if (cached != null) {
+            return cached;
+        }
+        XrefEntry entry = xref.get(number);
+        if (entry == null || !resolving.add(number)) {
+            return PdfParser.Null.INSTANCE;
+        }
+        Object value;
+        try {
+            if (entry.type() == 2) {
+                value = objectStream((int) entry.offset()).get(entry.index());
+            } else {
+                value = new PdfParser(data, (int) entry.offset()).readIndirect(this::resolve).value();
+            }
+        } catch (PdfException | RuntimeException e) {
+            value = PdfParser.Null.INSTANCE;
+        } finally {
+            resolving.remove(number);
+        }
+        objects.put(number, value);
+        return value;
+    }
+
+    private ObjectStream objectStream(int number) throws PdfException {
+        ObjectStream cached = objectStreams.get(number);
+        if (cached != null) {
+            return cached;
+        }
+        if (!(resolveRef(new Ref(number, 0)) instanceof Stream stream)) {
+            throw new PdfException("对象流不存在: " + number);
+        }
+        ObjectStream objectStream = new ObjectStream(stream);
+        objectStreams.put(number, objectStream);
+        return objectStream;
+    }
+
+    private void readHeader() {
+        int scan = Math.min(data.limit(), 1024);
+        for (int i = 0; i + 8 <= scan; i++) {
+            if (data.get(i) == '%' && data.get(i + 1) == 'P' && data.get(i + 2) == 'D' && data.get(i + 3) == 'F'
+                    && data.get(i + 4) == '-') {
+                byte[] bytes = new byte[3];
+                data.get(i + 5, bytes);
+                String headerVersion = new String(bytes, StandardCharsets.ISO_8859_1);
+                if (headerVersion.matches("\\d\\.\\d")) {
+                    version = headerVersion;
+                }
+                return;
+            }
+        }
+    }
+
+    private int findStartxref() throws PdfException {
+        byte[] keyword = "startxref".getBytes(StandardCharsets.ISO_8859_1);
+        int from = Math.max(0, data.limit() - 4096);
+        for (int i = data.limit() - keyword.length; i >= from; i--) {
+            boolean match = true;
+            for (int j = 0; j < keyword.length && match; j++) {
+                match = data.get(i + j) == keyword[j];
+            }
+            if (match) {
+                PdfParser parser = new PdfParser(data, i + keyword.length);
+                return parser.readInt();
+            }
+        }
+        throw new PdfException("缺少 startxref");
+    }
+
+    /**
+     * 从最新的交叉引用段开始沿 /Prev 向前读取，较新的条目优先
+     */
+    private void readXref(int offset) throws PdfException {
+        Set<Integer> visited = new HashSet<>();
+        while (offset >= 0 && offset < data.limit() && visited.add(offset)) {
+            PdfParser parser = new PdfParser(data, offset);
+            parser.skipWhitespace();
+            Map<String, Object> sectionTrailer;
+            if (parser.matchKeyword("xref")) {
+                parser.seek(parser.position() + 4);
+                sectionTrailer = readXrefTable(parser);
+                // 混合引用文件：压缩对象记录在 /XRefStm 指向的交叉引用流中
+                if (sectionTrailer.get("XRefStm") instanceof Num stm) {
+                    readXrefStream(stm.intValue());
+                }
+            } else {
+                sectionTrailer = readXrefStream(offset);
+            }
+            if (trailer == null) {
+                trailer = sectionTrailer;
+            }
+            offset = sectionTrailer.get("Prev") instanceof Num prev ? prev.intValue() : -1;
+        }
+        if (trailer == null) {
+            throw new PdfException("缺少交叉引用");
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> readXrefTable(PdfParser parser) throws PdfException {
+        while (true) {
+            parser.skipWhitespace();
+            if (parser.matchKeyword("trailer")) {
+                parser.seek(parser.position() + 7);
+                Object dict = parser.readObject();
+                if (!(dict instanceof Map)) {
+                    throw new PdfException("trailer 不是字典");
+                }
+                return (Map<String, Object>) dict;
+            }
+            int start = parser.readInt();
+            int count = parser.readInt();
+            for (int i = 0; i < count; i++) {
+                long offset = Long.parseLong(nextToken(parser));
+                int generation = Integer.parseInt(nextToken(parser));
+                String type = nextToken(parser);
+                if ("n".equals(type) && offset > 0) {
+                    xref.putIfAbsent(start + i, new XrefEntry(1, offset, generation));
+                }
+            }
+        }
+    }
+
+    private Map<String, Object> readXrefStream(int offset) throws PdfException {
+        PdfParser.Indirect indirect = new PdfParser(data, offset).readIndirect(null);
+        if (!(indirect.value() instanceof Stream stream)) {
+            throw new PdfException("交叉引用流无效: " + offset);
+        }
+        Map<String, Object> dict = stream.dict();
+        byte[] rows = decode(stream);
+        int[] widths = intArray(dict.get("W"));
+        if (widths.length < 3) {
+            throw new PdfException("交叉引用流缺少 /W");
+        }
+        int[] index = dict.get("Index") instanceof List ? intArray(dict.get("Index"))
+                : new int[] { 0, ((Num) dict.get("Size")).intValue() };
+        int rowLength = widths[0] + widths[1] + widths[2];
+        int position = 0;
+        for (int section = 0; section + 1 < index.length; section += 2) {
+            for (int i = 0; i < index[section + 1] && position + rowLength <= rows.length; i++) {
+                long type = widths[0] == 0 ? 1 : field(rows, position, widths[0]);
+                long second = field(rows, position + widths[0], widths[1]);
+                long third = field(rows, position + widths[0] + widths[1], widths[2]);
+                position += rowLength;
+                if (type == 1 || type == 2) {
+                    xref.putIfAbsent(index[section] + i, new XrefEntry((int) type, second, (int) third));
+                }
+            }
+        }
+        return dict;
+    }
+
+    /**
+     * 交叉引用不可用时扫描全文的 "n g obj"，后出现的同号对象覆盖先出现的，
+     * 再展开对象流中的对象；trailer 取最后一个 trailer 字典，没有时以找到的文档目录作为 /Root
+     */
+    private void reconstructXref() throws PdfException {
+        rebuilt = true;
+        xref.clear();
+        objects.clear();
+        objectStreams.clear();
+        trailer = null;
+
+        Map<Integer, Integer> found = new LinkedHashMap<>();
+        int lastTrailer = -1;
+        for (int i = 0; i + 3 <= data.limit(); i++) {
+            if (startsWith(i, "trailer")) {
+                lastTrailer = i + 7;
+            }
+            if (data.get(i) != 'o' || !startsWith(i, "obj")
+                    || (i + 3 < data.limit() && PdfParser.isRegular(data.get(i + 3) & 0xFF))) {
+                continue;
+            }
+            int start = objectStart(i);
+            if (start >= 0) {
+                PdfParser parser = new PdfParser(data, start);
+                try {
+                    found.put(parser.readInt(), start);
+                } catch (PdfException ignored) {
+                    // 不是对象头
+                }
+            }
+        }
+        found.forEach((number, offset) -> xref.put(number, new XrefEntry(1, offset, 0)));
+
+        Ref root = null;
+        for (Integer number : found.keySet()) {
+            Object value = resolveRef(new Ref(number, 0));
+            if (value instanceof Stream stream && stream.dict().get("Type") instanceof Name type
+                    && "ObjStm".equals(type.raw())) {
+                try {
+                    ObjectStream objectStream = objectStream(number);
+                    for (int i = 0; i < objectStream.numbers.length; i++) {
+                        xref.putIfAbsent(objectStream.numbers[i], new XrefEntry(2, number, i));
+                    }
+                } catch (PdfException ignored) {
+                    // 无法解码的对象流
+                }
+            }
+        }
+        objects.clear();
+        for (Integer number : new ArrayList<>(xref.keySet())) {
+            Object value = resolveRef(new Ref(number, 0));
+            if (value instanceof Map<?, ?> dict && dict.get("Type") instanceof Name type
+                    && "Catalog".equals(type.raw())) {
+                root = new Ref(number, 0);
+            }
+        }
+
+        if (lastTrailer >= 0) {
+            try {
+                Object dict = new PdfParser(data, lastTrailer).readObject();
+                if (dict instanceof Map<?, ?> map && map.get("Root") instanceof Ref) {
+                    @SuppressWarnings("unchecked")
+                    Map<String, Object> parsed = (Map<String, Object>) map;
+                    trailer = parsed;
+                }
+            } catch (PdfException ignored) {
+                // 使用找到的文档目录
+            }
+        }
+        if (trailer == null) {
+            if (root == null) {
+                throw new PdfException("找不到文档目录");
+            }
+            trailer = new HashMap<>();
+            trailer.put("Root", root);
+        }
+    }
+
+    /**
+     * "obj" 之前应为 "n g "，返回对象号起始位置，不匹配时返回 -1
+     */
+    private int objectStart(int objIndex) {
+        int i = objIndex - 1;
+        int spaces = 0;
+        while (i >= 0 && PdfParser.isWhitespace(data.get(i) & 0xFF)) {
+            i--;
+            spaces++;
+        }
+        int digits = 0;
+        while (i >= 0 && Character.isDigit(data.get(i))) {
+            i--;
+            digits++;
+        }
+        if (spaces == 0 || digits == 0) {
+            return -1;
+        }
+        spaces = 0;
+        while (i >= 0 && PdfParser.isWhitespace(data.get(i) & 0xFF)) {
+            i--;
+            spaces++;
+        }
+        digits = 0;
+        while (i >= 0 && Character.isDigit(data.get(i))) {
+            i--;
+            digits++;
+        }
+        if (spaces == 0 || digits == 0 || (i >= 0 && PdfParser.isRegular(data.get(i) & 0xFF))) {
+            return -1;
+        }
+        return i + 1;
+    }
+
+    private boolean startsWith(int index, String keyword) {
+        if (index + keyword.length() > data.limit()) {
+            return false;
+        }
+        for (int j = 0; j < keyword.length(); j++) {
+            if (data.get(index + j) != keyword.charAt(j)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String nextToken(PdfParser parser) {
+        parser.skipWhitespace();
+        return parser.readRegular();
+    }
+
+    private static int[] intArray(Object value) {
+        if (!(value instanceof List<?> list)) {
+            return new int[0];
+        }
+        int[] result = new int[list.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = list.get(i) instanceof Num num ? num.intValue() : 0;
+        }
+        return result;
+    }
+
+    private static long field(byte[] rows, int position, int width) {
+        long value = 0;
+        for (int i = 0; i < width; i++) {
+            value = (value << 8) | (rows[position + i] & 0xFF);
+        }
+        return value;
+    }
+
+    private static byte[] inflate(byte[] input) throws PdfException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(input);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(
+                    (int) Math.min((long) input.length * 4, MAX_INFLATED_BYTES));
+            byte[] buffer = new byte[8192];
+            while (!inflater.finished()) {
+                int n = inflater.inflate(buffer);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                if (n > MAX_INFLATED_BYTES - out.size()) {
+                    throw new PdfException("FlateDecode 解压后超过 " + MAX_INFLATED_BYTES + " 字节");
+                }
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        } catch (DataFormatException e) {
+            throw new PdfException("FlateDecode 数据损坏", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * PNG 预测器（Predictor >= 10），每行首字节为该行的过滤类型
+     */
+    private static byte[] unpredict(byte[] input, Map<?, ?> parms) throws PdfException {
+        int predictor = parms.get("Predictor") instanceof Num num ? num.intValue() : 1;
+        if (predictor < 10) {
+            if (predictor == 1) {
+                return input;
+            }
+            throw new PdfException("不支持的预测器: " + predictor);
+        }
+        int colors = parms.get("Colors") instanceof Num num ? num.intValue() : 1;
+        int bits = parms.get("BitsPerComponent") instanceof Num num ? num.intValue() : 8;
+        int columns = parms.get("Columns") instanceof Num num ? num.intValue() : 1;
+        int bytesPerPixel = Math.max(1, colors * bits / 8);
+        int rowLength = (colors * bits * columns + 7) / 8;
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(input.length);
+        byte[] previous = new byte[rowLength];
+        byte[] row = new byte[rowLength];
+        for (int position = 0; position + 1 + rowLength <= input.length; position += 1 + rowLength) {
+            int type = input[position] & 0xFF;
+            System.arraycopy(input, position + 1, row, 0, rowLength);
+            for (int i = 0; i < rowLength; i++) {
+                int left = i >= bytesPerPixel ? row[i - bytesPerPixel] & 0xFF : 0;
+                int up = previous[i] & 0xFF;
+                int upLeft = i >= bytesPerPixel ? previous[i - bytesPerPixel] & 0xFF : 0;
+                int predicted = switch (type) {
+                    case 0 -> 0;
+                    case 1 -> left;
+                    case 2 -> up;
+                    case 3 -> (left + up) / 2;
+                    case 4 -> paeth(left, up, upLeft);
+                    default -> throw new PdfException("未知的 PNG 过滤类型: " + type);
+                };
+                row[i] = (byte) (row[i] + predicted);
+            }
+            out.write(row, 0, rowLength);
+            byte[] swap = previous;
+            previous = row;
+            row = swap;
+        }
+        return out.toByteArray();
+    }
+
+    private static int paeth(int left, int up, int upLeft) {
+        int p = left + up - upLeft;
+        int pa = Math.abs(p - left);
+        int pb = Math.abs(p - up);
+        int pc = Math.abs(p - upLeft);
+        if (pa <= pb && pa <= pc) {
+            return left;
+        }
+        return pb <= pc ? up : upLeft;
+    }
+
+    /**
+     * 已解码的对象流：头部为 N 对 "对象号 偏移"，偏移相对于 /First
+     */
+    private static final class ObjectStream {
+        private final ByteBuffer decoded;
+        private final int first;
+        private final int[] numbers;
+        private final int[] offsets;
+
+        ObjectStream(Stream stream) throws PdfException {
+            this.decoded = ByteBuffer.wrap(decode(stream));
+            this.first = stream.dict().get("First") instanceof Num num ? num.intValue() : 0;
+            int count = stream.dict().get("N") instanceof Num num ? num.intValue() : 0;
+            this.numbers = new int[count];
+            this.offsets = new int[count];
+            PdfParser parser = new PdfParser(decoded, 0);
+            for (int i = 0; i < count; i++) {
+                numbers[i] = parser.readInt();
+                offsets[i] = parser.readInt();
+            }
+        }
+
+        Object get(int index) throws PdfException {
+            if (index < 0 || index >= offsets.length) {
+                throw new PdfException("对象流索引越界: " + index);
+            }
+            return new PdfParser(decoded, first + offsets[index]).readObject();
+        }
+    }
+}
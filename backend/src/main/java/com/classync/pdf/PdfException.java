@@ -0,0 +1,17 @@
+package com.classync.pdf;
+
+import java.io.IOException;
+
+/**
+ * PDF 结构损坏或使用了不支持的特性（如加密）
+ */
+public class PdfException extends IOException {
+
+    public PdfException(String message) {
+        super(message);
+    }
+
+    public PdfException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,411 @@
+package com.classync.pdf;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * PDF 对象语法解析（ISO 32000-1 7.2、7.3 节）
+ * 只解析结构：字典（LinkedHashMap，键为不带斜杠的名称）、数组（List）、名称、字符串、数字、布尔、null、
+ * 间接引用和流；流内容是原文件缓冲区上的视图，不复制也不解码
+ */
+final class PdfParser {
+
+    /** 名称，raw 不含开头的斜杠并保留原文中的 #xx 转义 */
+    record Name(String raw) {
+    }
+
+    record Ref(int number, int generation) {
+    }
+
+    /** 数字保留原文，写出时原样输出 */
+    record Num(String text) {
+        int intValue() {
+            return (int) Double.parseDouble(text);
+        }
+
+        long longValue() {
+            return (long) Double.parseDouble(text);
+        }
+    }
+
+    record Str(byte[] bytes) {
+    }
+
+    record Stream(Map<String, Object> dict, ByteBuffer data) {
+    }
+
+    record Indirect(int number, int generation, Object value) {
+    }
+
+    enum Null {
+        INSTANCE
+    }
+
+    private final ByteBuffer buf;
+    private final int limit;
+    private int pos;
+
+    PdfParser(ByteBuffer buf, int pos) {
+        this.buf = buf;
+        this.limit = buf.limit();
+        this.pos = pos;
+    }
+
+    int position() {
+        return pos;
+    }
+
+    void seek(int position) {
+        this.pos = position;
+    }
+
+    /**
+     * 读取 "n g obj" 开头的间接对象；字典后紧跟 stream 关键字时读取为流。
+     * lengthResolver 用于解析间接的 /Length，长度不可用或与 endstream 不符时改为搜索 endstream
+     */
+    Indirect readIndirect(Function<Ref, Object> lengthResolver) throws PdfException {
+        int number = readInt();
+        int generation = readInt();
+        skipWhitespace();
+        if (!matchKeyword("obj")) {
+            throw new PdfException("缺少 obj 关键字: " + pos);
+        }
+        pos += 3;
+        Object value = readObject();
+        if (value instanceof Map<?, ?> map) {
+            @SuppressWarnings("unchecked")
+            Map<String, Object> dict = (Map<String, Object>) map;
+            int save = pos;
+            skipWhitespace();
+            if (matchKeyword("stream")) {
+                pos += 6;
+                if (pos < limit && get(pos) == '\r') {
+                    pos++;
+                }
+                if (pos < limit && get(pos) == '\n') {
+                    pos++;
+                }
+                int start = pos;
+                int length = streamLength(dict, lengthResolver);
+                int end = length >= 0 && (long) start + length <= limit && endstreamAt(start + length)
+                        ? start + length
+                        : findEndstream(start);
+                pos = end;
+                value = new Stream(dict, buf.slice(start, end - start));
+            } else {
+                pos = save;
+            }
+        }
+        return new Indirect(number, generation, value);
+    }
+
+    Object readObject() throws PdfException {
+        skipWhitespace();
+        if (pos >= limit) {
+            throw new PdfException("意外的文件结尾");
+        }
+        int b = get(pos);
+        switch (b) {
+            case '/':
+                pos++;
+                return new Name(readRegular());
+            case '(':
+                return readLiteralString();
+            case '<':
+                if (pos + 1 < limit && get(pos + 1) == '<') {
+                    pos += 2;
+                    return readDictionary();
+                }
+                return readHexString();
+            case '[':
+                pos++;
+                return readArray();
+            default:
+                break;
+        }
+
+        int start = pos;
+        String token = readRegular();
+        if (token.isEmpty()) {
+            throw new PdfException("意外的字符 '" + (char) b + "': " + start);
+        }
+        if (isInteger(token)) {
+            // n g R
+            int save = pos;
+            skipWhitespace();
+            String generation = readRegular();
+            if (isInteger(generation)) {
+                skipWhitespace();
+                if (matchKeyword("R")) {
+                    pos++;
+                    return new Ref(Integer.parseInt(token), Integer.parseInt(generation));
+                }
+            }
+            pos = save;
+            return new Num(token);
+        }
+        if (isNumber(token)) {
+            return new Num(token);
+        }
+        switch (token) {
+            case "true":
+                return Boolean.TRUE;
+            case "false":
+                return Boolean.FALSE;
+            case "null":
+                return Null.INSTANCE;
+            default:
+                throw new PdfException("意外的关键字 " + token + ": " + start);
+        }
+    }
+
+    int readInt() throws PdfException {
+        skipWhitespace();
+        String token = readRegular();
+        if (!isInteger(token)) {
+            throw new PdfException("需要整数，实际为 '" + token + "': " + pos);
+        }
+        return Integer.parseInt(token);
+    }
+
+    /**
+     * 当前位置是否为指定关键字（其后不能紧跟普通字符）
+     */
+    boolean matchKeyword(String keyword) {
+        int length = keyword.length();
+        if (pos + length > limit) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (get(pos + i) != keyword.charAt(i)) {
+                return false;
+            }
+        }
+        return pos + length == limit || !isRegular(get(pos + length));
+    }
+
+    void skipWhitespace() {
+        while (pos < limit) {
+            int b = get(pos);
+            if (b == '%') {
+                while (pos < limit && get(pos) != '\n' && get(pos) != '\r') {
+                    pos++;
+                }
+            } else if (isWhitespace(b)) {
+                pos++;
+            } else {
+                return;
+            }
+        }
+    }
+
+    String readRegular() {
+        int start = pos;
+        while (pos < limit && isRegular(get(pos))) {
+            pos++;
+        }
+        byte[] bytes = new byte[pos - start];
+        buf.get(start, bytes);
+        return new String(bytes, StandardCharsets.ISO_8859_1);
+    }
+
+    private Map<String, Object> readDictionary() throws PdfException {
+        Map<String, Object> dict = new LinkedHashMap<>();
+        while (true) {
+            skipWhitespace();
+            if (pos + 1 < limit && get(pos) == '>' && get(pos + 1) == '>') {
+                pos += 2;
+                return dict;
+            }
+            Object key = readObject();
+            if (!(key instanceof Name name)) {
+                throw new PdfException("字典键必须是名称: " + pos);
+            }
+            dict.put(name.raw(), readObject());
+        }
+    }
+
+    private List<Object> readArray() throws PdfException {
+        List<Object> array = new ArrayList<>();
+        while (true) {
+            skipWhitespace();
+            if (pos < limit && get(pos) == ']') {
+                pos++;
+                return array;
+            }
+            array.add(readObject());
+        }
+    }
+
+    private Str readLiteralString() throws PdfException {
+        pos++;
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int depth = 1;
+        while (pos < limit) {
+            int c = get(pos++);
+            if (c == '\\') {
+                if (pos >= limit) {
+                    break;
+                }
+                int e = get(pos++);
+                switch (e) {
+                    case 'n' -> out.write('\n');
+                    case 'r' -> out.write('\r');
+                    case 't' -> out.write('\t');
+                    case 'b' -> out.write('\b');
+                    case 'f' -> out.write('\f');
+                    case '\r' -> {
+                        // 续行
+                        if (pos < limit && get(pos) == '\n') {
+                            pos++;
+                        }
+                    }
+                    case '\n' -> {
+                    }
+                    default -> {
+                        if (e >= '0' && e <= '7') {
+                            int value = e - '0';
+                            for (int i = 0; i < 2 && pos < limit && get(pos) >= '0' && get(pos) <= '7'; i++) {
+                                value = value * 8 + (get(pos++) - '0');
+                            }
+                            out.write(value & 0xFF);
+                        } else {
+                            out.write(e);
+                        }
+                    }
+                }
+            } else if (c == '(') {
+                depth++;
+                out.write(c);
+            } else if (c == ')') {
+                if (--depth == 0) {
+                    return new Str(out.toByteArray());
+                }
+                out.write(c);
+            } else {
+                out.write(c);
+            }
+        }
+        throw new PdfException("字符串未结束");
+    }
+
+    private Str readHexString() throws PdfException {
+        pos++;
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int high = -1;
+        while (pos < limit) {
+            int c = get(pos++);
+            if (c == '>') {
+                if (high >= 0) {
+                    out.write(high << 4);
+                }
+                return new Str(out.toByteArray());
+            }
+            int digit = Character.digit(c, 16);
+            if (digit < 0) {
+                continue;
+            }
+            if (high < 0) {
+                high = digit;
+            } else {
+                out.write((high << 4) | digit);
+                high = -1;
+            }
+        }
+        throw new PdfException("十六进制字符串未结束");
+    }
+
+    private int streamLength(Map<String, Object> dict, Function<Ref, Object> lengthResolver) {
+        Object length = dict.get("Length");
+        if (length instanceof Ref ref && lengthResolver != null) {
+            length = lengthResolver.apply(ref);
+        }
+        return length instanceof Num num ? num.intValue() : -1;
+    }
+
+    private boolean endstreamAt(int position) {
+        int save = pos;
+        pos = position;
+        skipWhitespace();
+        boolean matches = matchKeyword("endstream");
+        pos = save;
+        return matches;
+    }
+
+    /**
+     * 向后搜索 endstream，去掉其前面的一个换行
+     */
+    private int findEndstream(int start) throws PdfException {
+        byte[] keyword = "endstream".getBytes(StandardCharsets.ISO_8859_1);
+        outer:
+        for (int i = start; i + keyword.length <= limit; i++) {
+            for (int j = 0; j < keyword.length; j++) {
+                if (get(i + j) != keyword[j]) {
+                    continue outer;
+                }
+            }
+            int end = i;
+            if (end > start && get(end - 1) == '\n') {
+                end--;
+            }
+            if (end > start && get(end - 1) == '\r') {
+                end--;
+            }
+            return end;
+        }
+        throw new PdfException("流缺少 endstream: " + start);
+    }
+
+    private int get(int index) {
+        return buf.get(index) & 0xFF;
+    }
+
+    static boolean isWhitespace(int b) {
+        return b == 0 || b == 9 || b == 10 || b == 12 || b == 13 || b == 32;
+    }
+
+    static boolean isDelimiter(int b) {
+        return b == '(' || b == ')' || b == '<' || b == '>' || b == '[' || b == ']'
+                || b == '{' || b == '}' || b == '/' || b == '%';
+    }
+
+    static boolean isRegular(int b) {
+        return !isWhitespace(b) && !isDelimiter(b);
+    }
+
+    private static boolean isInteger(String token) {
+        int start = !token.isEmpty() && (token.charAt(0) == '+' || token.charAt(0) == '-') ? 1 : 0;
+        if (start == token.length()) {
+            return false;
+        }
+        for (int i = start; i < token.length(); i++) {
+            if (!Character.isDigit(token.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isNumber(String token) {
+        int start = !token.isEmpty() && (token.charAt(0) == '+' || token.charAt(0) == '-') ? 1 : 0;
+        boolean digits = false;
+        boolean dot = false;
+        for (int i = start; i < token.length(); i++) {
+            char c = token.charAt(i);
+            if (Character.isDigit(c)) {
+                digits = true;
+            } else if (c == '.' && !dot) {
+                dot = true;
+            } else {
+                return false;
+            }
+        }
+        return digits;
+    }
+}
@@ -0,0 +1,252 @@
+package com.classync.pdf;
+
+import com.classync.pdf.PdfParser.Name;
+import com.classync.pdf.PdfParser.Num;
+import com.classync.pdf.PdfParser.Ref;
+import com.classync.pdf.PdfParser.Str;
+import com.classync.pdf.PdfParser.Stream;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 把 PDF 拆分为单页文件
+ * 每页写成独立的文档：新的目录和页面树只包含该页，页面依赖的资源（字体、图像、表单 XObject 等）
+ * 按原样复制并重新编号，流内容不解码也不重新压缩。指向其他页面或页面树的引用替换为 null，
+ * 页内跳转链接一并去掉；文档级结构（大纲、表单、结构树）不保留
+ */
+public final class PdfSplitter {
+
+    /** 不复制到单页文件的页面键 */
+    private static final Set<String> DROPPED_PAGE_KEYS = Set.of("Parent", "B", "StructParents");
+
+    private PdfSplitter() {
+    }
+
+    /**
+     * 把 source 的每一页写成 targetDir 下的 1.pdf、2.pdf……，返回页数
+     */
+    public static int split(Path source, Path targetDir) throws IOException {
+        PdfDocument document = PdfDocument.open(source);
+        List<PdfDocument.Page> pages = document.pages();
+        if (pages.isEmpty()) {
+            throw new PdfException("文档没有页面");
+        }
+        Files.createDirectories(targetDir);
+        for (int i = 0; i < pages.size(); i++) {
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(targetDir.resolve((i + 1) + ".pdf")),
+                    65536)) {
+                new PageWriter(document, pages.get(i), out).write();
+            }
+        }
+        return pages.size();
+    }
+
+    /** 已分配新对象号的引用 */
+    private record Written(int number) {
+    }
+
+    /**
+     * 写出单页文档：1 为目录，2 为页面树，3 为页面，其后按广度优先写出依赖对象
+     */
+    private static final class PageWriter {
+        private final PdfDocument document;
+        private final PdfDocument.Page page;
+        private final OutputStream out;
+        private final Map<Integer, Integer> renumbered = new HashMap<>();
+        private final Deque<Integer> pending = new ArrayDeque<>();
+        private final List<Long> offsets = new ArrayList<>();
+        private int nextNumber = 4;
+        private long position;
+
+        PageWriter(PdfDocument document, PdfDocument.Page page, OutputStream out) {
+            this.document = document;
+            this.page = page;
+            this.out = out;
+        }
+
+        void write() throws IOException {
+            write("%PDF-" + document.version() + "\n%âãÏÓ\n");
+
+            beginObject(1);
+            write("<< /Type /Catalog /Pages 2 0 R >>");
+            endObject();
+
+            beginObject(2);
+            write("<< /Type /Pages /Kids [3 0 R] /Count 1 >>");
+            endObject();
+
+            if (page.number() >= 0) {
+                renumbered.put(page.number(), 3);
+            }
+            Map<String, Object> pageDict = new LinkedHashMap<>();
+            page.dict().forEach((key, value) -> {
+                if (!DROPPED_PAGE_KEYS.contains(key)) {
+                    pageDict.put(key, value);
+                }
+            });
+            pageDict.put("Parent", new Written(2));
+            if (pageDict.containsKey("Annots")) {
+                pageDict.put("Annots", annotations(pageDict.get("Annots")));
+            }
+            beginObject(3);
+            writeValue(pageDict);
+            endObject();
+
+            while (!pending.isEmpty()) {
+                int original = pending.poll();
+                beginObject(renumbered.get(original));
+                Object value = document.resolve(new Ref(original, 0));
+                if (value instanceof Stream stream) {
+                    writeStream(stream);
+                } else {
+                    writeValue(value);
+                }
+                endObject();
+            }
+
+            long xref = position;
+            StringBuilder table = new StringBuilder();
+            table.append("xref\n0 ").append(offsets.size() + 1).append('\n');
+            table.append("0000000000 65535 f\r\n");
+            for (long offset : offsets) {
+                table.append(String.format("%010d 00000 n\r\n", offset));
+            }
+            table.append("trailer\n<< /Size ").append(offsets.size() + 1).append(" /Root 1 0 R >>\n");
+            table.append("startxref\n").append(xref).append("\n%%EOF\n");
+            write(table.toString());
+        }
+
+        /**
+         * 去掉指向文档内其他位置的链接注释（外部 URI 链接保留）
+         */
+        private List<Object> annotations(Object annots) {
+            List<Object> kept = new ArrayList<>();
+            if (!(document.resolve(annots) instanceof List<?> list)) {
+                return kept;
+            }
+            for (Object annot : list) {
+                if (!(document.resolve(annot) instanceof Map<?, ?> dict)) {
+                    continue;
+                }
+                if (dict.get("Subtype") instanceof Name subtype && "Link".equals(subtype.raw())
+                        && !isUriAction(document.resolve(dict.get("A")))) {
+                    continue;
+                }
+                kept.add(annot);
+            }
+            return kept;
+        }
+
+        private boolean isUriAction(Object action) {
+            return action instanceof Map<?, ?> dict && dict.get("S") instanceof Name type && "URI".equals(type.raw());
+        }
+
+        private void beginObject(int number) throws IOException {
+            while (offsets.size() < number) {
+                offsets.add(0L);
+            }
+            offsets.set(number - 1, position);
+            write(number + " 0 obj\n");
+        }
+
+        private void endObject() throws IOException {
+            write("\nendobj\n");
+        }
+
+        private void writeStream(Stream stream) throws IOException {
+            Map<String, Object> dict = new LinkedHashMap<>(stream.dict());
+            dict.put("Length", new Num(Integer.toString(stream.data().remaining())));
+            writeValue(dict);
+            write("\nstream\n");
+            ByteBuffer data = stream.data().duplicate();
+            int length = data.remaining();
+            byte[] chunk = new byte[Math.min(length, 65536)];
+            while (data.hasRemaining()) {
+                int n = Math.min(chunk.length, data.remaining());
+                data.get(chunk, 0, n);
+                out.write(chunk, 0, n);
+            }
+            position += length;
+            write("\nendstream");
+        }
+
+        private void writeValue(Object value) throws IOException {
+            if (value instanceof Map<?, ?> map) {
+                write("<<");
+                for (Map.Entry<?, ?> entry : map.entrySet()) {
+                    write(" /" + entry.getKey() + " ");
+                    writeValue(entry.getValue());
+                }
+                write(" >>");
+            } else if (value instanceof List<?> list) {
+                write("[");
+                for (int i = 0; i < list.size(); i++) {
+                    if (i > 0) {
+                        write(" ");
+                    }
+                    writeValue(list.get(i));
+                }
+                write("]");
+            } else if (value instanceof Name name) {
+                write("/" + name.raw());
+            } else if (value instanceof Num num) {
+                write(num.text());
+            } else if (value instanceof Str str) {
+                write("<" + HexFormat.of().formatHex(str.bytes()) + ">");
+            } else if (value instanceof Boolean bool) {
+                write(bool.toString());
+            } else if (value instanceof Written written) {
+                write(written.number() + " 0 R");
+            } else if (value instanceof Ref ref) {
+                writeRef(ref);
+            } else {
+                write("null");
+            }
+        }
+
+        /**
+         * 引用的对象首次出现时分配新对象号并加入待写队列；
+         * 指向其他页面或页面树的引用写为 null，避免把整份文档拉进单页文件
+         */
+        private void writeRef(Ref ref) throws IOException {
+            Integer number = renumbered.get(ref.number());
+            if (number == null) {
+                Object target = document.resolve(ref);
+                if (target == PdfParser.Null.INSTANCE || isPageNode(target)) {
+                    write("null");
+                    return;
+                }
+                number = nextNumber++;
+                renumbered.put(ref.number(), number);
+                pending.add(ref.number());
+            }
+            write(number + " 0 R");
+        }
+
+        private boolean isPageNode(Object value) {
+            return value instanceof Map<?, ?> dict && dict.get("Type") instanceof Name type
+                    && ("Page".equals(type.raw()) || "Pages".equals(type.raw()));
+        }
+
+        private void write(String text) throws IOException {
+            byte[] bytes = text.getBytes(StandardCharsets.ISO_8859_1);
+            out.write(bytes);
+            position += bytes.length;
+        }
+    }
+}
@@ -2,15 +2,23 @@ package com.classync.repository;
 
 import com.classync.entity.Answer;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface AnswerRepository extends JpaRepository<Answer, Long> {
     List<Answer> findByQuestionId(Long questionId);
-    Optional<Answer> findByQuestionIdAndUserId(Long questionId, Long userId);
+    Optional<Answer> findFirstByQuestionIdAndUserIdOrderByIdAsc(Long questionId, Long userId);
+    List<Answer> findByQuestionIdAndUserIdIn(Long questionId, Collection<Long> userIds);
+    List<Answer> findByQuestionIdAndIdGreaterThanOrderByIdAsc(Long questionId, Long id);
     void deleteByQuestionId(Long questionId);
+
+    @Query("SELECT a.userId FROM Answer a WHERE a.questionId = :questionId")
+    List<Long> findUserIdsByQuestionId(@Param("questionId") Long questionId);
 }
 
@@ -0,0 +1,20 @@
+package com.classync.repository;
+
+import com.classync.entity.ClassroomPageLocks;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ClassroomPageLocksRepository extends JpaRepository<ClassroomPageLocks, Long> {
+
+    /**
+     * 写入课堂的锁定区间（H2 MERGE，一条语句完成插入或更新）
+     */
+    @Modifying
+    @Query(value = "MERGE INTO classroom_page_locks (classroom_id, locked_ranges, updated_at) KEY (classroom_id) "
+            + "VALUES (:classroomId, :lockedRanges, CURRENT_TIMESTAMP)", nativeQuery = true)
+    int upsert(@Param("classroomId") Long classroomId, @Param("lockedRanges") String lockedRanges);
+}
@@ -2,6 +2,7 @@ package com.classync.repository;
 
 import com.classync.entity.Classroom;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -11,5 +12,21 @@ import java.util.Optional;
 public interface ClassroomRepository extends JpaRepository<Classroom, Long> {
     Optional<Classroom> findByClassCode(String classCode);
     List<Classroom> findByHostUserId(Long hostUserId);
+
+    /**
+     * 引用该上传文件的课堂数
+     */
+    long countByPdfPath(String pdfPath);
+
+    /**
+     * 该用户主持的课堂中是否有引用该上传文件的
+     */
+    boolean existsByHostUserIdAndPdfPath(Long hostUserId, String pdfPath);
+
+    /**
+     * 所有被课堂引用的上传文件
+     */
+    @Query("SELECT DISTINCT c.pdfPath FROM Classroom c WHERE c.pdfPath IS NOT NULL")
+    List<String> findDistinctPdfPaths();
 }
 
@@ -1,6 +1,7 @@
 package com.classync.repository;
 
 import com.classync.entity.Discussion;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
@@ -9,5 +10,10 @@ import java.util.List;
 @Repository
 public interface DiscussionRepository extends JpaRepository<Discussion, Long> {
     List<Discussion> findByClassroomIdOrderByCreatedAtAsc(Long classroomId);
-}
 
+    // 游标分页：按 ID 正序取 afterId 之后的讨论
+    List<Discussion> findByClassroomIdAndIdGreaterThanOrderByIdAsc(Long classroomId, Long afterId, Limit limit);
+
+    // 游标分页：按 ID 倒序（最新在前）取 beforeId 之前的讨论
+    List<Discussion> findByClassroomIdAndIdLessThanOrderByIdDesc(Long classroomId, Long beforeId, Limit limit);
+}
@@ -9,5 +9,6 @@ import java.util.List;
 @Repository
 public interface QuestionRepository extends JpaRepository<Question, Long> {
     List<Question> findByClassroomIdOrderByCreatedAtAsc(Long classroomId);
+    List<Question> findByIsOpenTrue();
 }
 
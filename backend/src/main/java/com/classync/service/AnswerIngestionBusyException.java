@@ -0,0 +1,15 @@
+package com.classync.service;
+
+/**
+ * 答案写入管道暂时无法受理（队列已满、等待落库超时或数据库不可用），客户端可稍后重试
+ */
+public class AnswerIngestionBusyException extends RuntimeException {
+
+    public AnswerIngestionBusyException(String message) {
+        super(message);
+    }
+
+    public AnswerIngestionBusyException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,320 @@
+package com.classync.service;
+
+import com.classync.entity.Answer;
+import com.classync.repository.AnswerRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 答案批量写入管道（group commit）
+ * 提交先进入有界队列，单个写线程凑满 batch-size 条或等待 max-delay-ms 后用一次 JDBC 批量插入落库，
+ * 事务提交后才返回给提交者。单写线程保证同一用户对同一问题只有第一次提交生效。
+ * 提交后先完成等待中的请求，选项计数、测验统计和词频（需要分词）交给单独的统计线程更新，不占用写线程
+ */
+@Service
+@RequiredArgsConstructor
+public class AnswerIngestionService {
+
+    // 已存在 (question_id, user_id) 的记录时跳过插入，保留第一次的答案（子查询走唯一索引）
+    private static final String INSERT_SQL =
+            "INSERT INTO answers (question_id, user_id, content, created_at) "
+                    + "SELECT ?, ?, ?, ? FROM DUAL "
+                    + "WHERE NOT EXISTS (SELECT 1 FROM answers WHERE question_id = ? AND user_id = ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final AnswerRepository answerRepository;
+    private final AnswerTallyService answerTallyService;
+    private final QuizStatisticsService quizStatisticsService;
+    private final WordFrequencyService wordFrequencyService;
+    private final AnswerMembershipService answerMembershipService;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${answer-ingest.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${answer-ingest.batch-size:200}")
+    private int batchSize;
+
+    @Value("${answer-ingest.max-delay-ms:20}")
+    private long maxDelayMs;
+
+    @Value("${answer-ingest.submit-timeout-ms:5000}")
+    private long submitTimeoutMs;
+
+    private BlockingQueue<PendingAnswer> queue;
+    private Thread writer;
+    private ExecutorService aggregator;
+    private volatile boolean running;
+
+    private Counter submittedCounter;
+    private Counter insertedCounter;
+    private DistributionSummary batchSizeSummary;
+    private Timer flushTimer;
+
+    @PostConstruct
+    public void start() {
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+
+        submittedCounter = Counter.builder("answer.ingest.submitted")
+                .description("进入写入队列的答案数")
+                .register(meterRegistry);
+        insertedCounter = Counter.builder("answer.ingest.inserted")
+                .description("实际新插入的答案数（不含重复提交）")
+                .register(meterRegistry);
+        batchSizeSummary = DistributionSummary.builder("answer.ingest.batch.size")
+                .description("每次批量写入的答案数")
+                .register(meterRegistry);
+        flushTimer = Timer.builder("answer.ingest.flush")
+                .description("每次批量写入（含事务提交）的耗时")
+                .register(meterRegistry);
+        Gauge.builder("answer.ingest.queue.depth", queue, BlockingQueue::size)
+                .description("等待写入的答案数")
+                .register(meterRegistry);
+
+        aggregator = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "answer-ingest-aggregator");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        running = true;
+        writer = new Thread(this::writeLoop, "answer-ingest-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        writer.join(TimeUnit.SECONDS.toMillis(5));
+        aggregator.shutdown();
+        aggregator.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 提交答案并等待落库
+     * @return 数据库中该用户对该问题的答案（重复提交时为第一次的答案）
+     * @throws IllegalArgumentException 答案缺少必填字段，或被数据库拒绝
+     * @throws AnswerIngestionBusyException 队列已满、写入超时或数据库不可用
+     */
+    public Answer submit(Answer answer) {
+        // 入队前校验，避免一条无效答案拖垮整批写入
+        if (answer.getQuestionId() == null || answer.getUserId() == null || answer.getContent() == null) {
+            throw new IllegalArgumentException("questionId, userId and content are required");
+        }
+
+        // 已作答的用户不进入写入队列，直接返回第一次的答案
+        if (answerMembershipService.hasAnswered(answer.getQuestionId(), answer.getUserId())) {
+            Optional<Answer> existing = answerRepository.findFirstByQuestionIdAndUserIdOrderByIdAsc(
+                    answer.getQuestionId(), answer.getUserId());
+            if (existing.isPresent()) {
+                return existing.get();
+            }
+        }
+
+        answer.setCreatedAt(LocalDateTime.now());
+        PendingAnswer pending = new PendingAnswer(answer);
+        try {
+            if (!queue.offer(pending, submitTimeoutMs, TimeUnit.MILLISECONDS)) {
+                throw new AnswerIngestionBusyException("Answer ingestion queue is full");
+            }
+            submittedCounter.increment();
+            return pending.future.get(submitTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AnswerIngestionBusyException("Interrupted while submitting answer", e);
+        } catch (TimeoutException e) {
+            throw new AnswerIngestionBusyException("Timed out waiting for answer to persist", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof DataIntegrityViolationException) {
+                throw new IllegalArgumentException("Answer rejected: " + e.getCause().getMessage(), e.getCause());
+            }
+            throw new AnswerIngestionBusyException("Failed to persist answer", e.getCause());
+        }
+    }
+
+    private void writeLoop() {
+        long maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxDelayMs);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingAnswer first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                List<PendingAnswer> batch = new ArrayList<>(batchSize);
+                batch.add(first);
+
+                // 凑批：满 batchSize 条或等满 maxDelay 即写入
+                long deadline = System.nanoTime() + maxDelayNanos;
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || remaining <= 0) {
+                        break;
+                    }
+                    PendingAnswer next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                flush(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                System.err.println("[AnswerIngestion] Writer loop error: " + e.getMessage());
+            }
+        }
+    }
+
+    private void flush(List<PendingAnswer> batch) {
+        // 同一批内同一用户对同一问题的多次提交只插入第一条
+        Map<String, Answer> firstByKey = new LinkedHashMap<>();
+        for (PendingAnswer pending : batch) {
+            firstByKey.putIfAbsent(key(pending.answer.getQuestionId(), pending.answer.getUserId()), pending.answer);
+        }
+
+        Map<String, Answer> stored = new LinkedHashMap<>();
+        Map<String, Exception> failures = new LinkedHashMap<>();
+        try {
+            Inserted inserted = flushTimer.record(
+                    () -> transactionTemplate.execute(status -> insert(firstByKey.values())));
+            insertedCounter.increment(inserted.count());
+            stored.putAll(inserted.stored());
+        } catch (Exception e) {
+            // 整批失败时逐条重试，只让出错的那一条失败
+            System.err.println("[AnswerIngestion] Batch insert failed, retrying " + firstByKey.size()
+                    + " rows one by one: " + e.getMessage());
+            for (Map.Entry<String, Answer> entry : firstByKey.entrySet()) {
+                try {
+                    Inserted inserted = transactionTemplate.execute(status -> insert(List.of(entry.getValue())));
+                    insertedCounter.increment(inserted.count());
+                    stored.putAll(inserted.stored());
+                } catch (Exception rowError) {
+                    System.err.println("[AnswerIngestion] Answer " + entry.getKey() + " rejected: "
+                            + rowError.getMessage());
+                    failures.put(entry.getKey(), rowError);
+                }
+            }
+        }
+        batchSizeSummary.record(batch.size());
+
+        // 事务提交后先标记已作答（只是集合插入），重复提交随即走快速路径
+        for (Answer answer : stored.values()) {
+            answerMembershipService.markAnswered(answer.getQuestionId(), answer.getUserId());
+        }
+        for (PendingAnswer pending : batch) {
+            String key = key(pending.answer.getQuestionId(), pending.answer.getUserId());
+            Answer answer = stored.get(key);
+            if (answer != null) {
+                pending.future.complete(answer);
+            } else if (failures.containsKey(key)) {
+                pending.future.completeExceptionally(failures.get(key));
+            } else {
+                pending.future.completeExceptionally(
+                        new AnswerIngestionBusyException("Answer not found after insert"));
+            }
+        }
+
+        // 答案已落库，统计更新滞后不影响正确性：聚合按答案 ID 去重，未加载的问题下次读取时从数据库重建
+        if (!stored.isEmpty()) {
+            List<Answer> answers = List.copyOf(stored.values());
+            aggregator.execute(() -> {
+                for (Answer answer : answers) {
+                    try {
+                        answerTallyService.record(answer);
+                        quizStatisticsService.record(answer);
+                        wordFrequencyService.record(answer);
+                    } catch (Exception e) {
+                        System.err.println("[AnswerIngestion] Failed to update statistics for answer "
+                                + answer.getId() + ": " + e.getMessage());
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * 在当前事务中批量插入并取回这些答案（已存在的答案跳过插入），计数在事务提交后再累加
+     */
+    private Inserted insert(Collection<Answer> answers) {
+        List<Object[]> args = new ArrayList<>(answers.size());
+        for (Answer answer : answers) {
+            args.add(new Object[] {
+                    answer.getQuestionId(), answer.getUserId(), answer.getContent(),
+                    Timestamp.valueOf(answer.getCreatedAt()), answer.getQuestionId(), answer.getUserId() });
+        }
+        int inserted = 0;
+        for (int count : jdbcTemplate.batchUpdate(INSERT_SQL, args)) {
+            if (count > 0) {
+                inserted++;
+            }
+        }
+        return new Inserted(inserted, loadStored(answers));
+    }
+
+    /**
+     * 按问题分组，一次 IN 查询取回本批涉及的全部答案
+     */
+    private Map<String, Answer> loadStored(Iterable<Answer> answers) {
+        Map<Long, List<Long>> userIdsByQuestion = new LinkedHashMap<>();
+        for (Answer answer : answers) {
+            userIdsByQuestion.computeIfAbsent(answer.getQuestionId(), id -> new ArrayList<>()).add(answer.getUserId());
+        }
+        Map<String, Answer> stored = new LinkedHashMap<>();
+        userIdsByQuestion.forEach((questionId, userIds) -> {
+            for (Answer answer : answerRepository.findByQuestionIdAndUserIdIn(questionId, userIds)) {
+                // 历史数据中可能存在重复提交，取最早的一条
+                stored.merge(key(answer.getQuestionId(), answer.getUserId()), answer,
+                        (existing, candidate) -> existing.getId() <= candidate.getId() ? existing : candidate);
+            }
+        });
+        return stored;
+    }
+
+    private static String key(Long questionId, Long userId) {
+        return questionId + ":" + userId;
+    }
+
+    private record Inserted(int count, Map<String, Answer> stored) {
+    }
+
+    private static class PendingAnswer {
+        private final Answer answer;
+        private final CompletableFuture<Answer> future = new CompletableFuture<>();
+
+        PendingAnswer(Answer answer) {
+            this.answer = answer;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.classync.service;
+
+import com.classync.entity.Question;
+import com.classync.repository.AnswerRepository;
+import com.classync.repository.QuestionRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 每个问题的已作答用户索引
+ * 提交时判断是否重复作答、统计作答人数都只查内存，不再逐个学生查询数据库；
+ * 正确性由 answers 表上 (question_id, user_id) 的唯一约束兜底。
+ * 已关闭的问题和已结束课堂的问题定期移除，再次访问时从数据库重新加载
+ */
+@Service
+@RequiredArgsConstructor
+public class AnswerMembershipService {
+
+    private final AnswerRepository answerRepository;
+    private final QuestionRepository questionRepository;
+    private final ClassroomLiveStateService liveStateService;
+
+    private final QuestionAggregates<Set<Long>, Long> answeredUsers =
+            new QuestionAggregates<>(this::load, Set::add);
+
+    /**
+     * 启动时为开放中的问题加载已作答用户，其余问题在首次访问时加载
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOpenQuestions() {
+        List<Question> openQuestions = questionRepository.findByIsOpenTrue();
+        for (Question question : openQuestions) {
+            getMembers(question.getId());
+        }
+        System.out.println("[AnswerMembership] Loaded answered users for " + openQuestions.size() + " open questions");
+    }
+
+    /**
+     * 用户是否已经回答过该问题
+     */
+    public boolean hasAnswered(Long questionId, Long userId) {
+        return getMembers(questionId).contains(userId);
+    }
+
+    /**
+     * 答案落库后登记作答用户（只对已加载的问题生效，其余在首次访问时从数据库加载）
+     */
+    public void markAnswered(Long questionId, Long userId) {
+        answeredUsers.update(questionId, userId);
+    }
+
+    /**
+     * 已作答人数
+     */
+    public int getAnsweredCount(Long questionId) {
+        return getMembers(questionId).size();
+    }
+
+    /**
+     * 问题被删除后移除索引
+     */
+    public void evict(Long questionId) {
+        answeredUsers.remove(questionId);
+    }
+
+    /**
+     * 移除不再接收答案的索引：问题已删除、已关闭，或所在课堂已结束（不在内存中）
+     */
+    @Scheduled(fixedDelayString = "${classroom.live-state.evict-interval-ms:60000}")
+    public void evictInactive() {
+        if (answeredUsers.isEmpty()) {
+            return;
+        }
+        Set<Long> active = new HashSet<>();
+        for (Question question : questionRepository.findAllById(new ArrayList<>(answeredUsers.questionIds()))) {
+            if (Boolean.TRUE.equals(question.getIsOpen()) && liveStateService.isLoaded(question.getClassroomId())) {
+                active.add(question.getId());
+            }
+        }
+        answeredUsers.questionIds().removeIf(questionId -> !active.contains(questionId));
+    }
+
+    private Set<Long> getMembers(Long questionId) {
+        return answeredUsers.get(questionId);
+    }
+
+    private Set<Long> load(Long questionId) {
+        Set<Long> loaded = ConcurrentHashMap.newKeySet();
+        loaded.addAll(answerRepository.findUserIdsByQuestionId(questionId));
+        return loaded;
+    }
+}
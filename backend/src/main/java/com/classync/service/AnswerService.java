@@ -1,10 +1,10 @@
 package com.classync.service;
 
 import com.classync.dto.AnswerStatisticsDTO;
+import com.classync.dto.QuizStatisticsDTO;
+import com.classync.dto.WordFrequencyDTO;
 import com.classync.entity.Answer;
-import com.classync.entity.QuestionOption;
 import com.classync.repository.AnswerRepository;
-import com.classync.repository.QuestionOptionRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
@@ -15,59 +15,50 @@ import java.util.*;
 public class AnswerService {
     
     private final AnswerRepository answerRepository;
-    private final QuestionOptionRepository questionOptionRepository;
+    private final AnswerIngestionService answerIngestionService;
+    private final AnswerTallyService answerTallyService;
+    private final QuizStatisticsService quizStatisticsService;
+    private final WordFrequencyService wordFrequencyService;
+    private final AnswerMembershipService answerMembershipService;
     
+    /**
+     * 提交答案：进入批量写入管道，落库后返回
+     * 所有题型统一只允许提交一次，重复提交返回第一次的答案
+     */
     public Answer submitAnswer(Answer answer) {
-        // 检查用户是否已经回答过：所有题型统一只允许提交一次
-        Optional<Answer> existingAnswer = answerRepository.findByQuestionIdAndUserId(
-            answer.getQuestionId(), answer.getUserId());
-        
-        if (existingAnswer.isPresent()) {
-            // 已经存在答案，直接返回第一次的答案，不再新增记录
-            return existingAnswer.get();
-        }
-        
-        return answerRepository.save(answer);
+        return answerIngestionService.submit(answer);
+    }
+    
+    /**
+     * 已作答人数（读取内存中的已作答用户索引）
+     */
+    public int getAnsweredCount(Long questionId) {
+        return answerMembershipService.getAnsweredCount(questionId);
     }
     
     public List<Answer> getAnswersByQuestionId(Long questionId) {
         return answerRepository.findByQuestionId(questionId);
     }
     
+    /**
+     * 选项统计直接读取增量计数器，不再逐条扫描答案
+     */
     public List<AnswerStatisticsDTO> getAnswerStatistics(Long questionId) {
-        List<Answer> answers = answerRepository.findByQuestionId(questionId);
-        List<QuestionOption> options = questionOptionRepository.findByQuestionIdOrderByOptionOrderAsc(questionId);
-        
-        // 修复多选题统计：需要拆分每个答案中的多个选项
-        Map<String, Long> countMap = new HashMap<>();
-        for (Answer answer : answers) {
-            String content = answer.getContent();
-            if (content != null && !content.isEmpty()) {
-                // 按逗号分割（多选题的答案格式为 "选项1,选项2,..."）
-                String[] selectedOptions = content.split(",");
-                for (String option : selectedOptions) {
-                    String trimmedOption = option.trim();
-                    if (!trimmedOption.isEmpty()) {
-                        countMap.put(trimmedOption, countMap.getOrDefault(trimmedOption, 0L) + 1);
-                    }
-                }
-            }
-        }
-        
-        List<AnswerStatisticsDTO> statistics = new ArrayList<>();
-        long totalAnswers = answers.size();
-        
-        for (QuestionOption option : options) {
-            AnswerStatisticsDTO stat = new AnswerStatisticsDTO();
-            stat.setOptionContent(option.getContent());
-            long count = countMap.getOrDefault(option.getContent(), 0L);
-            stat.setCount(count);
-            stat.setPercentage(totalAnswers > 0 ? (count * 100.0 / totalAnswers) : 0.0);
-            stat.setIsCorrect(option.getIsCorrect());
-            statistics.add(stat);
-        }
-        
-        return statistics;
+        return answerTallyService.getStatistics(questionId);
+    }
+    
+    /**
+     * 测验子问题聚合统计（服务端已解析答案 JSON）
+     */
+    public QuizStatisticsDTO getQuizStatistics(Long questionId, Integer subQuestionIndex) {
+        return quizStatisticsService.getStatistics(questionId, subQuestionIndex);
+    }
+    
+    /**
+     * 问答题词云：词频最高的 k 个词
+     */
+    public List<WordFrequencyDTO> getWordFrequency(Long questionId, Integer subQuestionIndex, int k) {
+        return wordFrequencyService.getTopWords(questionId, subQuestionIndex, k);
     }
     
     public List<String> getEssayAnswers(Long questionId) {
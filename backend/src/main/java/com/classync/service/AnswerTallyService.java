@@ -0,0 +1,172 @@
+package com.classync.service;
+
+import com.classync.dto.AnswerStatisticsDTO;
+import com.classync.entity.Answer;
+import com.classync.entity.Question;
+import com.classync.entity.QuestionOption;
+import com.classync.repository.AnswerRepository;
+import com.classync.repository.QuestionOptionRepository;
+import com.classync.repository.QuestionRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 选择题答案的增量计数器
+ * 每次提交只累加对应选项的 LongAdder，统计读取只遍历选项，不再重新扫描全部答案。
+ * 已关闭的问题和已结束课堂的问题定期移除，再次读取时从数据库重建
+ */
+@Service
+@RequiredArgsConstructor
+public class AnswerTallyService {
+
+    private final AnswerRepository answerRepository;
+    private final QuestionOptionRepository questionOptionRepository;
+    private final QuestionRepository questionRepository;
+    private final ClassroomLiveStateService liveStateService;
+
+    private final QuestionAggregates<QuestionTally, Answer> tallies =
+            new QuestionAggregates<>(this::rebuild, QuestionTally::add);
+
+    /**
+     * 启动时为开放中的问题从数据库重建计数，其余问题在首次读取时重建
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOpenQuestions() {
+        List<Question> openQuestions = questionRepository.findByIsOpenTrue();
+        for (Question question : openQuestions) {
+            getTally(question.getId());
+        }
+        System.out.println("[AnswerTally] Rebuilt tallies for " + openQuestions.size() + " open questions");
+    }
+
+    /**
+     * 记录一条已提交的答案（同一答案重复记录只计一次）
+     */
+    public void record(Answer answer) {
+        // 计数器正在重建时暂存，重建完成后补记；不存在则交给下次读取时重建
+        tallies.update(answer.getQuestionId(), answer);
+    }
+
+    /**
+     * 获取问题的选项统计，结果与逐条扫描答案完全一致
+     */
+    public List<AnswerStatisticsDTO> getStatistics(Long questionId) {
+        QuestionTally tally = getTally(questionId);
+        List<QuestionOption> options = tally.options;
+        if (options == null) {
+            options = questionOptionRepository.findByQuestionIdOrderByOptionOrderAsc(questionId);
+            tally.options = options;
+        }
+
+        long totalAnswers = tally.total.sum();
+        List<AnswerStatisticsDTO> statistics = new ArrayList<>(options.size());
+        for (QuestionOption option : options) {
+            AnswerStatisticsDTO stat = new AnswerStatisticsDTO();
+            stat.setOptionContent(option.getContent());
+            long count = tally.count(option.getContent());
+            stat.setCount(count);
+            stat.setPercentage(totalAnswers > 0 ? (count * 100.0 / totalAnswers) : 0.0);
+            stat.setIsCorrect(option.getIsCorrect());
+            statistics.add(stat);
+        }
+        return statistics;
+    }
+
+    /**
+     * 获取问题的答案总数
+     */
+    public long getAnswerCount(Long questionId) {
+        return getTally(questionId).total.sum();
+    }
+
+    /**
+     * 问题选项被修改后重新加载选项
+     */
+    public void invalidateOptions(Long questionId) {
+        QuestionTally tally = tallies.peek(questionId);
+        if (tally != null) {
+            tally.options = null;
+        }
+    }
+
+    /**
+     * 问题被删除后移除计数器
+     */
+    public void evict(Long questionId) {
+        tallies.remove(questionId);
+    }
+
+    /**
+     * 移除不再接收答案的计数器：问题已删除、已关闭，或所在课堂已结束（不在内存中）
+     */
+    @Scheduled(fixedDelayString = "${classroom.live-state.evict-interval-ms:60000}")
+    public void evictInactive() {
+        if (tallies.isEmpty()) {
+            return;
+        }
+        Set<Long> active = new HashSet<>();
+        for (Question question : questionRepository.findAllById(new ArrayList<>(tallies.questionIds()))) {
+            if (Boolean.TRUE.equals(question.getIsOpen()) && liveStateService.isLoaded(question.getClassroomId())) {
+                active.add(question.getId());
+            }
+        }
+        tallies.questionIds().removeIf(questionId -> !active.contains(questionId));
+    }
+
+    private QuestionTally getTally(Long questionId) {
+        return tallies.get(questionId);
+    }
+
+    private QuestionTally rebuild(Long questionId) {
+        QuestionTally rebuilt = new QuestionTally();
+        for (Answer answer : answerRepository.findByQuestionId(questionId)) {
+            rebuilt.add(answer);
+        }
+        return rebuilt;
+    }
+
+    /**
+     * 单个问题的计数器，所有字段均可无锁并发更新
+     */
+    private static class QuestionTally {
+        private final Set<Long> countedAnswerIds = ConcurrentHashMap.newKeySet();
+        private final Map<String, LongAdder> counts = new ConcurrentHashMap<>();
+        private final LongAdder total = new LongAdder();
+        private volatile List<QuestionOption> options;
+
+        void add(Answer answer) {
+            if (answer.getId() != null && !countedAnswerIds.add(answer.getId())) {
+                return;
+            }
+            total.increment();
+
+            String content = answer.getContent();
+            if (content == null || content.isEmpty()) {
+                return;
+            }
+            // 多选题的答案格式为 "选项1,选项2,..."
+            for (String option : content.split(",")) {
+                String trimmedOption = option.trim();
+                if (!trimmedOption.isEmpty()) {
+                    counts.computeIfAbsent(trimmedOption, key -> new LongAdder()).increment();
+                }
+            }
+        }
+
+        long count(String optionContent) {
+            LongAdder adder = counts.get(optionContent);
+            return adder == null ? 0L : adder.sum();
+        }
+    }
+}
@@ -0,0 +1,244 @@
+package com.classync.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 分片续传上传
+ * 客户端先登记文件（名称、大小、可选 SHA-256），再按偏移量顺序发送分片；
+ * 连接中断后查询已接收的偏移量从断点继续。分片内容流式写入 .partial 下的文件，
+ * 摘要在接收过程中累计，最后一个分片到达后校验并移动为正式文件。
+ * 上传会话保存在内存中，长时间无进展的会话连同未完成的文件一起清理
+ */
+@Service
+@RequiredArgsConstructor
+public class ChunkedUploadService {
+
+    private final FileService fileService;
+
+    @Value("${upload.chunk.size:1048576}")
+    private int chunkSize;
+
+    @Value("${upload.chunk.session-ttl-ms:3600000}")
+    private long sessionTtlMs;
+
+    @Value("${spring.servlet.multipart.max-file-size:50MB}")
+    private DataSize maxFileSize;
+
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+
+    /**
+     * 登记一次分片上传，文件超过上传大小上限时抛出 IllegalArgumentException
+     */
+    public UploadStatus start(Long classroomId, String filename, long size, String sha256) throws IOException {
+        if (size <= 0 || size > maxFileSize.toBytes()) {
+            throw new IllegalArgumentException("文件大小必须在 1 到 " + maxFileSize.toBytes() + " 字节之间");
+        }
+        String uploadId = UUID.randomUUID().toString();
+        Session session = new Session(uploadId, classroomId, filename, size, sha256,
+                fileService.createPartialFile(uploadId));
+        sessions.put(uploadId, session);
+        System.out.println("[ChunkedUpload] Started " + uploadId + " for classroom " + classroomId
+                + " (" + filename + ", " + size + " bytes)");
+        return session.status();
+    }
+
+    /**
+     * 查询上传进度，会话不存在（已完成、过期或不属于该课堂）时返回 null
+     */
+    public UploadStatus getStatus(Long classroomId, String uploadId) {
+        Session session = session(classroomId, uploadId);
+        if (session == null) {
+            return null;
+        }
+        synchronized (session) {
+            return session.status();
+        }
+    }
+
+    /**
+     * 写入从 offset 开始的一个分片。
+     * offset 与已接收的字节数不一致时抛出 IllegalStateException（客户端应先查询进度）；
+     * 传输中断时保留已收到的部分，下次从新的偏移量继续。
+     * 返回写入后的进度，最后一个分片到达时校验摘要并附带保存后的文件
+     */
+    public ChunkResult writeChunk(Long classroomId, String uploadId, long offset, InputStream body)
+            throws IOException {
+        Session session = session(classroomId, uploadId);
+        if (session == null) {
+            return null;
+        }
+        synchronized (session) {
+            if (session.expired) {
+                return null;
+            }
+            if (offset != session.received) {
+                throw new IllegalStateException("分片偏移量 " + offset + " 与已接收的 " + session.received + " 不一致");
+            }
+            session.touch();
+            try (ReadableByteChannel source = new LimitedChannel(Channels.newChannel(body), session.size - offset);
+                    FileChannel target = FileChannel.open(session.partial, StandardOpenOption.WRITE)) {
+                target.truncate(offset);
+                target.position(offset);
+                try {
+                    fileService.transfer(source, target, session.digest);
+                } finally {
+                    session.received = target.position();
+                }
+            }
+
+            if (session.received < session.size) {
+                return new ChunkResult(session.status(), null);
+            }
+            sessions.remove(uploadId);
+            FileService.StoredFile stored = fileService.store(session.partial, session.filename, session.size,
+                    session.digest, session.expectedSha256);
+            System.out.println("[ChunkedUpload] Completed " + uploadId + " as " + stored.filename()
+                    + " (sha256=" + stored.sha256() + ")");
+            return new ChunkResult(session.status(), stored);
+        }
+    }
+
+    /**
+     * 清理长时间没有新分片的会话及其未完成的文件
+     * 最近活动时间不加锁读取，只锁定已经过期的会话，不会等待正在写入分片的会话
+     */
+    @Scheduled(fixedDelayString = "${upload.chunk.evict-interval-ms:60000}")
+    public void evictExpired() {
+        long now = System.currentTimeMillis();
+        for (Session session : sessions.values()) {
+            if (now - session.lastTouched < sessionTtlMs) {
+                continue;
+            }
+            synchronized (session) {
+                // 等待监视器期间可能刚写入过分片
+                if (now - session.lastTouched < sessionTtlMs || !sessions.remove(session.uploadId, session)) {
+                    continue;
+                }
+                session.expired = true;
+                try {
+                    Files.deleteIfExists(session.partial);
+                } catch (IOException e) {
+                    System.err.println("[ChunkedUpload] Failed to delete " + session.partial + ": " + e.getMessage());
+                }
+                System.out.println("[ChunkedUpload] Expired " + session.uploadId);
+            }
+        }
+    }
+
+    private Session session(Long classroomId, String uploadId) {
+        Session session = sessions.get(uploadId);
+        return session != null && session.classroomId.equals(classroomId) ? session : null;
+    }
+
+    /**
+     * 上传进度：offset 为已接收的字节数，chunkSize 为建议的分片大小
+     */
+    public record UploadStatus(String uploadId, long offset, long size, int chunkSize) {
+    }
+
+    /**
+     * 分片写入结果，file 仅在上传完成时不为 null
+     */
+    public record ChunkResult(UploadStatus status, FileService.StoredFile file) {
+        public boolean complete() {
+            return file != null;
+        }
+    }
+
+    /**
+     * 单次上传的状态，由自身监视器保护，同一时刻只写入一个分片；lastTouched 供清理任务不加锁读取
+     */
+    private class Session {
+        private final String uploadId;
+        private final Long classroomId;
+        private final String filename;
+        private final long size;
+        private final String expectedSha256;
+        private final Path partial;
+        private final MessageDigest digest = FileService.newDigest();
+        private long received;
+        private volatile long lastTouched = System.currentTimeMillis();
+        private boolean expired;
+
+        Session(String uploadId, Long classroomId, String filename, long size, String expectedSha256, Path partial) {
+            this.uploadId = uploadId;
+            this.classroomId = classroomId;
+            this.filename = filename;
+            this.size = size;
+            this.expectedSha256 = expectedSha256;
+            this.partial = partial;
+        }
+
+        void touch() {
+            lastTouched = System.currentTimeMillis();
+        }
+
+        UploadStatus status() {
+            return new UploadStatus(uploadId, received, size, chunkSize);
+        }
+    }
+
+    /**
+     * 限制分片不超过文件剩余大小，超出时拒绝（超出部分不会写入）
+     */
+    private static class LimitedChannel implements ReadableByteChannel {
+        private final ReadableByteChannel source;
+        private long remaining;
+
+        LimitedChannel(ReadableByteChannel source, long remaining) {
+            this.source = source;
+            this.remaining = remaining;
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            if (remaining == 0) {
+                if (source.read(ByteBuffer.allocate(1)) > 0) {
+                    throw new IllegalArgumentException("分片超出文件声明的大小");
+                }
+                return -1;
+            }
+            int limit = dst.limit();
+            if (dst.remaining() > remaining) {
+                dst.limit(dst.position() + (int) remaining);
+            }
+            try {
+                int read = source.read(dst);
+                if (read > 0) {
+                    remaining -= read;
+                }
+                return read;
+            } finally {
+                dst.limit(limit);
+            }
+        }
+
+        @Override
+        public boolean isOpen() {
+            return source.isOpen();
+        }
+
+        @Override
+        public void close() throws IOException {
+            source.close();
+        }
+    }
+}
@@ -0,0 +1,360 @@
+package com.classync.service;
+
+import com.classync.entity.Classroom;
+import com.classync.entity.Question;
+import com.classync.repository.ClassroomRepository;
+import com.classync.repository.QuestionRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 运行中课堂的内存状态（当前页码、展示问题、开放问题）
+ * 所有读写直接走内存，脏字段由定时任务合并成一次 JDBC 批量更新写回数据库，
+ * 课堂结束后从内存中移除。每次状态变化推进课堂的快照版本，供加入课堂快照缓存判断是否需要重建
+ */
+@Service
+@RequiredArgsConstructor
+public class ClassroomLiveStateService {
+
+    private static final String FLUSH_SQL =
+            "UPDATE classrooms SET current_page = ?, display_question_id = ?, display_question_mode = ? WHERE id = ?";
+
+    private final ClassroomRepository classroomRepository;
+    private final QuestionRepository questionRepository;
+    private final JdbcTemplate jdbcTemplate;
+
+    private final Map<Long, LiveState> states = new ConcurrentHashMap<>();
+    // 全局递增，课堂被移除后重新加载也不会复用旧版本号
+    private final AtomicLong snapshotVersions = new AtomicLong();
+
+    /**
+     * 获取课堂快照（内存中不存在时从数据库加载一次）
+     */
+    public Optional<Classroom> getClassroom(Long classroomId) {
+        LiveState state = getState(classroomId);
+        return state == null ? Optional.empty() : Optional.of(state.snapshot());
+    }
+
+    /**
+     * 用内存中的实时字段覆盖从数据库读取的课堂（只覆盖已加载的课堂）
+     */
+    public Classroom overlay(Classroom classroom) {
+        if (classroom != null && classroom.getId() != null) {
+            LiveState state = states.get(classroom.getId());
+            if (state != null) {
+                state.applyLiveFields(classroom);
+            }
+        }
+        return classroom;
+    }
+
+    /**
+     * 更新当前页码（只改内存，稍后写回）
+     */
+    public boolean updateCurrentPage(Long classroomId, Integer pageNumber) {
+        LiveState state = getState(classroomId);
+        if (state == null) {
+            return false;
+        }
+        synchronized (state) {
+            state.currentPage = pageNumber;
+            state.dirty = true;
+            state.snapshotVersion = snapshotVersions.incrementAndGet();
+        }
+        return true;
+    }
+
+    /**
+     * 更新放映页展示问题（只改内存，稍后写回）
+     */
+    public Optional<Classroom> updateDisplayQuestion(Long classroomId, Long questionId, String mode) {
+        LiveState state = getState(classroomId);
+        if (state == null) {
+            return Optional.empty();
+        }
+        synchronized (state) {
+            state.displayQuestionId = questionId;
+            state.displayQuestionMode = questionId == null ? null : mode;
+            state.dirty = true;
+            state.snapshotVersion = snapshotVersions.incrementAndGet();
+        }
+        return Optional.of(state.snapshot());
+    }
+
+    /**
+     * 应用其他节点广播的页码：只改内存并推进快照版本，由来源节点负责写回
+     */
+    public void applyRemotePage(Long classroomId, Integer pageNumber) {
+        LiveState state = getState(classroomId);
+        if (state == null) {
+            return;
+        }
+        synchronized (state) {
+            state.currentPage = pageNumber;
+            state.snapshotVersion = snapshotVersions.incrementAndGet();
+        }
+    }
+
+    /**
+     * 应用其他节点广播的展示问题：只改内存并推进快照版本，由来源节点负责写回
+     */
+    public void applyRemoteDisplayQuestion(Long classroomId, Long questionId, String mode) {
+        LiveState state = getState(classroomId);
+        if (state == null) {
+            return;
+        }
+        synchronized (state) {
+            state.displayQuestionId = questionId;
+            state.displayQuestionMode = questionId == null ? null : mode;
+            state.snapshotVersion = snapshotVersions.incrementAndGet();
+        }
+    }
+
+    /**
+     * 课堂整行保存后刷新内存中的基础信息（名称、时间、PDF 等），实时字段以内存为准
+     */
+    public void refresh(Classroom saved) {
+        LiveState state = states.get(saved.getId());
+        if (state != null) {
+            synchronized (state) {
+                state.base = copyOf(saved);
+            }
+        }
+    }
+
+    /**
+     * 获取课堂当前开放的问题（缓存，问题变更时失效）
+     */
+    public List<Question> getOpenQuestions(Long classroomId) {
+        LiveState state = getState(classroomId);
+        if (state == null) {
+            return List.of();
+        }
+        List<Question> cached = state.openQuestions;
+        if (cached != null) {
+            return cached;
+        }
+
+        long version;
+        synchronized (state) {
+            version = state.questionsVersion;
+        }
+        List<Question> loaded = questionRepository.findByClassroomIdOrderByCreatedAtAsc(classroomId)
+                .stream()
+                .filter(Question::getIsOpen)
+                .toList();
+        synchronized (state) {
+            if (state.questionsVersion == version) {
+                state.openQuestions = loaded;
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * 问题新增、开关、修改或删除后使开放问题缓存失效（在事务中调用时推迟到提交之后）
+     */
+    public void invalidateQuestions(Long classroomId) {
+        afterCommit(() -> {
+            LiveState state = states.get(classroomId);
+            if (state != null) {
+                synchronized (state) {
+                    state.questionsVersion++;
+                    state.openQuestions = null;
+                    state.snapshotVersion = snapshotVersions.incrementAndGet();
+                }
+            }
+        });
+    }
+
+    /**
+     * 页面锁定变化后推进快照版本（在事务中调用时推迟到提交之后）
+     */
+    public void invalidatePageLocks(Long classroomId) {
+        afterCommit(() -> {
+            LiveState state = states.get(classroomId);
+            if (state != null) {
+                synchronized (state) {
+                    state.snapshotVersion = snapshotVersions.incrementAndGet();
+                }
+            }
+        });
+    }
+
+    /**
+     * 课堂当前的快照版本，课堂不存在时返回 -1
+     */
+    public long getSnapshotVersion(Long classroomId) {
+        LiveState state = getState(classroomId);
+        if (state == null) {
+            return -1;
+        }
+        synchronized (state) {
+            return state.snapshotVersion;
+        }
+    }
+
+    /**
+     * 课堂是否仍在内存中（已结束或删除的课堂会被移除）
+     */
+    public boolean isLoaded(Long classroomId) {
+        return states.containsKey(classroomId);
+    }
+
+    /**
+     * 移除课堂（删除课堂时调用，未写回的字段直接丢弃）
+     */
+    public void evict(Long classroomId) {
+        states.remove(classroomId);
+    }
+
+    /**
+     * 合并写回所有脏字段：多次翻页只写最后一次，所有课堂一次批量更新
+     */
+    @Scheduled(fixedDelayString = "${classroom.live-state.flush-interval-ms:200}")
+    public void flush() {
+        List<Object[]> batch = new ArrayList<>();
+        List<LiveState> flushed = new ArrayList<>();
+        for (LiveState state : states.values()) {
+            synchronized (state) {
+                if (!state.dirty) {
+                    continue;
+                }
+                state.dirty = false;
+                batch.add(new Object[] {
+                        state.currentPage, state.displayQuestionId, state.displayQuestionMode, state.classroomId });
+            }
+            flushed.add(state);
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        try {
+            jdbcTemplate.batchUpdate(FLUSH_SQL, batch);
+        } catch (Exception e) {
+            System.err.println("[ClassroomLiveState] Flush failed, will retry: " + e.getMessage());
+            for (LiveState state : flushed) {
+                synchronized (state) {
+                    state.dirty = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * 移除已结束的课堂（先写回再移除）
+     */
+    @Scheduled(fixedDelayString = "${classroom.live-state.evict-interval-ms:60000}")
+    public void evictEnded() {
+        flush();
+        LocalDateTime now = LocalDateTime.now();
+        states.values().removeIf(state -> {
+            synchronized (state) {
+                LocalDateTime endTime = state.base.getEndTime();
+                return !state.dirty && endTime != null && now.isAfter(endTime);
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    private LiveState getState(Long classroomId) {
+        LiveState state = states.get(classroomId);
+        if (state != null) {
+            return state;
+        }
+        // 在映射锁之外查询数据库，避免慢查询阻塞同一桶内的其他课堂；并发加载时以先放入的为准
+        Classroom classroom = classroomRepository.findById(classroomId).orElse(null);
+        if (classroom == null) {
+            return null;
+        }
+        LiveState loaded = new LiveState(classroom, snapshotVersions.incrementAndGet());
+        LiveState existing = states.putIfAbsent(classroomId, loaded);
+        return existing != null ? existing : loaded;
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        // 提交前失效会让并发的读取把旧数据重新放回缓存
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private static Classroom copyOf(Classroom source) {
+        Classroom copy = new Classroom();
+        copy.setId(source.getId());
+        copy.setName(source.getName());
+        copy.setStartTime(source.getStartTime());
+        copy.setEndTime(source.getEndTime());
+        copy.setClassCode(source.getClassCode());
+        copy.setPdfPath(source.getPdfPath());
+        copy.setHostUserId(source.getHostUserId());
+        copy.setCurrentPage(source.getCurrentPage());
+        copy.setDisplayQuestionId(source.getDisplayQuestionId());
+        copy.setDisplayQuestionMode(source.getDisplayQuestionMode());
+        copy.setCreatedAt(source.getCreatedAt());
+        return copy;
+    }
+
+    /**
+     * 单个课堂的实时状态，字段由自身监视器保护
+     */
+    private static class LiveState {
+        private final Long classroomId;
+        private Classroom base;
+        private Integer currentPage;
+        private Long displayQuestionId;
+        private String displayQuestionMode;
+        private boolean dirty;
+
+        private volatile List<Question> openQuestions;
+        private long questionsVersion;
+        // 页码、展示问题、开放问题或页面锁定任一变化都会推进
+        private long snapshotVersion;
+
+        LiveState(Classroom classroom, long snapshotVersion) {
+            this.classroomId = classroom.getId();
+            this.snapshotVersion = snapshotVersion;
+            this.base = copyOf(classroom);
+            this.currentPage = classroom.getCurrentPage();
+            this.displayQuestionId = classroom.getDisplayQuestionId();
+            this.displayQuestionMode = classroom.getDisplayQuestionMode();
+        }
+
+        synchronized Classroom snapshot() {
+            Classroom copy = copyOf(base);
+            applyLiveFields(copy);
+            return copy;
+        }
+
+        synchronized void applyLiveFields(Classroom target) {
+            target.setCurrentPage(currentPage);
+            target.setDisplayQuestionId(displayQuestionId);
+            target.setDisplayQuestionMode(displayQuestionMode);
+        }
+    }
+}
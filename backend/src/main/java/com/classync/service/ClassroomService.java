@@ -26,22 +26,28 @@ public class ClassroomService {
     private final ClassroomParticipantRepository participantRepository;
     private final QuestionRepository questionRepository;
     private final QuestionOptionRepository questionOptionRepository;
+    private final ClassroomLiveStateService liveStateService;
     
     public Classroom createClassroom(Classroom classroom) {
         classroom.setClassCode(generateClassCode());
         return classroomRepository.save(classroom);
     }
     
+    /**
+     * 从内存状态读取课堂（首次访问时加载）
+     */
     public Optional<Classroom> getClassroomById(Long id) {
-        return classroomRepository.findById(id);
+        return liveStateService.getClassroom(id);
     }
     
     public Optional<Classroom> getClassroomByCode(String classCode) {
-        return classroomRepository.findByClassCode(classCode);
+        return classroomRepository.findByClassCode(classCode).map(liveStateService::overlay);
     }
     
     public List<Classroom> getClassroomsByHostUserId(Long hostUserId) {
-        return classroomRepository.findByHostUserId(hostUserId);
+        List<Classroom> classrooms = classroomRepository.findByHostUserId(hostUserId);
+        classrooms.forEach(liveStateService::overlay);
+        return classrooms;
     }
     
     public List<Classroom> getClassroomsByParticipantUserId(Long userId) {
@@ -50,6 +56,7 @@ public class ClassroomService {
                 .map(participant -> classroomRepository.findById(participant.getClassroomId()))
                 .filter(Optional::isPresent)
                 .map(Optional::get)
+                .map(liveStateService::overlay)
                 .collect(Collectors.toList());
     }
     
@@ -74,20 +81,31 @@ public class ClassroomService {
         participant.ifPresent(participantRepository::delete);
     }
     
+    /**
+     * 保存课堂整行（实时字段以内存为准，避免覆盖尚未写回的翻页）
+     */
     public Classroom updateClassroom(Classroom classroom) {
-        return classroomRepository.save(classroom);
+        Classroom saved = classroomRepository.save(liveStateService.overlay(classroom));
+        liveStateService.refresh(saved);
+        return saved;
     }
     
+    /**
+     * 更新当前页码：只写内存，由 ClassroomLiveStateService 异步合并写回
+     */
     public void updateCurrentPage(Long classroomId, Integer pageNumber) {
-        Optional<Classroom> classroomOpt = classroomRepository.findById(classroomId);
-        if (classroomOpt.isPresent()) {
-            Classroom classroom = classroomOpt.get();
-            classroom.setCurrentPage(pageNumber);
-            classroomRepository.save(classroom);
-        }
+        liveStateService.updateCurrentPage(classroomId, pageNumber);
+    }
+    
+    /**
+     * 设置放映页展示问题，questionId 为 null 表示清除
+     */
+    public Optional<Classroom> updateDisplayQuestion(Long classroomId, Long questionId, String mode) {
+        return liveStateService.updateDisplayQuestion(classroomId, questionId, mode);
     }
     
     public void deleteClassroom(Long classroomId) {
+        liveStateService.evict(classroomId);
         classroomRepository.deleteById(classroomId);
     }
     
@@ -210,7 +228,7 @@ public class ClassroomService {
      * @return "NOT_STARTED" | "IN_PROGRESS" | "ENDED"
      */
     public String getClassroomStatus(Long classroomId) {
-        Optional<Classroom> classroomOpt = classroomRepository.findById(classroomId);
+        Optional<Classroom> classroomOpt = liveStateService.getClassroom(classroomId);
         if (classroomOpt.isEmpty()) {
             return null;
         }
@@ -237,6 +255,13 @@ public class ClassroomService {
         return "IN_PROGRESS".equals(status);
     }
     
+    /**
+     * 用户是否主持了引用该上传文件的课堂（只有这样的主讲人可以直接下载原文件）
+     */
+    public boolean isFileHost(Long userId, String pdfPath) {
+        return userId != null && classroomRepository.existsByHostUserIdAndPdfPath(userId, pdfPath);
+    }
+    
     private String generateClassCode() {
         String chars = "ABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789";
         Random random = new Random();
@@ -0,0 +1,9 @@
+package com.classync.service;
+
+import com.classync.dto.DiscussionWithUserDTO;
+
+/**
+ * 新讨论已保存（携带已解析用户名和被回复者的完整讨论），提交后由 WebSocket 层广播
+ */
+public record DiscussionCreatedEvent(Long classroomId, DiscussionWithUserDTO discussion) {
+}
@@ -0,0 +1,75 @@
+package com.classync.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 讨论发送限流：每个用户在每个课堂一个令牌桶
+ * 桶容量允许短时间连发几条，之后按固定速率恢复；单个学生刷屏不会挤占其他人的广播
+ */
+@Component
+public class DiscussionRateLimiter {
+
+    @Value("${discussion.rate-limit.burst:5}")
+    private int burst;
+
+    @Value("${discussion.rate-limit.per-second:1.0}")
+    private double perSecond;
+
+    private final Map<BucketKey, Bucket> buckets = new ConcurrentHashMap<>();
+
+    /**
+     * 取一个令牌，桶已空时返回 false
+     */
+    public boolean tryAcquire(Long userId, Long classroomId) {
+        Bucket bucket = buckets.computeIfAbsent(new BucketKey(userId, classroomId), key -> new Bucket(burst));
+        return bucket.tryAcquire(System.nanoTime());
+    }
+
+    /**
+     * 移除已经补满的桶（补满后与新建的桶等价）
+     */
+    @Scheduled(fixedDelayString = "${classroom.live-state.evict-interval-ms:60000}")
+    public void evictFull() {
+        long now = System.nanoTime();
+        buckets.values().removeIf(bucket -> bucket.isFull(now));
+    }
+
+    private record BucketKey(Long userId, Long classroomId) {
+    }
+
+    private class Bucket {
+        private double tokens;
+        private long lastRefillNanos;
+
+        Bucket(int tokens) {
+            this.tokens = tokens;
+            this.lastRefillNanos = System.nanoTime();
+        }
+
+        synchronized boolean tryAcquire(long now) {
+            refill(now);
+            if (tokens < 1) {
+                return false;
+            }
+            tokens--;
+            return true;
+        }
+
+        synchronized boolean isFull(long now) {
+            refill(now);
+            return tokens >= burst;
+        }
+
+        private void refill(long now) {
+            double elapsedSeconds = (now - lastRefillNanos) / (double) TimeUnit.SECONDS.toNanos(1);
+            tokens = Math.min(burst, tokens + elapsedSeconds * perSecond);
+            lastRefillNanos = now;
+        }
+    }
+}
@@ -2,34 +2,181 @@ package com.classync.service;
 
 import com.classync.dto.DiscussionWithUserDTO;
 import com.classync.entity.Discussion;
-import com.classync.entity.User;
 import com.classync.repository.DiscussionRepository;
-import com.classync.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * 课堂讨论
+ * 每个课堂在内存中保留最近的若干条讨论（已解析用户名和被回复者、已格式化时间），
+ * 新讨论创建时写入；增量读取（since）在缓冲覆盖范围内不访问数据库且不加锁，
+ * 超出范围的历史仍从数据库读取。增量读取只返回连续的 ID 前缀，保存中的讨论之后的 ID 等它完成后才返回
+ */
 @Service
 @RequiredArgsConstructor
 public class DiscussionService {
     
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final String ANONYMOUS_NAME = "匿名用户";
+    private static final String UNKNOWN_NAME = "未知用户";
+    
     private final DiscussionRepository discussionRepository;
-    private final UserRepository userRepository;
+    private final UserNameCache userNameCache;
+    private final ClassroomLiveStateService liveStateService;
+    private final DiscussionRateLimiter rateLimiter;
+    private final ApplicationEventPublisher applicationEventPublisher;
+    
+    @Value("${discussion.recent-buffer.capacity:200}")
+    private int recentCapacity;
     
+    private final Map<Long, RecentDiscussions> recent = new ConcurrentHashMap<>();
+    
+    /**
+     * 保存新讨论并广播给课堂（提交后由服务端发出，客户端不再自行转发）
+     *
+     * @throws RateLimitExceededException 该用户在该课堂发送过于频繁
+     */
     public Discussion createDiscussion(Discussion discussion) {
-        return discussionRepository.save(discussion);
+        if (!rateLimiter.tryAcquire(discussion.getUserId(), discussion.getClassroomId())) {
+            throw new RateLimitExceededException("Discussion rate limit exceeded for user " + discussion.getUserId()
+                    + " in classroom " + discussion.getClassroomId());
+        }
+        // 保存前登记，保存期间更大的 ID 不会越过这条被读到；缓冲在登记前装入，不会漏掉这条
+        RecentDiscussions buffer = buffer(discussion.getClassroomId());
+        long ticket = buffer.begin();
+        DiscussionWithUserDTO dto = null;
+        try {
+            Discussion saved = discussionRepository.save(discussion);
+            dto = toDTOs(List.of(saved)).get(0);
+            buffer.complete(ticket, dto);
+            applicationEventPublisher.publishEvent(new DiscussionCreatedEvent(saved.getClassroomId(), dto));
+            return saved;
+        } finally {
+            if (dto == null) {
+                buffer.complete(ticket, null);
+            }
+        }
+    }
+    
+    /**
+     * 获取 ID 大于 lastId 的讨论（按 ID 正序）
+     * 在最近讨论缓冲的覆盖范围内直接返回，否则从数据库读取
+     */
+    public List<DiscussionWithUserDTO> getDiscussionsSince(Long classroomId, long lastId) {
+        RecentDiscussions buffer = buffer(classroomId);
+        List<DiscussionWithUserDTO> cached = buffer.since(lastId);
+        if (cached != null) {
+            return cached;
+        }
+        // 数据库中可能已有保存中讨论之后的 ID，同样只返回连续的部分
+        long visibleUpTo = buffer.visibleUpTo();
+        return toDTOs(discussionRepository.findByClassroomIdAndIdGreaterThanOrderByIdAsc(
+                        classroomId, lastId, Limit.unlimited()).stream()
+                .filter(discussion -> discussion.getId() <= visibleUpTo)
+                .toList());
+    }
+    
+    /**
+     * 移除已结束或删除的课堂的讨论缓冲
+     */
+    @Scheduled(fixedDelayString = "${classroom.live-state.evict-interval-ms:60000}")
+    public void evictUnloaded() {
+        recent.keySet().removeIf(classroomId -> !liveStateService.isLoaded(classroomId));
+    }
+    
+    private RecentDiscussions buffer(Long classroomId) {
+        RecentDiscussions buffer = recent.get(classroomId);
+        if (buffer != null) {
+            return buffer;
+        }
+        // 在映射锁之外查询数据库，并发加载时以先放入的为准。创建讨论在保存前取得放入后的缓冲并登记，
+        // 加载查询之后保存的讨论都会写入这个缓冲，不会因为没有在映射锁内加载而漏掉
+        RecentDiscussions loaded = loadRecent(classroomId);
+        RecentDiscussions existing = recent.putIfAbsent(classroomId, loaded);
+        return existing != null ? existing : loaded;
+    }
+    
+    private RecentDiscussions loadRecent(Long classroomId) {
+        List<DiscussionWithUserDTO> latest = new ArrayList<>(toDTOs(discussionRepository
+                .findByClassroomIdAndIdLessThanOrderByIdDesc(classroomId, Long.MAX_VALUE, Limit.of(recentCapacity))));
+        Collections.reverse(latest);
+        // 不足容量说明已包含课堂的全部讨论
+        return new RecentDiscussions(recentCapacity, latest, latest.size() < recentCapacity);
     }
     
     public List<DiscussionWithUserDTO> getDiscussionsByClassroomId(Long classroomId) {
-        List<Discussion> discussions = discussionRepository.findByClassroomIdOrderByCreatedAtAsc(classroomId);
-        List<DiscussionWithUserDTO> result = new ArrayList<>();
+        return toDTOs(discussionRepository.findByClassroomIdOrderByCreatedAtAsc(classroomId));
+    }
+    
+    /**
+     * 游标分页读取讨论
+     * 正序时返回 ID 大于 afterId 的讨论；newestFirst 时按最新在前返回 ID 小于 afterId 的讨论，
+     * afterId 为空表示从头（或最新一条）开始。下一页以本页最后一条的 ID 作为 afterId
+     */
+    public List<DiscussionWithUserDTO> getDiscussionPage(Long classroomId, Long afterId, int limit, boolean newestFirst) {
+        List<Discussion> page = newestFirst
+                ? discussionRepository.findByClassroomIdAndIdLessThanOrderByIdDesc(
+                        classroomId, afterId == null ? Long.MAX_VALUE : afterId, Limit.of(limit))
+                : discussionRepository.findByClassroomIdAndIdGreaterThanOrderByIdAsc(
+                        classroomId, afterId == null ? 0L : afterId, Limit.of(limit));
+        return toDTOs(page);
+    }
+    
+    /**
+     * 组装 DTO：被回复的讨论用一次批量查询取出，用户名从缓存批量获取（未命中的用一次查询加载），
+     * 查询次数与讨论条数无关
+     */
+    private List<DiscussionWithUserDTO> toDTOs(List<Discussion> discussions) {
+        Map<Long, Discussion> byId = new HashMap<>();
+        for (Discussion discussion : discussions) {
+            byId.put(discussion.getId(), discussion);
+        }
+        
+        // 被回复的讨论（不在本页中的批量查询）
+        Set<Long> missingReplyTargets = new HashSet<>();
+        for (Discussion discussion : discussions) {
+            Long replyToId = discussion.getReplyToId();
+            if (replyToId != null && !byId.containsKey(replyToId)) {
+                missingReplyTargets.add(replyToId);
+            }
+        }
+        Map<Long, Discussion> replyTargets = new HashMap<>(byId);
+        if (!missingReplyTargets.isEmpty()) {
+            for (Discussion target : discussionRepository.findAllById(missingReplyTargets)) {
+                replyTargets.put(target.getId(), target);
+            }
+        }
         
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+        // 需要显示名字的用户（匿名讨论不查询）
+        Set<Long> userIds = new HashSet<>();
+        for (Discussion discussion : discussions) {
+            if (!discussion.getIsAnonymous()) {
+                userIds.add(discussion.getUserId());
+            }
+            Discussion replyTo = discussion.getReplyToId() == null ? null : replyTargets.get(discussion.getReplyToId());
+            if (replyTo != null && !replyTo.getIsAnonymous()) {
+                userIds.add(replyTo.getUserId());
+            }
+        }
+        Map<Long, String> userNames = userIds.isEmpty() ? Map.of() : userNameCache.getAll(userIds);
         
+        List<DiscussionWithUserDTO> result = new ArrayList<>(discussions.size());
         for (Discussion discussion : discussions) {
             DiscussionWithUserDTO dto = new DiscussionWithUserDTO();
             dto.setId(discussion.getId());
@@ -38,27 +185,14 @@ public class DiscussionService {
             dto.setContent(discussion.getContent());
             dto.setReplyToId(discussion.getReplyToId());
             dto.setIsAnonymous(discussion.getIsAnonymous());
-            dto.setCreatedAt(discussion.getCreatedAt().format(formatter));
-            
-            // 获取用户名
-            if (discussion.getIsAnonymous()) {
-                dto.setUserName("匿名用户");
-            } else {
-                Optional<User> userOpt = userRepository.findById(discussion.getUserId());
-                dto.setUserName(userOpt.map(User::getName).orElse("未知用户"));
-            }
+            dto.setCreatedAt(discussion.getCreatedAt().format(FORMATTER));
+            dto.setUserName(displayName(discussion, userNames));
             
             // 获取被回复者名称
             if (discussion.getReplyToId() != null) {
-                Optional<Discussion> replyToOpt = discussionRepository.findById(discussion.getReplyToId());
-                if (replyToOpt.isPresent()) {
-                    Discussion replyTo = replyToOpt.get();
-                    if (replyTo.getIsAnonymous()) {
-                        dto.setReplyToName("匿名用户");
-                    } else {
-                        Optional<User> replyToUserOpt = userRepository.findById(replyTo.getUserId());
-                        dto.setReplyToName(replyToUserOpt.map(User::getName).orElse("未知用户"));
-                    }
+                Discussion replyTo = replyTargets.get(discussion.getReplyToId());
+                if (replyTo != null) {
+                    dto.setReplyToName(displayName(replyTo, userNames));
                 }
             }
             
@@ -67,5 +201,114 @@ public class DiscussionService {
         
         return result;
     }
+    
+    private static String displayName(Discussion discussion, Map<Long, String> userNames) {
+        if (discussion.getIsAnonymous()) {
+            return ANONYMOUS_NAME;
+        }
+        return userNames.getOrDefault(discussion.getUserId(), UNKNOWN_NAME);
+    }
+    
+    /**
+     * 单个课堂的最近讨论：写入时复制整个窗口（按 ID 升序），读取只读一次 volatile 引用，不加锁。
+     * 并发创建时 ID 可能乱序到达：保存中的讨论登记了开始时已知的最大 ID，它得到的 ID 一定更大，
+     * 所以读取只返回不超过所有登记值的讨论，保证返回的是连续前缀，轮询方不会因为先读到较大的 ID 而跳过较小的
+     */
+    private static class RecentDiscussions {
+        private final int capacity;
+        // 保存中的讨论：登记值 -> 数量
+        private final TreeMap<Long, Integer> pending = new TreeMap<>();
+        private long highestId;
+        private volatile Window window;
+        
+        RecentDiscussions(int capacity, List<DiscussionWithUserDTO> items, boolean complete) {
+            this.capacity = Math.max(capacity, 1);
+            this.highestId = items.isEmpty() ? 0 : items.get(items.size() - 1).getId();
+            this.window = new Window(items.toArray(new DiscussionWithUserDTO[0]), complete, Long.MAX_VALUE);
+        }
+        
+        /**
+         * 开始保存一条讨论，返回登记值，保存结束后必须调用 complete
+         */
+        synchronized long begin() {
+            long ticket = highestId;
+            pending.merge(ticket, 1, Integer::sum);
+            publish(window.items(), window.complete());
+            return ticket;
+        }
+        
+        /**
+         * 结束保存：dto 为空表示保存失败，只撤销登记
+         */
+        synchronized void complete(long ticket, DiscussionWithUserDTO dto) {
+            pending.computeIfPresent(ticket, (key, count) -> count == 1 ? null : count - 1);
+            if (dto == null) {
+                publish(window.items(), window.complete());
+                return;
+            }
+            highestId = Math.max(highestId, dto.getId());
+            Window current = window;
+            int index = indexAfter(current.items(), dto.getId() - 1);
+            if (index < current.items().length && current.items()[index].getId().equals(dto.getId())) {
+                publish(current.items(), current.complete());
+                return;
+            }
+            // 按 ID 插入到对应位置
+            DiscussionWithUserDTO[] items = new DiscussionWithUserDTO[current.items().length + 1];
+            System.arraycopy(current.items(), 0, items, 0, index);
+            items[index] = dto;
+            System.arraycopy(current.items(), index, items, index + 1, current.items().length - index);
+            if (items.length > capacity) {
+                publish(Arrays.copyOfRange(items, items.length - capacity, items.length), false);
+            } else {
+                publish(items, current.complete());
+            }
+        }
+        
+        /**
+         * 可以返回的最大 ID：没有保存中的讨论时不限
+         */
+        long visibleUpTo() {
+            return window.visibleUpTo();
+        }
+        
+        /**
+         * 返回 ID 大于 lastId 且不超过可见上限的讨论；缓冲不能保证覆盖 lastId 之后的全部讨论时返回 null
+         */
+        List<DiscussionWithUserDTO> since(long lastId) {
+            Window current = window;
+            DiscussionWithUserDTO[] items = current.items();
+            int index = indexAfter(items, lastId);
+            if (index == 0 && !current.complete()) {
+                return null;
+            }
+            int end = Math.max(index, indexAfter(items, current.visibleUpTo()));
+            return Arrays.asList(Arrays.copyOfRange(items, index, end));
+        }
+        
+        private void publish(DiscussionWithUserDTO[] items, boolean complete) {
+            window = new Window(items, complete, pending.isEmpty() ? Long.MAX_VALUE : pending.firstKey());
+        }
+        
+        // 第一个 ID 大于 lastId 的位置
+        private static int indexAfter(DiscussionWithUserDTO[] items, long lastId) {
+            int low = 0;
+            int high = items.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (items[mid].getId() <= lastId) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+        
+        /**
+         * 不可变窗口；complete 表示包含课堂的全部讨论（从未淘汰过），visibleUpTo 为可以返回的最大 ID
+         */
+        private record Window(DiscussionWithUserDTO[] items, boolean complete, long visibleUpTo) {
+        }
+    }
 }
-
@@ -4,39 +4,267 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
 
+/**
+ * 上传文件存储（按内容寻址）
+ * 上传内容经 NIO 通道以固定大小的缓冲区直接写入磁盘，不在堆上缓存整个文件；
+ * 写入的同时计算 SHA-256，客户端提供摘要时据此校验完整性。
+ * 文件以 "{SHA-256}.{扩展名}" 命名，内容相同的上传共用同一个文件，课堂通过 pdfPath 引用，
+ * 不再被引用的文件由 StorageSweeper 回收。此前以 UUID 命名的文件继续可用
+ */
 @Service
 public class FileService {
-    
+
+    private static final Pattern SAFE_FILENAME = Pattern.compile("^[A-Za-z0-9_-][A-Za-z0-9._-]*$");
+    private static final Pattern CONTENT_NAME = Pattern.compile("^([0-9a-f]{64})(\\.[a-z0-9]+)?$");
+    private static final Pattern SHA256_HEX = Pattern.compile("^[0-9a-fA-F]{64}$");
+
     @Value("${upload.path}")
     private String uploadPath;
-    
-    public String uploadFile(MultipartFile file) throws IOException {
-        // 创建上传目录
-        File uploadDir = new File(uploadPath);
-        if (!uploadDir.exists()) {
-            uploadDir.mkdirs();
-        }
-        
-        // 生成唯一文件名
-        String originalFilename = file.getOriginalFilename();
-        String extension = "";
-        if (originalFilename != null && originalFilename.contains(".")) {
-            extension = originalFilename.substring(originalFilename.lastIndexOf("."));
-        }
-        String filename = UUID.randomUUID().toString() + extension;
-        
-        // 保存文件
-        Path filePath = Paths.get(uploadPath, filename);
-        Files.write(filePath, file.getBytes());
-        
-        return filename;
+
+    @Value("${upload.buffer-size:65536}")
+    private int bufferSize;
+
+    // 文件名 -> SHA-256，仅用于以 UUID 命名的旧文件，在第一次查询时计算
+    private final Map<String, String> sha256Cache = new ConcurrentHashMap<>();
+
+    // 文件名 -> 最近一次被上传（或命中去重）的时间，由自身监视器保护；回收时跳过宽限期内的文件，
+    // 避免刚保存、尚未写入课堂的文件被当作无引用删除
+    private final Map<String, Long> recentlyStored = new HashMap<>();
+
+    public StoredFile uploadFile(MultipartFile file) throws IOException {
+        return uploadFile(file, null);
+    }
+
+    /**
+     * 流式保存上传文件，expectedSha256 不为空时校验摘要，不一致则删除文件并抛出 IllegalArgumentException
+     */
+    public StoredFile uploadFile(MultipartFile file, String expectedSha256) throws IOException {
+        Path partial = createPartialFile(UUID.randomUUID().toString());
+        MessageDigest digest = newDigest();
+        long size;
+        try (InputStream in = file.getInputStream();
+                ReadableByteChannel source = Channels.newChannel(in);
+                FileChannel target = FileChannel.open(partial, StandardOpenOption.WRITE)) {
+            size = transfer(source, target, digest);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(partial);
+            throw e;
+        }
+        return store(partial, file.getOriginalFilename(), size, digest, expectedSha256);
+    }
+
+    /**
+     * 从通道读取并写入文件当前位置，同时更新摘要，返回写入的字节数。
+     * 中途失败时文件截断到最后一个完整写入并计入摘要的位置，调用方可从文件末尾继续
+     */
+    public long transfer(ReadableByteChannel source, FileChannel target, MessageDigest digest) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(bufferSize);
+        long start = target.position();
+        long committed = start;
+        try {
+            while (source.read(buffer) >= 0) {
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    target.write(buffer);
+                }
+                digest.update(buffer.array(), 0, buffer.limit());
+                committed = target.position();
+                buffer.clear();
+            }
+        } catch (IOException e) {
+            target.truncate(committed);
+            throw e;
+        }
+        return committed - start;
+    }
+
+    /**
+     * 在上传目录下的 .partial 中创建（或复用）未完成的文件
+     */
+    public Path createPartialFile(String id) throws IOException {
+        Path dir = Paths.get(uploadPath, ".partial");
+        Files.createDirectories(dir);
+        Path partial = dir.resolve(id + ".part");
+        if (!Files.exists(partial)) {
+            Files.createFile(partial);
+        }
+        return partial;
+    }
+
+    /**
+     * 校验摘要后把未完成的文件保存为 "{SHA-256}.{扩展名}"；
+     * 相同内容的文件已存在时删除未完成的文件，直接复用已有文件（duplicate 为 true）
+     */
+    public StoredFile store(Path partial, String originalFilename, long size, MessageDigest digest,
+            String expectedSha256) throws IOException {
+        String sha256 = HexFormat.of().formatHex(digest.digest());
+        if (expectedSha256 != null && !expectedSha256.isBlank() && !expectedSha256.equalsIgnoreCase(sha256)) {
+            Files.deleteIfExists(partial);
+            throw new IllegalArgumentException("文件校验失败: 期望 " + expectedSha256 + "，实际 " + sha256);
+        }
+
+        String filename = sha256 + extensionOf(originalFilename);
+        Path target = Paths.get(uploadPath, filename);
+        synchronized (recentlyStored) {
+            boolean duplicate = Files.exists(target);
+            if (duplicate) {
+                Files.delete(partial);
+                System.out.println("[FileService] Duplicate upload of " + filename + ", reusing stored file");
+            } else {
+                Files.move(partial, target, StandardCopyOption.ATOMIC_MOVE);
+            }
+            recentlyStored.put(filename, System.currentTimeMillis());
+            return new StoredFile(filename, size, sha256, duplicate);
+        }
+    }
+
+    /**
+     * 按摘要查找已保存的相同内容，存在时不必再传输文件内容；不存在时返回 null
+     */
+    public StoredFile findExisting(String sha256, String originalFilename) throws IOException {
+        if (sha256 == null || !SHA256_HEX.matcher(sha256).matches()) {
+            return null;
+        }
+        String filename = sha256.toLowerCase(Locale.ROOT) + extensionOf(originalFilename);
+        Path target = Paths.get(uploadPath, filename);
+        synchronized (recentlyStored) {
+            if (!Files.isRegularFile(target)) {
+                return null;
+            }
+            recentlyStored.put(filename, System.currentTimeMillis());
+            return new StoredFile(filename, Files.size(target), sha256.toLowerCase(Locale.ROOT), true);
+        }
     }
-}
 
+    /**
+     * 上传目录下的全部正式文件（不含 .partial 等内部目录）
+     */
+    public List<String> listStoredFiles() throws IOException {
+        List<String> filenames = new ArrayList<>();
+        try (Stream<Path> files = Files.list(Paths.get(uploadPath))) {
+            files.filter(Files::isRegularFile)
+                    .map(file -> file.getFileName().toString())
+                    .filter(name -> SAFE_FILENAME.matcher(name).matches())
+                    .forEach(filenames::add);
+        } catch (NoSuchFileException e) {
+            return filenames;
+        }
+        return filenames;
+    }
+
+    /**
+     * 删除不再被引用的文件；宽限期内刚保存或命中去重的文件不删除（其课堂可能尚未保存），返回是否已删除
+     */
+    public boolean deleteUnclaimed(String filename, long graceMs) throws IOException {
+        Path file = resolve(filename);
+        if (file == null) {
+            return false;
+        }
+        synchronized (recentlyStored) {
+            Long storedAt = recentlyStored.get(filename);
+            long now = System.currentTimeMillis();
+            if (storedAt != null && now - storedAt < graceMs) {
+                return false;
+            }
+            if (now - Files.getLastModifiedTime(file).toMillis() < graceMs) {
+                // 重启后内存记录丢失，以修改时间兜底
+                return false;
+            }
+            recentlyStored.remove(filename);
+            sha256Cache.remove(filename);
+            return Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * 按文件名定位已上传的文件，文件名不合法（含路径分隔符或以 . 开头）或文件不存在时返回 null
+     */
+    public Path resolve(String filename) {
+        if (filename == null || !SAFE_FILENAME.matcher(filename).matches()) {
+            return null;
+        }
+        Path file = Paths.get(uploadPath, filename);
+        return Files.isRegularFile(file) ? file : null;
+    }
+
+    /**
+     * 已上传文件的 SHA-256（十六进制），文件不存在时返回 null
+     */
+    public String sha256Of(String filename) throws IOException {
+        Matcher matcher = CONTENT_NAME.matcher(filename);
+        if (matcher.matches()) {
+            return resolve(filename) != null ? matcher.group(1) : null;
+        }
+        String cached = sha256Cache.get(filename);
+        if (cached != null) {
+            return cached;
+        }
+        Path file = resolve(filename);
+        if (file == null) {
+            return null;
+        }
+        MessageDigest digest = newDigest();
+        ByteBuffer buffer = ByteBuffer.allocate(bufferSize);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+        String sha256 = HexFormat.of().formatHex(digest.digest());
+        sha256Cache.put(filename, sha256);
+        return sha256;
+    }
+
+    /**
+     * 原文件名的扩展名（小写，含点），不是字母数字时返回空串
+     */
+    private static String extensionOf(String originalFilename) {
+        if (originalFilename == null || !originalFilename.contains(".")) {
+            return "";
+        }
+        String extension = originalFilename.substring(originalFilename.lastIndexOf(".") + 1).toLowerCase(Locale.ROOT);
+        return extension.matches("[a-z0-9]{1,10}") ? "." + extension : "";
+    }
+
+    public static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * 已保存的文件：上传目录下的文件名、字节数和 SHA-256（十六进制），duplicate 表示复用了已有的相同文件
+     */
+    public record StoredFile(String filename, long size, String sha256, boolean duplicate) {
+    }
+}
@@ -1,81 +1,62 @@
 package com.classync.service;
 
 import com.classync.entity.PageLock;
+import com.classync.repository.ClassroomPageLocksRepository;
 import com.classync.repository.PageLockRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
-
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.UnaryOperator;
+
+/**
+ * 页面锁定服务
+ * 每个课堂的锁定状态以 PageLockSet（位图）常驻内存，查询不访问数据库；
+ * 修改时整段置位后把区间编码以一条 MERGE 写入该课堂的一行 classroom_page_locks；
+ * 批量修改在提交后广播一次 PAGE_LOCK_BATCH（单页切换仍由主持人端广播 PAGE_LOCK_UPDATE）
+ */
 @Service
 @RequiredArgsConstructor
 public class PageLockService {
 
+    private final ClassroomPageLocksRepository classroomPageLocksRepository;
     private final PageLockRepository pageLockRepository;
+    private final ClassroomLiveStateService liveStateService;
+    private final ApplicationEventPublisher applicationEventPublisher;
+
+    private final Map<Long, Locks> locks = new ConcurrentHashMap<>();
 
     /**
      * 获取课堂的所有页面锁定状态
      */
-    public Map<Integer, Boolean> getPageLocksByClassroom(Long classroomId) {
-        List<PageLock> locks = pageLockRepository.findByClassroomId(classroomId);
-        return locks.stream()
-                .collect(Collectors.toMap(
-                        PageLock::getPageNumber,
-                        PageLock::getIsLocked));
+    public PageLockSet getPageLocksByClassroom(Long classroomId) {
+        return locks(classroomId).current;
     }
 
     /**
-     * 切换单个页面的锁定状态
+     * 检查页面是否被锁定
      */
-    @Transactional
-    public PageLock togglePageLock(Long classroomId, Integer pageNumber) {
-        System.out.println("[PageLockService] Toggling lock for classroom=" + classroomId + ", page=" + pageNumber);
-
-        PageLock lock = pageLockRepository
-                .findByClassroomIdAndPageNumber(classroomId, pageNumber)
-                .orElseGet(() -> {
-                    System.out.println("[PageLockService] Creating new PageLock record");
-                    PageLock newLock = new PageLock();
-                    newLock.setClassroomId(classroomId);
-                    newLock.setPageNumber(pageNumber);
-                    newLock.setIsLocked(false);
-                    System.out.println("[PageLockService] New lock created: " + newLock);
-                    return newLock;
-                });
-
-        System.out.println("[PageLockService] Current lock state: " + lock);
-        System.out.println("[PageLockService] Current isLocked value: " + lock.getIsLocked());
-
-        Boolean newState = !lock.getIsLocked();
-        System.out.println("[PageLockService] Setting new state to: " + newState);
-        lock.setIsLocked(newState);
-
-        System.out.println("[PageLockService] Saving lock: " + lock);
-        PageLock saved = pageLockRepository.save(lock);
-        System.out.println("[PageLockService] Lock saved successfully: " + saved);
-
-        return saved;
+    public boolean isPageLocked(Long classroomId, Integer pageNumber) {
+        return pageNumber != null && locks(classroomId).current.isLocked(pageNumber);
     }
 
     /**
-     * 设置单个页面的锁定状态
+     * 切换单个页面的锁定状态，返回切换后的状态
      */
     @Transactional
-    public PageLock setPageLock(Long classroomId, Integer pageNumber, Boolean isLocked) {
-        PageLock lock = pageLockRepository
-                .findByClassroomIdAndPageNumber(classroomId, pageNumber)
-                .orElseGet(() -> {
-                    PageLock newLock = new PageLock();
-                    newLock.setClassroomId(classroomId);
-                    newLock.setPageNumber(pageNumber);
-                    return newLock;
-                });
-
-        lock.setIsLocked(isLocked);
-        return pageLockRepository.save(lock);
+    public boolean togglePageLock(Long classroomId, Integer pageNumber) {
+        System.out.println("[PageLockService] Toggling lock for classroom=" + classroomId + ", page=" + pageNumber);
+        PageLockSet updated = update(classroomId, set -> set.with(pageNumber, !set.isLocked(pageNumber))).after();
+        boolean isLocked = updated.isLocked(pageNumber);
+        System.out.println("[PageLockService] Page " + pageNumber + " isLocked=" + isLocked);
+        return isLocked;
     }
 
     /**
@@ -83,40 +64,131 @@ public class PageLockService {
      */
     @Transactional
     public void lockPagesFrom(Long classroomId, Integer fromPage, Integer totalPages) {
-        for (int page = fromPage; page <= totalPages; page++) {
-            setPageLock(classroomId, page, true);
-        }
+        publishBatch(classroomId, update(classroomId, set -> set.withRange(fromPage, totalPages, true)));
     }
 
     /**
-     * 检查页面是否被锁定
+     * 一次锁定或解锁多个页面区间（如 [[5,9],[20,40]]），返回状态实际变化的页数
      */
-    public boolean isPageLocked(Long classroomId, Integer pageNumber) {
-        return pageLockRepository
-                .findByClassroomIdAndPageNumber(classroomId, pageNumber)
-                .map(PageLock::getIsLocked)
-                .orElse(false);
+    @Transactional
+    public int setPageRanges(Long classroomId, List<int[]> ranges, boolean isLocked) {
+        Change change = publishBatch(classroomId, update(classroomId, set -> set.withRanges(ranges, isLocked)));
+        return Math.abs(change.after().count() - change.before().count());
     }
 
     /**
-     * 批量解锁从指定页面开始的所有页面（一次 SQL）
+     * 批量解锁从指定页面开始的所有页面，返回实际解锁的页数
      */
     @Transactional
     public int unlockFromPage(Long classroomId, Integer fromPage) {
         System.out.println("[PageLockService] Batch unlocking from page " + fromPage + " for classroom " + classroomId);
-        int count = pageLockRepository.unlockFromPage(classroomId, fromPage);
+        Change change = publishBatch(classroomId, update(classroomId, set -> set.unlockFrom(fromPage)));
+        int count = change.before().count() - change.after().count();
         System.out.println("[PageLockService] Unlocked " + count + " pages");
         return count;
     }
 
     /**
-     * 批量解锁所有页面（一次 SQL）
+     * 批量解锁所有页面，返回实际解锁的页数
      */
     @Transactional
     public int unlockAllPages(Long classroomId) {
         System.out.println("[PageLockService] Batch unlocking all pages for classroom " + classroomId);
-        int count = pageLockRepository.unlockAllPages(classroomId);
+        Change change = publishBatch(classroomId, update(classroomId, set -> PageLockSet.EMPTY));
+        int count = change.before().count();
         System.out.println("[PageLockService] Unlocked " + count + " pages");
         return count;
     }
+
+    /**
+     * 丢弃课堂的锁定状态，下次读取时从数据库重新加载（其他节点修改锁定后调用，修改在广播前已提交）
+     */
+    public void reload(Long classroomId) {
+        locks.remove(classroomId);
+        liveStateService.invalidatePageLocks(classroomId);
+    }
+
+    /**
+     * 移除已结束或删除的课堂的锁定状态
+     */
+    @Scheduled(fixedDelayString = "${classroom.live-state.evict-interval-ms:60000}")
+    public void evictUnloaded() {
+        locks.keySet().removeIf(classroomId -> !liveStateService.isLoaded(classroomId));
+    }
+
+    /**
+     * 在课堂监视器内计算新状态并写入编码行；内存状态立即生效，事务回滚时移除以便重新加载
+     */
+    private Change update(Long classroomId, UnaryOperator<PageLockSet> operation) {
+        Locks entry = locks(classroomId);
+        synchronized (entry) {
+            PageLockSet before = entry.current;
+            PageLockSet after = operation.apply(before);
+            if (after == before) {
+                return new Change(before, after);
+            }
+
+            classroomPageLocksRepository.upsert(classroomId, after.encode());
+
+            entry.current = after;
+            evictOnRollback(classroomId, entry);
+            liveStateService.invalidatePageLocks(classroomId);
+            return new Change(before, after);
+        }
+    }
+
+    /**
+     * 状态有变化时发布批量修改事件，由 PageLockBroadcaster 在提交后广播
+     */
+    private Change publishBatch(Long classroomId, Change change) {
+        if (change.after() != change.before()) {
+            applicationEventPublisher.publishEvent(new PageLocksChangedEvent(classroomId));
+        }
+        return change;
+    }
+
+    private Locks locks(Long classroomId) {
+        Locks entry = locks.get(classroomId);
+        if (entry != null) {
+            return entry;
+        }
+        return locks.computeIfAbsent(classroomId, id -> new Locks(load(id)));
+    }
+
+    private PageLockSet load(Long classroomId) {
+        return classroomPageLocksRepository.findById(classroomId)
+                .map(row -> PageLockSet.decode(row.getLockedRanges()))
+                .orElseGet(() -> PageLockSet.of(pageLockRepository.findByClassroomId(classroomId).stream()
+                        .filter(PageLock::getIsLocked)
+                        .map(PageLock::getPageNumber)
+                        .toList()));
+    }
+
+    private void evictOnRollback(Long classroomId, Locks entry) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    locks.remove(classroomId, entry);
+                }
+            }
+        });
+    }
+
+    private record Change(PageLockSet before, PageLockSet after) {
+    }
+
+    /**
+     * 单个课堂的当前锁定集合，写入由自身监视器串行化，读取直接取 volatile 引用
+     */
+    private static class Locks {
+        private volatile PageLockSet current;
+
+        Locks(PageLockSet current) {
+            this.current = current;
+        }
+    }
 }
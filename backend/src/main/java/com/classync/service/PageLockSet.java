@@ -0,0 +1,183 @@
+package com.classync.service;
+
+import com.fasterxml.jackson.annotation.JsonValue;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * 单个课堂的页面锁定集合（页码从 1 开始，第 n 位表示第 n 页）
+ * 范围锁定 / 解锁按 long 字整段置位，查询为 O(1)。
+ * 实例发布后不再修改：修改操作返回新的集合，读取方无需加锁。
+ * 持久化和 JSON 都使用区间列表，例如 "1-5,10,20-300" 与 [[1,5],[10,10],[20,300]]。
+ * 页码上限为 MAX_PAGE，位图最多约 1.25 KB，写时复制的开销因此有界
+ */
+public final class PageLockSet {
+
+    /** 支持的最大页码，超出的修改请求直接拒绝 */
+    public static final int MAX_PAGE = 10_000;
+
+    /**
+     * encode() 结果的最大长度：编码中每个页码至多出现一次，且后面至多跟一个分隔符，
+     * 因此不超过 1..MAX_PAGE 各页码的位数加一之和（9×2 + 90×3 + 900×4 + 9000×5 + 6）
+     */
+    public static final int MAX_ENCODED_LENGTH = 48_894;
+
+    public static final PageLockSet EMPTY = new PageLockSet(new BitSet());
+
+    private final BitSet bits;
+
+    private PageLockSet(BitSet bits) {
+        this.bits = bits;
+    }
+
+    public boolean isLocked(int page) {
+        return page > 0 && bits.get(page);
+    }
+
+    /** 已锁定的页数 */
+    public int count() {
+        return bits.cardinality();
+    }
+
+    /**
+     * 设置单页的锁定状态
+     */
+    public PageLockSet with(int page, boolean locked) {
+        checkPage(page);
+        if (bits.get(page) == locked) {
+            return this;
+        }
+        BitSet next = (BitSet) bits.clone();
+        next.set(page, locked);
+        return new PageLockSet(next);
+    }
+
+    /**
+     * 设置 [fromPage, toPage] 闭区间的锁定状态
+     */
+    public PageLockSet withRange(int fromPage, int toPage, boolean locked) {
+        checkPage(fromPage);
+        checkUpperBound(toPage);
+        if (toPage < fromPage) {
+            return this;
+        }
+        BitSet next = (BitSet) bits.clone();
+        next.set(fromPage, toPage + 1, locked);
+        return new PageLockSet(next);
+    }
+
+    /**
+     * 一次设置多个 [起始页, 结束页] 闭区间的锁定状态
+     */
+    public PageLockSet withRanges(List<int[]> ranges, boolean locked) {
+        BitSet next = (BitSet) bits.clone();
+        for (int[] range : ranges) {
+            checkPage(range[0]);
+            checkUpperBound(range[1]);
+            if (range[1] >= range[0]) {
+                next.set(range[0], range[1] + 1, locked);
+            }
+        }
+        return next.equals(bits) ? this : new PageLockSet(next);
+    }
+
+    /**
+     * 解锁 fromPage 及之后的所有页面
+     */
+    public PageLockSet unlockFrom(int fromPage) {
+        int from = Math.max(fromPage, 1);
+        if (bits.nextSetBit(from) < 0) {
+            return this;
+        }
+        BitSet next = (BitSet) bits.clone();
+        next.clear(from, Math.max(next.length(), from));
+        return new PageLockSet(next);
+    }
+
+    /**
+     * 已锁定页面的区间列表，每项为 [起始页, 结束页]
+     */
+    @JsonValue
+    public List<int[]> toRanges() {
+        List<int[]> ranges = new ArrayList<>();
+        for (int start = bits.nextSetBit(1); start >= 0; start = bits.nextSetBit(start)) {
+            int end = bits.nextClearBit(start);
+            ranges.add(new int[] { start, end - 1 });
+            start = end;
+        }
+        return ranges;
+    }
+
+    /**
+     * 编码为持久化使用的区间字符串，如 "1-5,10,20-300"
+     */
+    public String encode() {
+        StringBuilder encoded = new StringBuilder();
+        for (int[] range : toRanges()) {
+            if (encoded.length() > 0) {
+                encoded.append(',');
+            }
+            encoded.append(range[0]);
+            if (range[1] > range[0]) {
+                encoded.append('-').append(range[1]);
+            }
+        }
+        return encoded.toString();
+    }
+
+    /**
+     * 解析 encode() 的结果，空串或 null 表示没有锁定页面；超出 MAX_PAGE 的部分忽略
+     */
+    public static PageLockSet decode(String encoded) {
+        if (encoded == null || encoded.isBlank()) {
+            return EMPTY;
+        }
+        BitSet bits = new BitSet();
+        for (String range : encoded.split(",")) {
+            int dash = range.indexOf('-');
+            int from = Integer.parseInt(range.substring(0, dash < 0 ? range.length() : dash).trim());
+            int to = Math.min(dash < 0 ? from : Integer.parseInt(range.substring(dash + 1).trim()), MAX_PAGE);
+            if (from > MAX_PAGE) {
+                continue;
+            }
+            checkPage(from);
+            if (to >= from) {
+                bits.set(from, to + 1);
+            }
+        }
+        return new PageLockSet(bits);
+    }
+
+    /**
+     * 由已锁定的页码构建（用于导入旧版逐页记录）
+     */
+    public static PageLockSet of(Iterable<Integer> lockedPages) {
+        BitSet bits = new BitSet();
+        for (Integer page : lockedPages) {
+            if (page != null && page > 0 && page <= MAX_PAGE) {
+                bits.set(page);
+            }
+        }
+        return new PageLockSet(bits);
+    }
+
+    private static void checkPage(int page) {
+        if (page < 1) {
+            throw new IllegalArgumentException("页码必须从 1 开始: " + page);
+        }
+        checkUpperBound(page);
+    }
+
+    private static void checkUpperBound(int page) {
+        if (page > MAX_PAGE) {
+            throw new IllegalArgumentException("页码不能超过 " + MAX_PAGE + ": " + page);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "PageLockSet{" + encode() + '}';
+    }
+}
@@ -0,0 +1,7 @@
+package com.classync.service;
+
+/**
+ * 课堂的页面锁定被批量修改，提交后由 WebSocket 层广播一次 PAGE_LOCK_BATCH
+ */
+public record PageLocksChangedEvent(Long classroomId) {
+}
@@ -0,0 +1,377 @@
+package com.classync.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * 课件页面位图缓存
+ * 主讲人浏览器用 pdf.js 把每页渲染一次后上传原图，服务端在后台线程池中缩放为配置的各个宽度并编码为 JPEG，
+ * 写入上传目录下的 .rasters/{文件摘要}/{页码}-{宽度}.jpg；其他客户端直接获取图片，不再各自渲染整份课件。
+ * 以文件内容摘要为键，复制课堂或重复上传同一课件共用同一份位图。
+ * 缓存总大小有上限，超出时按最近访问顺序淘汰；访问顺序只记录在内存中，启动时按文件修改时间恢复
+ */
+@Service
+@RequiredArgsConstructor
+public class PageRasterService {
+
+    private static final Pattern RASTER_NAME = Pattern.compile("^(\\d+)-(\\d+)\\.jpg$");
+    // 解码前检查原图尺寸，防止小文件解码出超大位图
+    private static final long MAX_SOURCE_PIXELS = 4096L * 4096L;
+
+    private final FileService fileService;
+
+    @Value("${upload.path}")
+    private String uploadPath;
+
+    @Value("${pdf.raster.widths:160,320,480}")
+    private int[] widths;
+
+    @Value("${pdf.raster.cache-max-size:512MB}")
+    private DataSize cacheMaxSize;
+
+    @Value("${pdf.raster.max-source-size:20MB}")
+    private DataSize maxSourceSize;
+
+    @Value("${pdf.raster.jpeg-quality:0.85}")
+    private float jpegQuality;
+
+    @Value("${pdf.raster.worker-threads:2}")
+    private int workerThreads;
+
+    @Value("${pdf.raster.queue-capacity:200}")
+    private int queueCapacity;
+
+    // 缓存文件 -> 字节数，按访问顺序排列，由自身监视器保护
+    private final LinkedHashMap<Path, Long> index = new LinkedHashMap<>(256, 0.75f, true);
+    private long totalBytes;
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    public void start() throws IOException {
+        widths = Arrays.stream(widths).filter(width -> width > 0).sorted().distinct().toArray();
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = new ThreadPoolExecutor(workerThreads, workerThreads, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "page-raster-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        loadIndex();
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    public long getMaxSourceBytes() {
+        return maxSourceSize.toBytes();
+    }
+
+    /**
+     * 缓存键（课件文件的 SHA-256），文件不存在时返回 null
+     */
+    public String cacheKey(String filename) throws IOException {
+        return fileService.sha256Of(filename);
+    }
+
+    /**
+     * 已缓存的页面：{ key, widths, pages }，pages 为至少有一个宽度可用的页码
+     */
+    public RasterStatus getStatus(String filename) throws IOException {
+        String key = cacheKey(filename);
+        if (key == null) {
+            return null;
+        }
+        TreeSet<Integer> pages = new TreeSet<>();
+        Path dir = rasterDir(key);
+        if (Files.isDirectory(dir)) {
+            try (Stream<Path> files = Files.list(dir)) {
+                files.forEach(file -> {
+                    Matcher matcher = RASTER_NAME.matcher(file.getFileName().toString());
+                    if (matcher.matches()) {
+                        pages.add(Integer.parseInt(matcher.group(1)));
+                    }
+                });
+            }
+        }
+        return new RasterStatus(key, widths, new ArrayList<>(pages));
+    }
+
+    /**
+     * 提交一页的原图（PNG 或 JPEG），在后台解码、缩放并写入缓存，无法解码的图片只记录日志。
+     * 课件不存在时抛出 IllegalArgumentException，队列已满时抛出 RejectedExecutionException
+     */
+    public void submit(String filename, int pageNumber, byte[] source) throws IOException {
+        String key = cacheKey(filename);
+        if (key == null) {
+            throw new IllegalArgumentException("课件不存在: " + filename);
+        }
+        executor.execute(() -> {
+            long startNanos = System.nanoTime();
+            try {
+                BufferedImage image = decode(source);
+                if (image == null) {
+                    System.err.println("[PageRasterService] Unsupported image for " + key + " page " + pageNumber);
+                    return;
+                }
+                int written = render(key, pageNumber, image);
+                System.out.println("[PageRasterService] Rendered " + written + " widths for " + key.substring(0, 12)
+                        + " page " + pageNumber + " in "
+                        + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos) + "ms");
+            } catch (Exception e) {
+                System.err.println("[PageRasterService] Failed to render " + key + " page " + pageNumber + ": "
+                        + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * 获取不小于 width 的最小已缓存宽度（没有时取最大的），没有任何宽度时返回 null
+     */
+    public Path getRaster(String filename, int pageNumber, int width) throws IOException {
+        String key = cacheKey(filename);
+        if (key == null) {
+            return null;
+        }
+        Path fallback = null;
+        for (int candidate : widths) {
+            Path file = rasterDir(key).resolve(pageNumber + "-" + candidate + ".jpg");
+            if (!touch(file)) {
+                continue;
+            }
+            if (candidate >= width) {
+                return file;
+            }
+            fallback = file;
+        }
+        return fallback;
+    }
+
+    /**
+     * 删除某个课件的全部位图（课件被回收时调用）
+     */
+    public void evictKey(String key) {
+        Path dir = rasterDir(key);
+        synchronized (index) {
+            index.entrySet().removeIf(entry -> {
+                if (!entry.getKey().startsWith(dir)) {
+                    return false;
+                }
+                totalBytes -= entry.getValue();
+                deleteQuietly(entry.getKey());
+                return true;
+            });
+        }
+        deleteQuietly(dir);
+    }
+
+    private static BufferedImage decode(byte[] source) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(new ByteArrayInputStream(source))) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                if ((long) reader.getWidth(0) * reader.getHeight(0) > MAX_SOURCE_PIXELS) {
+                    throw new IOException("原图尺寸过大: " + reader.getWidth(0) + "x" + reader.getHeight(0));
+                }
+                return reader.read(0);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private int render(String key, int pageNumber, BufferedImage source) throws IOException {
+        Path dir = rasterDir(key);
+        Files.createDirectories(dir);
+        int written = 0;
+        BufferedImage current = flatten(source);
+        // 从大到小逐级缩放，每级至多缩小一半，避免一次大比例缩放的锯齿
+        for (int i = widths.length - 1; i >= 0; i--) {
+            int width = widths[i];
+            if (width > source.getWidth() && i > 0) {
+                continue;
+            }
+            current = scaleTo(current, width);
+            Path target = dir.resolve(pageNumber + "-" + width + ".jpg");
+            Path temp = dir.resolve(".tmp-" + UUID.randomUUID());
+            try {
+                writeJpeg(current, temp);
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+            register(target, Files.size(target));
+            written++;
+        }
+        return written;
+    }
+
+    /**
+     * 转为不透明的 RGB，透明区域填充白色
+     */
+    private static BufferedImage flatten(BufferedImage source) {
+        BufferedImage rgb = new BufferedImage(source.getWidth(), source.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = rgb.createGraphics();
+        try {
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, rgb.getWidth(), rgb.getHeight());
+            g.drawImage(source, 0, 0, null);
+        } finally {
+            g.dispose();
+        }
+        return rgb;
+    }
+
+    private static BufferedImage scaleTo(BufferedImage image, int width) {
+        while (image.getWidth() != width) {
+            int next = image.getWidth() > width ? Math.max(width, (image.getWidth() + 1) / 2) : width;
+            int height = Math.max(1, (int) Math.round((double) image.getHeight() * next / image.getWidth()));
+            BufferedImage scaled = new BufferedImage(next, height, BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = scaled.createGraphics();
+            try {
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                g.drawImage(image, 0, 0, next, height, null);
+            } finally {
+                g.dispose();
+            }
+            image = scaled;
+        }
+        return image;
+    }
+
+    private void writeJpeg(BufferedImage image, Path target) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (ImageOutputStream out = ImageIO.createImageOutputStream(target.toFile())) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(jpegQuality);
+            writer.setOutput(out);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    /**
+     * 记录新写入的文件，超出容量时从最久未访问的文件开始淘汰
+     */
+    private void register(Path file, long size) {
+        synchronized (index) {
+            Long previous = index.put(file, size);
+            totalBytes += size - (previous != null ? previous : 0);
+            Iterator<Map.Entry<Path, Long>> it = index.entrySet().iterator();
+            while (totalBytes > cacheMaxSize.toBytes() && it.hasNext()) {
+                Map.Entry<Path, Long> eldest = it.next();
+                if (eldest.getKey().equals(file)) {
+                    continue;
+                }
+                it.remove();
+                totalBytes -= eldest.getValue();
+                deleteQuietly(eldest.getKey());
+            }
+        }
+    }
+
+    /**
+     * 更新访问顺序，文件不在缓存中时返回 false
+     */
+    private boolean touch(Path file) {
+        synchronized (index) {
+            return index.get(file) != null;
+        }
+    }
+
+    private void loadIndex() throws IOException {
+        Path root = Paths.get(uploadPath, ".rasters");
+        if (!Files.isDirectory(root)) {
+            return;
+        }
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(root, 2)) {
+            files = walk.filter(Files::isRegularFile).toList();
+        }
+        List<Path> rasters = new ArrayList<>();
+        for (Path file : files) {
+            if (RASTER_NAME.matcher(file.getFileName().toString()).matches()) {
+                rasters.add(file);
+            } else {
+                deleteQuietly(file);
+            }
+        }
+        rasters.sort(Comparator.comparingLong(PageRasterService::lastModified));
+        for (Path file : rasters) {
+            register(file, Files.size(file));
+        }
+        System.out.println("[PageRasterService] Loaded " + index.size() + " cached rasters (" + totalBytes + " bytes)");
+    }
+
+    private Path rasterDir(String key) {
+        return Paths.get(uploadPath, ".rasters", key);
+    }
+
+    private static long lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            System.err.println("[PageRasterService] Failed to delete " + file + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * 缓存状态：key 为课件摘要（用于图片地址的版本号），widths 为支持的宽度
+     */
+    public record RasterStatus(String key, int[] widths, List<Integer> pages) {
+    }
+}
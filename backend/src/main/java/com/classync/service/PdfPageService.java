@@ -0,0 +1,215 @@
+package com.classync.service;
+
+import com.classync.pdf.PdfException;
+import com.classync.pdf.PdfSplitter;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * 课件分页
+ * 上传完成后在后台线程池中把 PDF 拆分为单页文件，写入上传目录下的 .pages/{文件名}/{页码}.pdf，
+ * 学生端按页获取，锁定的页面在服务端即可拒绝，不必下发整份课件。
+ * 拆分先写入临时目录，完成后整体原子重命名，读取方不会看到拆了一半的结果；
+ * 同一文件同时只拆分一次，启动前上传的课件在第一次按页读取时补拆
+ */
+@Service
+public class PdfPageService {
+
+    @Value("${upload.path}")
+    private String uploadPath;
+
+    @Value("${pdf.pages.worker-threads:2}")
+    private int workerThreads;
+
+    @Value("${pdf.pages.queue-capacity:100}")
+    private int queueCapacity;
+
+    @Value("${pdf.pages.wait-ms:10000}")
+    private long waitMs;
+
+    private final Map<String, CompletableFuture<Integer>> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, Integer> pageCounts = new ConcurrentHashMap<>();
+    private final Set<String> unsplittable = ConcurrentHashMap.newKeySet();
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    public void start() {
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = new ThreadPoolExecutor(workerThreads, workerThreads, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "pdf-pages-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 提交后台拆分，已拆分或正在拆分时直接返回对应结果
+     */
+    public CompletableFuture<Integer> splitAsync(String filename) {
+        Integer pageCount = pageCounts.get(filename);
+        if (pageCount != null) {
+            return CompletableFuture.completedFuture(pageCount);
+        }
+        return inFlight.computeIfAbsent(filename, name -> {
+            CompletableFuture<Integer> future = new CompletableFuture<>();
+            try {
+                executor.execute(() -> {
+                    try {
+                        future.complete(split(name));
+                    } catch (Throwable e) {
+                        future.completeExceptionally(e);
+                    } finally {
+                        inFlight.remove(name, future);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // 队列已满：不记录失败，下次读取时重新提交
+                System.err.println("[PdfPageService] Split queue full, deferring " + name);
+                future.completeExceptionally(e);
+                return null;
+            }
+            return future;
+        });
+    }
+
+    /**
+     * 课件页数；还在拆分时最多等待 wait-ms，超时抛出 TimeoutException，
+     * 无法拆分（文件损坏、加密等）时抛出 PdfException
+     */
+    public int getPageCount(String filename) throws IOException, TimeoutException {
+        Integer pageCount = pageCounts.get(filename);
+        if (pageCount != null) {
+            return pageCount;
+        }
+        if (unsplittable.contains(filename)) {
+            throw new PdfException("课件无法分页: " + filename);
+        }
+        pageCount = existingPageCount(filename);
+        if (pageCount != null) {
+            pageCounts.put(filename, pageCount);
+            return pageCount;
+        }
+        CompletableFuture<Integer> future = splitAsync(filename);
+        if (future == null) {
+            throw new TimeoutException("分页任务排队中");
+        }
+        try {
+            return future.get(waitMs, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RejectedExecutionException) {
+                throw new TimeoutException("分页任务排队中");
+            }
+            throw e.getCause() instanceof IOException io ? io : new IOException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TimeoutException("等待分页被中断");
+        }
+    }
+
+    /**
+     * 单页文件，页码超出范围时返回 null
+     */
+    public Path getPage(String filename, int pageNumber) throws IOException, TimeoutException {
+        int pageCount = getPageCount(filename);
+        if (pageNumber < 1 || pageNumber > pageCount) {
+            return null;
+        }
+        return pagesDir(filename).resolve(pageNumber + ".pdf");
+    }
+
+    /**
+     * 删除文件的单页拆分结果（文件被回收时调用）
+     */
+    public void evict(String filename) {
+        pageCounts.remove(filename);
+        unsplittable.remove(filename);
+        deleteRecursively(pagesDir(filename));
+    }
+
+    private int split(String filename) throws IOException {
+        Integer existing = existingPageCount(filename);
+        if (existing != null) {
+            // 内容相同的重复上传，已拆分过
+            pageCounts.put(filename, existing);
+            return existing;
+        }
+        Path source = Paths.get(uploadPath, filename);
+        Path target = pagesDir(filename);
+        Path temp = target.resolveSibling(filename + ".tmp-" + UUID.randomUUID());
+        long startNanos = System.nanoTime();
+        try {
+            int pageCount = PdfSplitter.split(source, temp);
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            pageCounts.put(filename, pageCount);
+            System.out.println("[PdfPageService] Split " + filename + " into " + pageCount + " pages in "
+                    + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos) + "ms");
+            return pageCount;
+        } catch (PdfException e) {
+            unsplittable.add(filename);
+            System.err.println("[PdfPageService] Cannot split " + filename + ": " + e.getMessage());
+            throw e;
+        } finally {
+            deleteRecursively(temp);
+        }
+    }
+
+    private Integer existingPageCount(String filename) throws IOException {
+        Path dir = pagesDir(filename);
+        if (!Files.isDirectory(dir)) {
+            return null;
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            return (int) files.filter(file -> file.getFileName().toString().endsWith(".pdf")).count();
+        }
+    }
+
+    private Path pagesDir(String filename) {
+        return Paths.get(uploadPath, ".pages", filename);
+    }
+
+    private static void deleteRecursively(Path dir) {
+        if (!Files.exists(dir)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> {
+                try {
+                    Files.deleteIfExists(file);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (IOException | UncheckedIOException e) {
+            System.err.println("[PdfPageService] Failed to delete " + dir + ": " + e.getMessage());
+        }
+    }
+}
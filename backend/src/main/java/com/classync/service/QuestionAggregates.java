@@ -0,0 +1,118 @@
+package com.classync.service;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * 按问题缓存的内存聚合（计数器、已作答用户、词频表等）
+ * 缺失时在映射锁之外从数据库加载，并发加载时以先放入的为准（与 ClassroomLiveStateService.getState 相同），
+ * 慢查询不会阻塞同一桶内的其他问题。加载期间到达的更新先暂存，放入后补记到聚合中；
+ * 聚合自身按答案 ID 去重，同一条答案既被加载又被补记也只计一次
+ *
+ * @param <V> 聚合类型
+ * @param <U> 更新（通常是一条已落库的答案）
+ */
+final class QuestionAggregates<V, U> {
+
+    private final Function<Long, V> loader;
+    private final BiConsumer<V, U> updater;
+    private final Map<Long, V> aggregates = new ConcurrentHashMap<>();
+    private final Map<Long, Queue<U>> loading = new ConcurrentHashMap<>();
+    // 加载期间发生移除时，加载结果可能基于旧数据，只返回给本次调用而不放入缓存
+    private final AtomicLong removals = new AtomicLong();
+
+    /**
+     * @param loader  从数据库加载聚合，问题不存在或不需要聚合时返回 null（不缓存）
+     * @param updater 把一条更新记入聚合
+     */
+    QuestionAggregates(Function<Long, V> loader, BiConsumer<V, U> updater) {
+        this.loader = loader;
+        this.updater = updater;
+    }
+
+    /**
+     * 获取聚合，不存在时加载
+     */
+    V get(Long questionId) {
+        V aggregate = aggregates.get(questionId);
+        if (aggregate != null) {
+            return aggregate;
+        }
+        long removalsBefore = removals.get();
+        Queue<U> pending = loading.computeIfAbsent(questionId, id -> new ConcurrentLinkedQueue<>());
+        V loaded;
+        try {
+            loaded = loader.apply(questionId);
+        } catch (RuntimeException e) {
+            loading.remove(questionId, pending);
+            throw e;
+        }
+        if (loaded == null) {
+            loading.remove(questionId, pending);
+            return null;
+        }
+        V published = loaded;
+        if (removals.get() == removalsBefore) {
+            V existing = aggregates.putIfAbsent(questionId, loaded);
+            if (existing != null) {
+                published = existing;
+            }
+        }
+        // 先放入再移除暂存队列：之后的更新要么直接记入聚合，要么仍能在这里补记
+        loading.remove(questionId, pending);
+        for (U update = pending.poll(); update != null; update = pending.poll()) {
+            updater.accept(published, update);
+        }
+        return published;
+    }
+
+    /**
+     * 已加载的聚合，不触发加载
+     */
+    V peek(Long questionId) {
+        return aggregates.get(questionId);
+    }
+
+    /**
+     * 记录一条更新：已加载的聚合直接记入，正在加载的暂存，其余交给下次加载
+     */
+    void update(Long questionId, U update) {
+        V aggregate = aggregates.get(questionId);
+        if (aggregate != null) {
+            updater.accept(aggregate, update);
+            return;
+        }
+        Queue<U> pending = loading.get(questionId);
+        if (pending == null) {
+            return;
+        }
+        pending.add(update);
+        // 加载方可能已在暂存之前补记完毕，此时聚合已放入，直接记入（重复记入由聚合去重）
+        aggregate = aggregates.get(questionId);
+        if (aggregate != null) {
+            updater.accept(aggregate, update);
+        }
+    }
+
+    void remove(Long questionId) {
+        removals.incrementAndGet();
+        aggregates.remove(questionId);
+    }
+
+    boolean isEmpty() {
+        return aggregates.isEmpty();
+    }
+
+    /**
+     * 已加载的问题 ID 视图，可用于批量移除
+     */
+    Set<Long> questionIds() {
+        return aggregates.keySet();
+    }
+}
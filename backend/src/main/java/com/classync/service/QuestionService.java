@@ -20,6 +20,11 @@ public class QuestionService {
     private final QuestionRepository questionRepository;
     private final QuestionOptionRepository questionOptionRepository;
     private final AnswerRepository answerRepository;
+    private final ClassroomLiveStateService liveStateService;
+    private final AnswerTallyService answerTallyService;
+    private final QuizStatisticsService quizStatisticsService;
+    private final WordFrequencyService wordFrequencyService;
+    private final AnswerMembershipService answerMembershipService;
     
     public List<Question> getQuestionsByClassroomId(Long classroomId) {
         return questionRepository.findByClassroomIdOrderByCreatedAtAsc(classroomId);
@@ -64,6 +69,7 @@ public class QuestionService {
             }
         }
         
+        liveStateService.invalidateQuestions(savedQuestion.getClassroomId());
         return savedQuestion;
     }
     
@@ -100,17 +106,27 @@ public class QuestionService {
             }
         }
         
+        liveStateService.invalidateQuestions(updated.getClassroomId());
+        answerTallyService.invalidateOptions(id);
+        quizStatisticsService.evict(id);
+        wordFrequencyService.evict(id);
         return updated;
     }
     
     @Transactional
     public void deleteQuestion(Long id) {
+        questionRepository.findById(id)
+                .ifPresent(question -> liveStateService.invalidateQuestions(question.getClassroomId()));
         // 先删除关联的答案
         answerRepository.deleteByQuestionId(id);
         // 再删除问题选项
         questionOptionRepository.deleteByQuestionId(id);
         // 最后删除问题本身
         questionRepository.deleteById(id);
+        answerTallyService.evict(id);
+        quizStatisticsService.evict(id);
+        wordFrequencyService.evict(id);
+        answerMembershipService.evict(id);
     }
     
     public Question toggleQuestionOpen(Long id) {
@@ -119,6 +135,7 @@ public class QuestionService {
             Question question = questionOpt.get();
             question.setIsOpen(!question.getIsOpen());
             Question saved = questionRepository.save(question);
+            liveStateService.invalidateQuestions(saved.getClassroomId());
             System.out.println("Toggle question " + id + " to isOpen=" + saved.getIsOpen());
             return saved;
         }
@@ -131,6 +148,7 @@ public class QuestionService {
             Question question = questionOpt.get();
             question.setIsFinished(true);
             questionRepository.save(question);
+            liveStateService.invalidateQuestions(question.getClassroomId());
         }
     }
     
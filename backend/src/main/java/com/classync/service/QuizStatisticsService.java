@@ -0,0 +1,268 @@
+package com.classync.service;
+
+import com.classync.dto.AnswerStatisticsDTO;
+import com.classync.dto.QuizEssayAnswerDTO;
+import com.classync.dto.QuizStatisticsDTO;
+import com.classync.dto.SubQuestionStatisticsDTO;
+import com.classync.entity.Answer;
+import com.classync.entity.Question;
+import com.classync.repository.AnswerRepository;
+import com.classync.repository.QuestionRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 测验题子问题的服务端聚合
+ * 每条测验答案的 JSON 只在提交时解析一次，按子问题累加选项计数并收集问答内容。
+ * 已关闭的测验和已结束课堂的测验定期移除，再次读取时从数据库重建
+ */
+@Service
+@RequiredArgsConstructor
+public class QuizStatisticsService {
+
+    private static final String TYPE_QUIZ = "QUIZ";
+    private static final String TYPE_ESSAY = "ESSAY";
+    private static final String TYPE_MULTIPLE_CHOICE = "MULTIPLE_CHOICE";
+
+    private final AnswerRepository answerRepository;
+    private final QuestionRepository questionRepository;
+    private final ObjectMapper objectMapper;
+    private final ClassroomLiveStateService liveStateService;
+
+    private final QuestionAggregates<QuizTally, Answer> tallies = new QuestionAggregates<>(this::load,
+            (tally, answer) -> tally.add(answer, parseAnswers(answer.getContent())));
+
+    /**
+     * 启动时为开放中的测验从数据库重建聚合
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOpenQuizzes() {
+        for (Question question : questionRepository.findByIsOpenTrue()) {
+            if (TYPE_QUIZ.equals(question.getType())) {
+                tallies.get(question.getId());
+            }
+        }
+    }
+
+    /**
+     * 记录一条已提交的答案（只对已建立聚合的测验生效，其余在首次读取时重建）
+     */
+    public void record(Answer answer) {
+        tallies.update(answer.getQuestionId(), answer);
+    }
+
+    /**
+     * 获取测验统计，subQuestionIndex 为空时返回全部子问题
+     * @return 问题不存在或不是测验时返回 null
+     */
+    public QuizStatisticsDTO getStatistics(Long questionId, Integer subQuestionIndex) {
+        QuizTally tally = getTally(questionId);
+        if (tally == null) {
+            return null;
+        }
+
+        List<SubQuestionStatisticsDTO> subQuestions = new ArrayList<>();
+        for (int i = 0; i < tally.subQuestions.size(); i++) {
+            if (subQuestionIndex == null || subQuestionIndex == i) {
+                subQuestions.add(tally.subQuestions.get(i).toDTO(i));
+            }
+        }
+
+        QuizStatisticsDTO dto = new QuizStatisticsDTO();
+        dto.setQuestionId(questionId);
+        dto.setTotalAnswers(tally.total.sum());
+        dto.setSubQuestions(subQuestions);
+        return dto;
+    }
+
+    /**
+     * 子问题定义被修改或问题被删除后移除聚合，下次读取时重建
+     */
+    public void evict(Long questionId) {
+        tallies.remove(questionId);
+    }
+
+    /**
+     * 移除不再接收答案的聚合：测验已删除、已关闭，或所在课堂已结束（不在内存中）
+     */
+    @Scheduled(fixedDelayString = "${classroom.live-state.evict-interval-ms:60000}")
+    public void evictInactive() {
+        if (tallies.isEmpty()) {
+            return;
+        }
+        Set<Long> active = new HashSet<>();
+        for (Question question : questionRepository.findAllById(new ArrayList<>(tallies.questionIds()))) {
+            if (Boolean.TRUE.equals(question.getIsOpen()) && liveStateService.isLoaded(question.getClassroomId())) {
+                active.add(question.getId());
+            }
+        }
+        tallies.questionIds().removeIf(questionId -> !active.contains(questionId));
+    }
+
+    private QuizTally getTally(Long questionId) {
+        return tallies.get(questionId);
+    }
+
+    private QuizTally load(Long questionId) {
+        return questionRepository.findById(questionId)
+                .filter(question -> TYPE_QUIZ.equals(question.getType()))
+                .map(this::build)
+                .orElse(null);
+    }
+
+    private QuizTally build(Question question) {
+        QuizTally tally = new QuizTally(parseSubQuestions(question.getQuestions()));
+        for (Answer answer : answerRepository.findByQuestionId(question.getId())) {
+            tally.add(answer, parseAnswers(answer.getContent()));
+        }
+        return tally;
+    }
+
+    private List<SubQuestionTally> parseSubQuestions(String questionsJson) {
+        List<SubQuestionTally> subQuestions = new ArrayList<>();
+        if (questionsJson == null || questionsJson.isEmpty()) {
+            return subQuestions;
+        }
+        try {
+            for (JsonNode node : objectMapper.readTree(questionsJson)) {
+                List<String> optionContents = new ArrayList<>();
+                List<Boolean> optionCorrect = new ArrayList<>();
+                for (JsonNode option : node.path("options")) {
+                    optionContents.add(option.path("content").asText());
+                    optionCorrect.add(option.path("isCorrect").asBoolean(false));
+                }
+                subQuestions.add(new SubQuestionTally(node.path("type").asText(), optionContents, optionCorrect));
+            }
+        } catch (Exception e) {
+            System.err.println("[QuizStatistics] Failed to parse quiz questions: " + e.getMessage());
+        }
+        return subQuestions;
+    }
+
+    /**
+     * 解析答案 JSON：{"quizId":..,"answers":[{"subQuestionIndex":0,"content":".."}]}
+     */
+    private JsonNode parseAnswers(String content) {
+        if (content == null || content.isEmpty()) {
+            return null;
+        }
+        try {
+            JsonNode answers = objectMapper.readTree(content).path("answers");
+            return answers.isArray() ? answers : null;
+        } catch (Exception e) {
+            System.err.println("[QuizStatistics] Failed to parse quiz answer JSON: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 单个测验的聚合结果，子问题列表在创建时确定
+     */
+    private static class QuizTally {
+        private final List<SubQuestionTally> subQuestions;
+        private final Set<Long> countedAnswerIds = ConcurrentHashMap.newKeySet();
+        private final LongAdder total = new LongAdder();
+
+        QuizTally(List<SubQuestionTally> subQuestions) {
+            this.subQuestions = subQuestions;
+        }
+
+        void add(Answer answer, JsonNode answers) {
+            if (answer.getId() != null && !countedAnswerIds.add(answer.getId())) {
+                return;
+            }
+            total.increment();
+            if (answers == null) {
+                return;
+            }
+            for (JsonNode subAnswer : answers) {
+                int index = subAnswer.path("subQuestionIndex").asInt(-1);
+                String content = subAnswer.path("content").asText("");
+                if (index >= 0 && index < subQuestions.size() && !content.isEmpty()) {
+                    subQuestions.get(index).add(content, answer);
+                }
+            }
+        }
+    }
+
+    /**
+     * 单个子问题的计数：选择题按选项累加，问答题收集回答内容
+     */
+    private static class SubQuestionTally {
+        private final String type;
+        private final List<String> optionContents;
+        private final List<Boolean> optionCorrect;
+        private final Map<String, LongAdder> optionCounts = new ConcurrentHashMap<>();
+        private final LongAdder totalSelections = new LongAdder();
+        private final Queue<QuizEssayAnswerDTO> essayAnswers = new ConcurrentLinkedQueue<>();
+
+        SubQuestionTally(String type, List<String> optionContents, List<Boolean> optionCorrect) {
+            this.type = type;
+            this.optionContents = optionContents;
+            this.optionCorrect = optionCorrect;
+        }
+
+        void add(String content, Answer answer) {
+            if (TYPE_ESSAY.equals(type)) {
+                essayAnswers.add(new QuizEssayAnswerDTO(content, answer.getCreatedAt()));
+                return;
+            }
+            // 多选题答案用逗号拼接，拆开逐个统计
+            if (TYPE_MULTIPLE_CHOICE.equals(type)) {
+                for (String part : content.split(",")) {
+                    String trimmed = part.trim();
+                    if (!trimmed.isEmpty()) {
+                        increment(trimmed);
+                    }
+                }
+            } else {
+                increment(content.trim());
+            }
+        }
+
+        private void increment(String option) {
+            optionCounts.computeIfAbsent(option, key -> new LongAdder()).increment();
+            totalSelections.increment();
+        }
+
+        SubQuestionStatisticsDTO toDTO(int index) {
+            SubQuestionStatisticsDTO dto = new SubQuestionStatisticsDTO();
+            dto.setSubQuestionIndex(index);
+            dto.setType(type);
+            if (TYPE_ESSAY.equals(type)) {
+                dto.setEssayAnswers(new ArrayList<>(essayAnswers));
+                return dto;
+            }
+
+            long total = totalSelections.sum();
+            List<AnswerStatisticsDTO> options = new ArrayList<>(optionContents.size());
+            for (int i = 0; i < optionContents.size(); i++) {
+                LongAdder adder = optionCounts.get(optionContents.get(i));
+                long count = adder == null ? 0L : adder.sum();
+                AnswerStatisticsDTO stat = new AnswerStatisticsDTO();
+                stat.setOptionContent(optionContents.get(i));
+                stat.setCount(count);
+                stat.setPercentage(total > 0 ? (count * 100.0 / total) : 0.0);
+                stat.setIsCorrect(optionCorrect.get(i));
+                options.add(stat);
+            }
+            dto.setOptions(options);
+            return dto;
+        }
+    }
+}
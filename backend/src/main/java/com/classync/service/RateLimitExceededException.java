@@ -0,0 +1,11 @@
+package com.classync.service;
+
+/**
+ * 用户在课堂内发送过于频繁，超出令牌桶限制，客户端可稍后重试
+ */
+public class RateLimitExceededException extends RuntimeException {
+
+    public RateLimitExceededException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,166 @@
+package com.classync.service;
+
+import com.classync.repository.ClassroomRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 上传文件回收
+ * 文件的引用计数即引用它的课堂（pdfPath）数。课堂删除或更换课件后检查原文件，
+ * 后台定期扫描上传目录兜底，回收无引用的文件及其单页拆分结果；页面位图按内容摘要共享，
+ * 只在没有任何被引用的文件具有相同摘要时删除。刚上传、尚未写入课堂的文件在宽限期内保留。
+ * 旧的 UUID 命名文件需要读取全文才能得到摘要，回收和扫描都交给单独的后台线程串行执行，
+ * 不占用定时任务线程，也不阻塞删除课堂的请求
+ */
+@Service
+@RequiredArgsConstructor
+public class StorageSweeper {
+
+    private final ClassroomRepository classroomRepository;
+    private final FileService fileService;
+    private final PdfPageService pdfPageService;
+    private final PageRasterService pageRasterService;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${upload.sweep.grace-ms:3600000}")
+    private long graceMs;
+
+    private Counter reclaimedCounter;
+    private ExecutorService worker;
+    private final AtomicBoolean sweepQueued = new AtomicBoolean();
+
+    @PostConstruct
+    public void start() {
+        reclaimedCounter = Counter.builder("upload.storage.reclaimed")
+                .description("回收的无引用上传文件数")
+                .register(meterRegistry);
+        worker = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "storage-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void stop() {
+        worker.shutdownNow();
+    }
+
+    /**
+     * 课堂不再使用该文件后调用（删除课堂、更换课件），没有其他课堂引用时在后台回收
+     */
+    public void release(String filename) {
+        if (filename == null) {
+            return;
+        }
+        worker.execute(() -> {
+            if (classroomRepository.countByPdfPath(filename) > 0) {
+                return;
+            }
+            try {
+                reclaim(filename, this::isReferenced);
+            } catch (IOException e) {
+                System.err.println("[StorageSweeper] Failed to release " + filename + ": " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * 定期把目录扫描交给后台线程，上一次扫描尚未执行时不重复提交
+     */
+    @Scheduled(fixedDelayString = "${upload.sweep.interval-ms:600000}",
+            initialDelayString = "${upload.sweep.interval-ms:600000}")
+    public void sweep() {
+        if (!sweepQueued.compareAndSet(false, true)) {
+            return;
+        }
+        worker.execute(() -> {
+            sweepQueued.set(false);
+            sweepNow();
+        });
+    }
+
+    /**
+     * 扫描上传目录，回收所有无引用的文件
+     */
+    private void sweepNow() {
+        try {
+            List<String> referenced = classroomRepository.findDistinctPdfPaths();
+            Set<String> referencedFiles = new HashSet<>(referenced);
+            Set<String> referencedSha256s = null;
+            int reclaimed = 0;
+            for (String filename : fileService.listStoredFiles()) {
+                if (referencedFiles.contains(filename)) {
+                    continue;
+                }
+                if (referencedSha256s == null) {
+                    referencedSha256s = referencedSha256s(referenced);
+                }
+                if (reclaim(filename, referencedSha256s::contains)) {
+                    reclaimed++;
+                }
+            }
+            if (reclaimed > 0) {
+                System.out.println("[StorageSweeper] Reclaimed " + reclaimed + " unreferenced files");
+            }
+        } catch (IOException e) {
+            System.err.println("[StorageSweeper] Sweep failed: " + e.getMessage());
+        }
+    }
+
+    private boolean reclaim(String filename, Sha256Check referenced) throws IOException {
+        String sha256 = fileService.sha256Of(filename);
+        if (!fileService.deleteUnclaimed(filename, graceMs)) {
+            return false;
+        }
+        pdfPageService.evict(filename);
+        if (sha256 != null && !referenced.test(sha256)) {
+            pageRasterService.evictKey(sha256);
+        }
+        reclaimedCounter.increment();
+        System.out.println("[StorageSweeper] Reclaimed " + filename);
+        return true;
+    }
+
+    /**
+     * 是否还有课堂引用具有该摘要的文件：按内容命名的文件直接比较文件名，旧文件的摘要计算一次后缓存
+     */
+    private boolean isReferenced(String sha256) throws IOException {
+        for (String filename : classroomRepository.findDistinctPdfPaths()) {
+            if (sha256.equals(fileService.sha256Of(filename))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Set<String> referencedSha256s(List<String> referenced) throws IOException {
+        Set<String> sha256s = new HashSet<>();
+        for (String filename : referenced) {
+            String sha256 = fileService.sha256Of(filename);
+            if (sha256 != null) {
+                sha256s.add(sha256);
+            }
+        }
+        return sha256s;
+    }
+
+    @FunctionalInterface
+    private interface Sha256Check {
+        boolean test(String sha256) throws IOException;
+    }
+}
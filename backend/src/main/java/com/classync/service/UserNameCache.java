@@ -0,0 +1,128 @@
+package com.classync.service;
+
+import com.classync.entity.User;
+import com.classync.repository.UserRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 用户名缓存（userId -> name），用于讨论等展示场景
+ * 按最近访问顺序淘汰，超过容量时移除最久未访问的条目，条目超过 TTL 后重新加载；
+ * 批量获取时未命中的用户用一次 IN 查询加载
+ */
+@Service
+@RequiredArgsConstructor
+public class UserNameCache {
+
+    private final UserRepository userRepository;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${user-name-cache.max-size:10000}")
+    private int maxSize;
+
+    @Value("${user-name-cache.ttl-ms:600000}")
+    private long ttlMs;
+
+    // 访问顺序的 LinkedHashMap，由自身监视器保护
+    private final LinkedHashMap<Long, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    // 每次失效递增，加载期间发生失效时不缓存本次加载结果
+    private long invalidations;
+
+    private Counter hitCounter;
+    private Counter missCounter;
+    private Timer loadTimer;
+
+    @PostConstruct
+    public void registerMetrics() {
+        hitCounter = Counter.builder("user.name.cache.hits")
+                .description("用户名缓存命中次数")
+                .register(meterRegistry);
+        missCounter = Counter.builder("user.name.cache.misses")
+                .description("用户名缓存未命中次数")
+                .register(meterRegistry);
+        loadTimer = Timer.builder("user.name.cache.load")
+                .description("批量加载未命中用户名的耗时")
+                .register(meterRegistry);
+        Gauge.builder("user.name.cache.size", this, UserNameCache::size)
+                .description("缓存的用户名数")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 批量获取用户名，不存在的用户不出现在结果中
+     */
+    public Map<Long, String> getAll(Collection<Long> userIds) {
+        Map<Long, String> result = new HashMap<>();
+        List<Long> missing = new ArrayList<>();
+        long now = System.nanoTime();
+        long generation;
+        synchronized (this) {
+            for (Long userId : userIds) {
+                Entry entry = entries.get(userId);
+                if (entry != null && entry.expiresAtNanos() - now > 0) {
+                    result.put(userId, entry.name());
+                } else {
+                    missing.add(userId);
+                }
+            }
+            generation = invalidations;
+        }
+        hitCounter.increment(result.size());
+        if (missing.isEmpty()) {
+            return result;
+        }
+        missCounter.increment(missing.size());
+
+        List<User> loaded = loadTimer.record(() -> userRepository.findAllById(missing));
+        long expiresAt = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ttlMs);
+        synchronized (this) {
+            boolean cacheable = generation == invalidations;
+            for (User user : loaded) {
+                result.put(user.getId(), user.getName());
+                if (cacheable) {
+                    entries.put(user.getId(), new Entry(user.getName(), expiresAt));
+                }
+            }
+            trim();
+        }
+        return result;
+    }
+
+    /**
+     * 用户改名后移除缓存
+     */
+    public synchronized void invalidate(Long userId) {
+        invalidations++;
+        entries.remove(userId);
+    }
+
+    private synchronized int size() {
+        return entries.size();
+    }
+
+    private void trim() {
+        Iterator<Long> eldest = entries.keySet().iterator();
+        while (entries.size() > maxSize && eldest.hasNext()) {
+            eldest.next();
+            eldest.remove();
+        }
+    }
+
+    private record Entry(String name, long expiresAtNanos) {
+    }
+}
@@ -12,11 +12,19 @@ import java.util.Optional;
 public class UserService {
     
     private final UserRepository userRepository;
+    private final UserNameCache userNameCache;
     
     public User login(String account, String name) {
         Optional<User> existingUser = userRepository.findByAccount(account);
         if (existingUser.isPresent()) {
-            return existingUser.get();
+            User user = existingUser.get();
+            // 登录时填写了新名字则更新，并使用户名缓存失效
+            if (name != null && !name.isBlank() && !name.equals(user.getName())) {
+                user.setName(name);
+                user = userRepository.save(user);
+                userNameCache.invalidate(user.getId());
+            }
+            return user;
         }
         
         User newUser = new User();
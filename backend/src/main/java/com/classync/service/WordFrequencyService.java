@@ -0,0 +1,278 @@
+package com.classync.service;
+
+import com.classync.dto.WordFrequencyDTO;
+import com.classync.entity.Answer;
+import com.classync.entity.Question;
+import com.classync.repository.AnswerRepository;
+import com.classync.repository.QuestionRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.huaban.analysis.jieba.JiebaSegmenter;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 问答题词频统计（服务端词云）
+ * 每条答案提交时分词一次，按问题 / 测验子问题增量累加词频，并维护 Top-K 有序集合，
+ * 读取词云只需取前 K 个词。已关闭的问题和已结束课堂的问题定期移除，再次读取时从数据库重建
+ */
+@Service
+@RequiredArgsConstructor
+public class WordFrequencyService {
+
+    private static final String TYPE_ESSAY = "ESSAY";
+    private static final String TYPE_QUIZ = "QUIZ";
+    /** 整道问答题使用的词频表下标，测验子问题使用各自的 subQuestionIndex */
+    private static final int WHOLE_QUESTION = -1;
+
+    private static final Pattern NON_WORD = Pattern.compile("[^\\u4e00-\\u9fa5a-zA-Z0-9\\s]");
+    private static final Pattern TOKEN_RUN = Pattern.compile("[\\u4e00-\\u9fa5]+|[a-zA-Z0-9]+");
+    private static final Pattern ENGLISH_WORD = Pattern.compile("[a-zA-Z]+");
+    private static final Pattern DIGITS = Pattern.compile("\\d+");
+
+    private final AnswerRepository answerRepository;
+    private final QuestionRepository questionRepository;
+    private final ObjectMapper objectMapper;
+    private final ClassroomLiveStateService liveStateService;
+
+    @Value("${word-frequency.top-k-capacity:200}")
+    private int topKCapacity;
+
+    private final QuestionAggregates<QuestionTerms, Answer> questions =
+            new QuestionAggregates<>(this::load, QuestionTerms::add);
+    private final JiebaSegmenter segmenter = new JiebaSegmenter();
+    private Set<String> stopwords = Set.of();
+
+    @PostConstruct
+    public void loadStopwords() {
+        Set<String> loaded = new HashSet<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new ClassPathResource("stopwords.txt").getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String word = line.trim();
+                if (!word.isEmpty() && !word.startsWith("#")) {
+                    loaded.add(word);
+                }
+            }
+        } catch (Exception e) {
+            System.err.println("[WordFrequency] Failed to load stopwords: " + e.getMessage());
+        }
+        stopwords = loaded;
+    }
+
+    /**
+     * 记录一条已提交的答案（只对已建立词频表的问题生效，其余在首次读取时重建）
+     */
+    public void record(Answer answer) {
+        questions.update(answer.getQuestionId(), answer);
+    }
+
+    /**
+     * 获取词频最高的 k 个词，subQuestionIndex 为空表示整道问答题
+     * @return 问题不存在或不是问答题 / 测验时返回 null
+     */
+    public List<WordFrequencyDTO> getTopWords(Long questionId, Integer subQuestionIndex, int k) {
+        QuestionTerms terms = getTerms(questionId);
+        if (terms == null) {
+            return null;
+        }
+        TermTable table = terms.tables.get(subQuestionIndex == null ? WHOLE_QUESTION : subQuestionIndex);
+        return table == null ? List.of() : table.top(Math.max(0, Math.min(k, topKCapacity)));
+    }
+
+    /**
+     * 问题被修改或删除后移除词频表
+     */
+    public void evict(Long questionId) {
+        questions.remove(questionId);
+    }
+
+    /**
+     * 移除不再接收答案的词频表：问题已删除、已关闭，或所在课堂已结束（不在内存中）
+     */
+    @Scheduled(fixedDelayString = "${classroom.live-state.evict-interval-ms:60000}")
+    public void evictInactive() {
+        if (questions.isEmpty()) {
+            return;
+        }
+        Set<Long> active = new HashSet<>();
+        for (Question question : questionRepository.findAllById(new ArrayList<>(questions.questionIds()))) {
+            if (Boolean.TRUE.equals(question.getIsOpen()) && liveStateService.isLoaded(question.getClassroomId())) {
+                active.add(question.getId());
+            }
+        }
+        questions.questionIds().removeIf(questionId -> !active.contains(questionId));
+    }
+
+    private QuestionTerms getTerms(Long questionId) {
+        return questions.get(questionId);
+    }
+
+    private QuestionTerms load(Long questionId) {
+        return questionRepository.findById(questionId)
+                .filter(question -> TYPE_ESSAY.equals(question.getType()) || TYPE_QUIZ.equals(question.getType()))
+                .map(this::build)
+                .orElse(null);
+    }
+
+    private QuestionTerms build(Question question) {
+        QuestionTerms terms = new QuestionTerms(TYPE_QUIZ.equals(question.getType()));
+        for (Answer answer : answerRepository.findByQuestionId(question.getId())) {
+            terms.add(answer);
+        }
+        return terms;
+    }
+
+    /**
+     * 分词并过滤：中文走 jieba，英文与数字按连续字符切分，去掉停用词、纯数字和单字母英文
+     */
+    private List<String> tokenize(String text) {
+        List<String> words = new ArrayList<>();
+        if (text == null || text.isBlank()) {
+            return words;
+        }
+        Matcher run = TOKEN_RUN.matcher(NON_WORD.matcher(text).replaceAll(" "));
+        while (run.find()) {
+            String segment = run.group();
+            if (segment.charAt(0) >= '一') {
+                for (String word : segmenter.sentenceProcess(segment)) {
+                    addWord(words, word.trim());
+                }
+            } else {
+                addWord(words, segment.toLowerCase());
+            }
+        }
+        return words;
+    }
+
+    private void addWord(List<String> words, String word) {
+        if (word.isEmpty() || stopwords.contains(word)) {
+            return;
+        }
+        if (DIGITS.matcher(word).matches()) {
+            return;
+        }
+        if (word.length() < 2 && ENGLISH_WORD.matcher(word).matches()) {
+            return;
+        }
+        words.add(word);
+    }
+
+    /**
+     * 单个问题的词频表集合，按答案 id 去重
+     */
+    private class QuestionTerms {
+        private final boolean quiz;
+        private final Set<Long> countedAnswerIds = ConcurrentHashMap.newKeySet();
+        private final Map<Integer, TermTable> tables = new ConcurrentHashMap<>();
+
+        QuestionTerms(boolean quiz) {
+            this.quiz = quiz;
+        }
+
+        void add(Answer answer) {
+            if (answer.getId() != null && !countedAnswerIds.add(answer.getId())) {
+                return;
+            }
+            if (!quiz) {
+                table(WHOLE_QUESTION).addAll(tokenize(answer.getContent()));
+                return;
+            }
+
+            // 测验答案：{"answers":[{"subQuestionIndex":0,"subQuestionType":"ESSAY","content":".."}]}
+            try {
+                JsonNode answers = objectMapper.readTree(answer.getContent()).path("answers");
+                for (JsonNode subAnswer : answers) {
+                    if (TYPE_ESSAY.equals(subAnswer.path("subQuestionType").asText())) {
+                        int index = subAnswer.path("subQuestionIndex").asInt(-1);
+                        if (index >= 0) {
+                            table(index).addAll(tokenize(subAnswer.path("content").asText("")));
+                        }
+                    }
+                }
+            } catch (Exception e) {
+                System.err.println("[WordFrequency] Failed to parse quiz answer JSON: " + e.getMessage());
+            }
+        }
+
+        private TermTable table(int index) {
+            return tables.computeIfAbsent(index, key -> new TermTable(topKCapacity));
+        }
+    }
+
+    /**
+     * 单个词频表：完整词频 + 按词频降序的 Top-K 集合
+     * 词频只增不减，因此词进入或离开 Top-K 只可能发生在它自身计数增加时，可以增量维护
+     */
+    private static class TermTable {
+        private static final Comparator<TermCount> ORDER = Comparator
+                .comparingLong(TermCount::count).reversed()
+                .thenComparing(TermCount::word);
+
+        private final int capacity;
+        private final Map<String, Long> counts = new HashMap<>();
+        private final TreeSet<TermCount> top = new TreeSet<>(ORDER);
+
+        TermTable(int capacity) {
+            this.capacity = capacity;
+        }
+
+        synchronized void addAll(List<String> words) {
+            for (String word : words) {
+                long previous = counts.getOrDefault(word, 0L);
+                long current = previous + 1;
+                counts.put(word, current);
+
+                if (previous > 0 && top.remove(new TermCount(word, previous))) {
+                    top.add(new TermCount(word, current));
+                    continue;
+                }
+                TermCount entry = new TermCount(word, current);
+                if (top.size() < capacity) {
+                    top.add(entry);
+                } else if (ORDER.compare(entry, top.last()) < 0) {
+                    top.pollLast();
+                    top.add(entry);
+                }
+            }
+        }
+
+        synchronized List<WordFrequencyDTO> top(int k) {
+            List<WordFrequencyDTO> result = new ArrayList<>(Math.min(k, top.size()));
+            if (top.isEmpty()) {
+                return result;
+            }
+            double maxCount = top.first().count();
+            Iterator<TermCount> iterator = top.iterator();
+            while (iterator.hasNext() && result.size() < k) {
+                TermCount entry = iterator.next();
+                result.add(new WordFrequencyDTO(entry.word(), entry.count(), entry.count() / maxCount));
+            }
+            return result;
+        }
+    }
+
+    private record TermCount(String word, long count) {
+    }
+}
@@ -0,0 +1,164 @@
+package com.classync.websocket;
+
+import com.classync.entity.Question;
+import com.classync.service.AnswerMembershipService;
+import com.classync.service.AnswerTallyService;
+import com.classync.service.ClassroomLiveStateService;
+import com.classync.service.QuestionService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ANSWER_SUBMITTED 广播合并
+ * 同一课堂同一问题在窗口期内的多次提交合并为一条消息，消息携带已作答人数和最新选项统计，
+ * 客户端无需再逐条刷新统计。窗口随负载自适应：安静时第一条提交立即广播，
+ * 窗口内持续有多条提交时窗口翻倍（不超过上限），负载下降后逐步减半
+ */
+@Component
+@RequiredArgsConstructor
+public class AnswerBroadcastCoalescer {
+
+    private static final String TYPE_ESSAY = "ESSAY";
+    private static final String TYPE_QUIZ = "QUIZ";
+
+    private final ClassroomEventPublisher eventPublisher;
+    private final AnswerMembershipService answerMembershipService;
+    private final AnswerTallyService answerTallyService;
+    private final ClassroomLiveStateService liveStateService;
+    private final QuestionService questionService;
+
+    @Value("${answer-broadcast.min-window-ms:50}")
+    private long minWindowMs;
+
+    @Value("${answer-broadcast.max-window-ms:1000}")
+    private long maxWindowMs;
+
+    private final Map<QuestionKey, Window> windows = new ConcurrentHashMap<>();
+    private ScheduledExecutorService scheduler;
+
+    @PostConstruct
+    public void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "answer-broadcast");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void stop() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * 记录一次答案提交，由窗口决定何时广播
+     */
+    public void submitted(Long classroomId, Long questionId) {
+        QuestionKey key = new QuestionKey(classroomId, questionId);
+        Window window = windows.computeIfAbsent(key, k -> new Window(minWindowMs));
+        long delayMs = window.submitted();
+        if (delayMs >= 0) {
+            scheduler.schedule(() -> flush(key, window), delayMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * 移除长时间没有提交的窗口
+     */
+    @Scheduled(fixedDelayString = "${classroom.live-state.evict-interval-ms:60000}")
+    public void evictIdle() {
+        long idleNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(maxWindowMs, 1000) * 10);
+        long now = System.nanoTime();
+        windows.entrySet().removeIf(entry -> entry.getValue().isIdle(now, idleNanos));
+    }
+
+    private void flush(QuestionKey key, Window window) {
+        int coalesced = window.drain();
+        if (coalesced == 0) {
+            return;
+        }
+        try {
+            ClassroomEvents.AnswerSubmitted payload = new ClassroomEvents.AnswerSubmitted(
+                    key.questionId(),
+                    answerMembershipService.getAnsweredCount(key.questionId()),
+                    coalesced,
+                    isChoiceQuestion(key) ? answerTallyService.getStatistics(key.questionId()) : null);
+            eventPublisher.broadcast(key.classroomId(), ClassroomEvents.ANSWER_SUBMITTED, payload);
+        } catch (Exception e) {
+            System.err.println("[AnswerBroadcast] Failed to broadcast answers for question "
+                    + key.questionId() + ": " + e.getMessage());
+        }
+    }
+
+    private boolean isChoiceQuestion(QuestionKey key) {
+        String type = liveStateService.getOpenQuestions(key.classroomId()).stream()
+                .filter(question -> key.questionId().equals(question.getId()))
+                .map(Question::getType)
+                .findFirst()
+                .orElseGet(() -> questionService.getQuestionById(key.questionId())
+                        .map(Question::getType)
+                        .orElse(null));
+        return type != null && !TYPE_ESSAY.equals(type) && !TYPE_QUIZ.equals(type);
+    }
+
+    private record QuestionKey(Long classroomId, Long questionId) {
+    }
+
+    /**
+     * 单个问题的广播窗口
+     */
+    private class Window {
+        private long windowMs;
+        private long lastSentNanos;
+        private int pending;
+        private boolean scheduled;
+
+        Window(long windowMs) {
+            this.windowMs = windowMs;
+            this.lastSentNanos = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(windowMs);
+        }
+
+        /**
+         * @return 需要安排广播时返回延迟毫秒数，已有待发送的广播时返回 -1
+         */
+        synchronized long submitted() {
+            pending++;
+            if (scheduled) {
+                return -1;
+            }
+            scheduled = true;
+            long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - lastSentNanos);
+            return Math.max(0, windowMs - elapsedMs);
+        }
+
+        /**
+         * 取出待广播的提交数，并根据本窗口的提交数调整下一个窗口
+         */
+        synchronized int drain() {
+            int count = pending;
+            pending = 0;
+            scheduled = false;
+            lastSentNanos = System.nanoTime();
+            if (count > 1) {
+                windowMs = Math.min(maxWindowMs, windowMs * 2);
+            } else {
+                windowMs = Math.max(minWindowMs, windowMs / 2);
+            }
+            return count;
+        }
+
+        synchronized boolean isIdle(long now, long idleNanos) {
+            return !scheduled && now - lastSentNanos > idleNanos;
+        }
+    }
+}
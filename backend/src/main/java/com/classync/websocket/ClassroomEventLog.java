@@ -0,0 +1,148 @@
+package com.classync.websocket;
+
+import com.classync.service.ClassroomLiveStateService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 课堂事件日志
+ * 作为 brokerChannel 拦截器，为发往 /topic/classroom/{id} 的每条事件（包括集群转发来的事件）
+ * 分配课堂内递增的序号，通过 STOMP 头 seq / stream 下发，并在有界环形缓冲中保留最近的事件。
+ * 客户端重连时带上最后收到的序号，只补发缺失的事件；缺口已超出缓冲时改发完整快照。
+ * stream 标识一份日志，服务重启或日志被移除后重新生成，旧序号随之失效
+ */
+@Component
+@RequiredArgsConstructor
+public class ClassroomEventLog implements ChannelInterceptor {
+
+    public static final String SEQ_HEADER = "seq";
+    public static final String STREAM_HEADER = "stream";
+
+    private static final Pattern CLASSROOM_TOPIC = Pattern.compile("^/topic/classroom/(\\d+)$");
+
+    private final ClassroomLiveStateService liveStateService;
+
+    @Value("${classroom.event-log.capacity:512}")
+    private int capacity;
+
+    private final Map<Long, Log> logs = new ConcurrentHashMap<>();
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(message);
+        if (accessor.getMessageType() != SimpMessageType.MESSAGE
+                || !(message.getPayload() instanceof byte[] frame)) {
+            return message;
+        }
+        Long classroomId = classroomIdOf(accessor.getDestination());
+        if (classroomId == null) {
+            return message;
+        }
+
+        Log log = log(classroomId);
+        long seq = log.append(frame);
+        accessor.setNativeHeader(SEQ_HEADER, String.valueOf(seq));
+        accessor.setNativeHeader(STREAM_HEADER, log.stream);
+        return MessageBuilder.createMessage(frame, accessor.getMessageHeaders());
+    }
+
+    /**
+     * 课堂日志的当前位置（stream 与最新序号），快照以此为起点
+     */
+    public Position position(Long classroomId) {
+        return log(classroomId).position();
+    }
+
+    /**
+     * 取出 lastSeq 之后的事件；stream 不一致或缺口已超出缓冲时返回 null，调用方改发快照
+     */
+    public Replay since(Long classroomId, String stream, long lastSeq) {
+        Log log = logs.get(classroomId);
+        if (log == null || !log.stream.equals(stream)) {
+            return null;
+        }
+        return log.since(lastSeq);
+    }
+
+    /**
+     * 移除已结束或删除的课堂的日志
+     */
+    @Scheduled(fixedDelayString = "${classroom.live-state.evict-interval-ms:60000}")
+    public void evictUnloaded() {
+        logs.keySet().removeIf(classroomId -> !liveStateService.isLoaded(classroomId));
+    }
+
+    private Log log(Long classroomId) {
+        return logs.computeIfAbsent(classroomId, id -> new Log(capacity));
+    }
+
+    private static Long classroomIdOf(String destination) {
+        if (destination == null) {
+            return null;
+        }
+        Matcher matcher = CLASSROOM_TOPIC.matcher(destination);
+        return matcher.matches() ? Long.valueOf(matcher.group(1)) : null;
+    }
+
+    public record Position(String stream, long seq) {
+    }
+
+    /**
+     * 补发内容：按顺序排列的事件及最后一条的序号
+     */
+    public record Replay(String stream, long seq, List<Event> events) {
+    }
+
+    public record Event(long seq, byte[] frame) {
+    }
+
+    /**
+     * 单个课堂的环形缓冲，序号与写入由自身监视器保护
+     */
+    private static class Log {
+        private final String stream = UUID.randomUUID().toString();
+        private final Event[] ring;
+        private long seq;
+
+        Log(int capacity) {
+            this.ring = new Event[Math.max(capacity, 1)];
+        }
+
+        synchronized long append(byte[] frame) {
+            seq++;
+            ring[(int) (seq % ring.length)] = new Event(seq, frame);
+            return seq;
+        }
+
+        synchronized Position position() {
+            return new Position(stream, seq);
+        }
+
+        synchronized Replay since(long lastSeq) {
+            if (lastSeq < 0 || lastSeq > seq || lastSeq < seq - ring.length) {
+                return null;
+            }
+            List<Event> events = new ArrayList<>((int) (seq - lastSeq));
+            for (long next = lastSeq + 1; next <= seq; next++) {
+                events.add(ring[(int) (next % ring.length)]);
+            }
+            return new Replay(stream, seq, events);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.classync.websocket;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.converter.MessageConversionException;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeTypeUtils;
+
+/**
+ * 课堂广播发送
+ * 每个事件只序列化一次：JSON 直接编码为 byte[] 作为消息 payload，
+ * simple broker 向各订阅会话分发时共享同一个数组，不再经过 MessageConverter，也不会按会话重复序列化
+ */
+@Component
+public class ClassroomEventPublisher {
+
+    private static final String CLASSROOM_TOPIC_PREFIX = "/topic/classroom/";
+    private static final String USER_PREFIX = "/user/";
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final ObjectWriter writer;
+
+    public ClassroomEventPublisher(SimpMessagingTemplate messagingTemplate, ObjectMapper objectMapper) {
+        this.messagingTemplate = messagingTemplate;
+        this.writer = objectMapper.writerFor(WebSocketMessage.class);
+    }
+
+    /**
+     * 广播到 /topic/classroom/{classroomId}
+     */
+    public void broadcast(Long classroomId, String event, Object payload) {
+        send(CLASSROOM_TOPIC_PREFIX + classroomId, WebSocketMessage.of(event, classroomId, payload));
+    }
+
+    /**
+     * 发送到任意 broker 目的地
+     */
+    public void send(String destination, WebSocketMessage message) {
+        messagingTemplate.send(destination, toMessage(encode(message), null));
+    }
+
+    /**
+     * 只发给指定会话：客户端订阅 /user{destination}，例如 /user/queue/classroom-state。
+     * 匿名会话以会话 ID 作为用户名解析目的地；position 作为 seq / stream 头下发，与课堂广播一致
+     */
+    public void sendToSession(String sessionId, String destination, byte[] frame, ClassroomEventLog.Position position) {
+        Message<byte[]> message = toMessage(frame, sessionId);
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.getAccessor(message, SimpMessageHeaderAccessor.class);
+        accessor.setNativeHeader(ClassroomEventLog.SEQ_HEADER, String.valueOf(position.seq()));
+        accessor.setNativeHeader(ClassroomEventLog.STREAM_HEADER, position.stream());
+        messagingTemplate.send(USER_PREFIX + sessionId + destination, message);
+    }
+
+    /**
+     * 编码为 JSON，结果可缓存后多次发送
+     */
+    public byte[] encode(WebSocketMessage message) {
+        try {
+            return writer.writeValueAsBytes(message);
+        } catch (JsonProcessingException e) {
+            throw new MessageConversionException("Failed to encode " + message.getEvent() + " event", e);
+        }
+    }
+
+    private static Message<byte[]> toMessage(byte[] frame, String sessionId) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setContentType(MimeTypeUtils.APPLICATION_JSON);
+        if (sessionId != null) {
+            accessor.setSessionId(sessionId);
+        }
+        accessor.setLeaveMutable(true);
+        return MessageBuilder.createMessage(frame, accessor.getMessageHeaders());
+    }
+}
@@ -0,0 +1,89 @@
+package com.classync.websocket;
+
+import com.classync.dto.AnswerStatisticsDTO;
+import com.classync.entity.Answer;
+import com.classync.entity.Question;
+import com.classync.service.PageLockSet;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+
+/**
+ * 课堂广播事件名及其 payload
+ * payload 使用不可变 record，字段名即 JSON 键名，与前端约定保持一致
+ */
+public final class ClassroomEvents {
+
+    public static final String CLASSROOM_STATE = "CLASSROOM_STATE";
+    public static final String CLASSROOM_RESUMED = "CLASSROOM_RESUMED";
+    public static final String PAGE_UPDATE = "PAGE_UPDATE";
+    public static final String QUESTION_OPENED = "QUESTION_OPENED";
+    public static final String QUESTION_CLOSED = "QUESTION_CLOSED";
+    public static final String QUESTION_FINISHED = "QUESTION_FINISHED";
+    public static final String ANSWER_SUBMITTED = "ANSWER_SUBMITTED";
+    public static final String DISCUSSION_NEW = "DISCUSSION_NEW";
+    public static final String DISPLAY_CODE_TOGGLE = "DISPLAY_CODE_TOGGLE";
+    public static final String PAGE_LOCK_UPDATE = "PAGE_LOCK_UPDATE";
+    public static final String PAGE_LOCK_BATCH = "PAGE_LOCK_BATCH";
+    public static final String DISPLAY_QUESTION = "DISPLAY_QUESTION";
+    public static final String QUESTION_STATS_SNAPSHOT = "QUESTION_STATS_SNAPSHOT";
+    public static final String QUESTION_STATS_DELTA = "QUESTION_STATS_DELTA";
+
+    private ClassroomEvents() {
+    }
+
+    /** 加入课堂时的完整状态，pageLocks 为已锁定页面的区间列表，未展示问题时不输出展示字段 */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record ClassroomState(Integer currentPage, List<Question> openQuestions, PageLockSet pageLocks,
+            Long displayQuestionId, String displayQuestionMode) {
+    }
+
+    /** 重连补发结束，seq 为补发的最后一条事件序号 */
+    public record ClassroomResumed(long seq, int replayed) {
+    }
+
+    public record PageUpdate(Integer pageNumber) {
+    }
+
+    public record QuestionToggled(Long questionId, Boolean isOpen) {
+    }
+
+    public record QuestionFinished(Long questionId) {
+    }
+
+    /** 合并窗口内的答案提交，statistics 只在选择题时输出 */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record AnswerSubmitted(Long questionId, int answeredCount, int coalesced,
+            List<AnswerStatisticsDTO> statistics) {
+    }
+
+    public record DisplayCodeToggle(Boolean show) {
+    }
+
+    public record PageLockUpdate(Integer pageNumber, Boolean isLocked) {
+    }
+
+    /** 批量锁定 / 解锁后课堂的全部锁定区间，客户端整体替换 */
+    public record PageLockBatch(PageLockSet pageLocks) {
+    }
+
+    public record DisplayQuestion(Long questionId, String mode, Integer subQuestionIndex) {
+    }
+
+    /** 问题实时统计的完整快照，没有订阅者时 version 为 0 */
+    public record QuestionStatsSnapshot(Long questionId, String type, long version, long answeredCount,
+            List<AnswerStatisticsDTO> statistics, List<Answer> essayAnswers) {
+    }
+
+    /**
+     * 问题实时统计的增量：简答题只输出新增的 essayAnswers；选择题选项未变时只输出计数变化的 options，
+     * 选项被修改过时输出完整的 statistics
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record QuestionStatsDelta(Long questionId, long baseVersion, long version, long answeredCount,
+            List<Answer> essayAnswers, List<OptionCount> options, List<AnswerStatisticsDTO> statistics) {
+    }
+
+    public record OptionCount(String optionContent, Long count) {
+    }
+}
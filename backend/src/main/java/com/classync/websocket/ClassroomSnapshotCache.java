@@ -0,0 +1,82 @@
+package com.classync.websocket;
+
+import com.classync.entity.Classroom;
+import com.classync.service.ClassroomLiveStateService;
+import com.classync.service.PageLockService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 加入课堂时回复的 CLASSROOM_STATE 快照缓存
+ * 按课堂缓存已编码的消息及其快照版本，版本未变化时直接复用，
+ * 一波学生集中加入时只查询和编码一次。返回的快照带有读取状态前的事件日志位置，
+ * 客户端从该位置之后继续接收事件（重复收到已包含在快照中的事件不影响状态）
+ */
+@Component
+@RequiredArgsConstructor
+public class ClassroomSnapshotCache {
+
+    private final ClassroomLiveStateService liveStateService;
+    private final PageLockService pageLockService;
+    private final ClassroomEventPublisher eventPublisher;
+    private final ClassroomEventLog eventLog;
+
+    private final Map<Long, Snapshot> snapshots = new ConcurrentHashMap<>();
+
+    /**
+     * 获取课堂当前状态的快照，课堂不存在时返回 null
+     */
+    public Snapshot get(Long classroomId) {
+        // 先取日志位置再读取版本和状态：状态变化先推进版本再广播，位置之前的事件都已反映在版本中；
+        // 快照可能包含该位置之后的事件，但不会缺少之前的
+        ClassroomEventLog.Position position = eventLog.position(classroomId);
+        long version = liveStateService.getSnapshotVersion(classroomId);
+        if (version < 0) {
+            return null;
+        }
+        Snapshot cached = snapshots.get(classroomId);
+        if (cached != null && cached.version() == version) {
+            // 版本未变时其间只有答题、讨论等不影响快照的事件，复用编码结果但以当前位置为起点，
+            // 否则客户端收到的第一条事件会与快照的序号出现缺口而反复重新同步
+            return cached.position().equals(position) ? cached : new Snapshot(version, position, cached.frame());
+        }
+
+        Classroom classroom = liveStateService.getClassroom(classroomId).orElse(null);
+        if (classroom == null) {
+            return null;
+        }
+        // 问题展示状态（未展示时为 null，不输出）
+        boolean displaying = classroom.getDisplayQuestionId() != null;
+        ClassroomEvents.ClassroomState payload = new ClassroomEvents.ClassroomState(
+                classroom.getCurrentPage(),
+                liveStateService.getOpenQuestions(classroomId),
+                pageLockService.getPageLocksByClassroom(classroomId),
+                classroom.getDisplayQuestionId(),
+                displaying ? classroom.getDisplayQuestionMode() : null);
+        byte[] frame = eventPublisher.encode(
+                WebSocketMessage.of(ClassroomEvents.CLASSROOM_STATE, classroomId, payload));
+
+        Snapshot snapshot = new Snapshot(version, position, frame);
+        // 构建期间状态又发生变化时不缓存，下次加入重新构建
+        if (liveStateService.getSnapshotVersion(classroomId) == version) {
+            snapshots.merge(classroomId, snapshot,
+                    (old, built) -> built.version() > old.version() ? built : old);
+        }
+        return snapshot;
+    }
+
+    /**
+     * 移除已结束或删除的课堂的快照
+     */
+    @Scheduled(fixedDelayString = "${classroom.live-state.evict-interval-ms:60000}")
+    public void evictUnloaded() {
+        snapshots.keySet().removeIf(classroomId -> !liveStateService.isLoaded(classroomId));
+    }
+
+    public record Snapshot(long version, ClassroomEventLog.Position position, byte[] frame) {
+    }
+}
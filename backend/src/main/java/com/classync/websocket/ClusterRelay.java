@@ -0,0 +1,28 @@
+package com.classync.websocket;
+
+import java.util.function.Consumer;
+
+/**
+ * 多节点事件转发 SPI
+ * 本节点广播到 /topic/classroom/** 的消息经 publish 发往其他节点，
+ * 其他节点收到的事件交给 onEvent 注册的处理器投递到本地 broker。
+ * 实现需保证同一来源节点的事件按发送顺序到达（从而保证课堂内顺序）；
+ * 去重需按来源节点和纪元区分，来源节点重启后的新纪元事件不能因序号较小被丢弃
+ */
+public interface ClusterRelay {
+
+    /**
+     * 本节点 id，事件 id 由节点 id、纪元和递增序号组成
+     */
+    String getNodeId();
+
+    /**
+     * 转发一条本地广播
+     */
+    void publish(RelayEvent event);
+
+    /**
+     * 注册远程事件处理器
+     */
+    void onEvent(Consumer<RelayEvent> handler);
+}
@@ -0,0 +1,79 @@
+package com.classync.websocket;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeType;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 本地 broker 与集群转发之间的桥接
+ * 作为 brokerChannel 拦截器，把发往 /topic/classroom/** 的广播交给 ClusterRelay；
+ * 收到的远程事件先由 ClusterStateSync 同步本节点的内存状态，再带上转发标记投递到本地 broker，不会被再次转发
+ */
+@Component
+public class ClusterRelayBridge implements ChannelInterceptor {
+
+    private static final String CLASSROOM_TOPIC_PREFIX = "/topic/classroom/";
+    // 实时统计增量的版本号只在本节点内有效，由各节点自行推送
+    private static final String STATS_SUFFIX = "/stats";
+    private static final String RELAYED_HEADER = "classyncRelayedEventId";
+
+    private final ClusterRelay clusterRelay;
+    private final ClusterStateSync stateSync;
+    private final MessageChannel brokerChannel;
+    // 序号随本实例从 1 开始，纪元（启动时间）区分节点的每次启动
+    private final long epoch = System.currentTimeMillis();
+    private final AtomicLong sequence = new AtomicLong();
+
+    public ClusterRelayBridge(ClusterRelay clusterRelay, ClusterStateSync stateSync,
+            @Lazy @Qualifier("brokerChannel") MessageChannel brokerChannel) {
+        this.clusterRelay = clusterRelay;
+        this.stateSync = stateSync;
+        this.brokerChannel = brokerChannel;
+    }
+
+    @PostConstruct
+    public void register() {
+        clusterRelay.onEvent(this::deliver);
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(message);
+        String destination = accessor.getDestination();
+        if (accessor.getMessageType() != SimpMessageType.MESSAGE
+                || destination == null
+                || !destination.startsWith(CLASSROOM_TOPIC_PREFIX)
+                || destination.endsWith(STATS_SUFFIX)
+                || accessor.getHeader(RELAYED_HEADER) != null
+                || !(message.getPayload() instanceof byte[] payload)) {
+            return message;
+        }
+
+        MimeType contentType = accessor.getContentType();
+        clusterRelay.publish(new RelayEvent(clusterRelay.getNodeId(), epoch, sequence.incrementAndGet(), destination,
+                contentType == null ? null : contentType.toString(), payload));
+        return message;
+    }
+
+    private void deliver(RelayEvent event) {
+        // 先更新状态再投递，收到事件后立即加入课堂的客户端不会拿到旧快照
+        stateSync.apply(event);
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setDestination(event.destination());
+        if (event.contentType() != null) {
+            accessor.setContentType(MimeType.valueOf(event.contentType()));
+        }
+        accessor.setHeader(RELAYED_HEADER, event.eventId());
+        brokerChannel.send(MessageBuilder.createMessage(event.payload(), accessor.getMessageHeaders()));
+    }
+}
@@ -0,0 +1,62 @@
+package com.classync.websocket;
+
+import com.classync.service.ClassroomLiveStateService;
+import com.classync.service.PageLockService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+
+/**
+ * 其他节点的课堂广播到达本节点时同步内存状态
+ * 页码和展示问题在来源节点只改内存、稍后写回，这里直接应用广播中的值；
+ * 页面锁定和问题开关在广播前已提交，这里丢弃缓存从数据库重新加载。
+ * 两者都会推进本节点的快照版本，之后加入课堂的客户端拿到的是最新状态
+ */
+@Component
+@RequiredArgsConstructor
+public class ClusterStateSync {
+
+    private final ClassroomLiveStateService liveStateService;
+    private final PageLockService pageLockService;
+    private final ObjectMapper objectMapper;
+
+    public void apply(RelayEvent event) {
+        byte[] payload = event.payload();
+        // 只解析 JSON 对象帧，其他内容原样投递
+        if (payload.length == 0 || payload[0] != '{') {
+            return;
+        }
+        JsonNode frame;
+        try {
+            frame = objectMapper.readTree(payload);
+        } catch (IOException e) {
+            return;
+        }
+        JsonNode classroomIdNode = frame.path("classroomId");
+        if (!classroomIdNode.canConvertToLong()) {
+            return;
+        }
+        Long classroomId = classroomIdNode.asLong();
+        JsonNode data = frame.path("payload");
+
+        switch (frame.path("event").asText()) {
+            case ClassroomEvents.PAGE_UPDATE -> {
+                if (data.path("pageNumber").canConvertToInt()) {
+                    liveStateService.applyRemotePage(classroomId, data.path("pageNumber").asInt());
+                }
+            }
+            case ClassroomEvents.DISPLAY_QUESTION -> liveStateService.applyRemoteDisplayQuestion(classroomId,
+                    data.path("questionId").canConvertToLong() ? data.path("questionId").asLong() : null,
+                    data.path("mode").isTextual() ? data.path("mode").asText() : null);
+            case ClassroomEvents.PAGE_LOCK_UPDATE, ClassroomEvents.PAGE_LOCK_BATCH ->
+                    pageLockService.reload(classroomId);
+            case ClassroomEvents.QUESTION_OPENED, ClassroomEvents.QUESTION_CLOSED, ClassroomEvents.QUESTION_FINISHED ->
+                    liveStateService.invalidateQuestions(classroomId);
+            default -> {
+            }
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.classync.websocket;
+
+import com.classync.service.DiscussionCreatedEvent;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * 新讨论广播：由服务端在讨论保存（事务提交）后发出，payload 为完整的讨论，客户端无需再请求
+ */
+@Component
+@RequiredArgsConstructor
+public class DiscussionBroadcaster {
+
+    private final ClassroomEventPublisher eventPublisher;
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDiscussionCreated(DiscussionCreatedEvent event) {
+        try {
+            eventPublisher.broadcast(event.classroomId(), ClassroomEvents.DISCUSSION_NEW, event.discussion());
+        } catch (Exception e) {
+            System.err.println("[DiscussionBroadcaster] Failed to broadcast discussion "
+                    + event.discussion().getId() + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.classync.websocket;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * 单节点部署：不转发任何事件
+ */
+@Component
+@ConditionalOnProperty(name = "cluster.relay.type", havingValue = "none", matchIfMissing = true)
+public class NoOpClusterRelay implements ClusterRelay {
+
+    private final String nodeId = UUID.randomUUID().toString();
+
+    @Override
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    @Override
+    public void publish(RelayEvent event) {
+    }
+
+    @Override
+    public void onEvent(Consumer<RelayEvent> handler) {
+    }
+}
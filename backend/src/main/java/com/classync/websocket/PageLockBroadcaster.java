@@ -0,0 +1,30 @@
+package com.classync.websocket;
+
+import com.classync.service.PageLockService;
+import com.classync.service.PageLocksChangedEvent;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * 页面锁定批量修改广播：提交后发出一次 PAGE_LOCK_BATCH，payload 为课堂当前的锁定区间。
+ * 发送时读取最新状态，并发的批量修改即使提交顺序与广播顺序不同，最后一次广播也是最终状态
+ */
+@Component
+@RequiredArgsConstructor
+public class PageLockBroadcaster {
+
+    private final ClassroomEventPublisher eventPublisher;
+    private final PageLockService pageLockService;
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPageLocksChanged(PageLocksChangedEvent event) {
+        try {
+            eventPublisher.broadcast(event.classroomId(), ClassroomEvents.PAGE_LOCK_BATCH,
+                    new ClassroomEvents.PageLockBatch(pageLockService.getPageLocksByClassroom(event.classroomId())));
+        } catch (Exception e) {
+            System.err.println("[PageLockBroadcaster] Failed to broadcast page locks for classroom "
+                    + event.classroomId() + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package com.classync.websocket;
+
+import com.classync.dto.AnswerStatisticsDTO;
+import com.classync.entity.Answer;
+import com.classync.entity.Question;
+import com.classync.repository.AnswerRepository;
+import com.classync.service.AnswerTallyService;
+import com.classync.service.QuestionService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+import org.springframework.web.socket.messaging.SessionUnsubscribeEvent;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 问题实时统计推送：/topic/classroom/{id}/question/{qid}/stats
+ * 订阅者先通过 /app 下的同名目的地取一次完整快照，之后按固定频率接收带版本号的增量，
+ * 增量的 baseVersion 与本地版本不一致时客户端重新取快照。只有存在订阅者的问题才会计算增量，
+ * 学生端不订阅，不产生任何额外开销
+ */
+@Component
+@RequiredArgsConstructor
+public class QuestionStatsPublisher {
+
+    private static final String TYPE_ESSAY = "ESSAY";
+    private static final String TYPE_QUIZ = "QUIZ";
+    private static final Pattern STATS_DESTINATION =
+            Pattern.compile("^/topic/classroom/(\\d+)/question/(\\d+)/stats$");
+
+    private final ClassroomEventPublisher eventPublisher;
+    private final AnswerTallyService answerTallyService;
+    private final AnswerRepository answerRepository;
+    private final QuestionService questionService;
+
+    private final Map<StatsKey, StatsStream> streams = new ConcurrentHashMap<>();
+    // sessionId -> (subscriptionId -> 订阅的问题)
+    private final Map<String, Map<String, StatsKey>> sessionSubscriptions = new ConcurrentHashMap<>();
+    // 全局递增，流被移除后重建也不会复用旧版本号
+    private final AtomicLong versions = new AtomicLong();
+
+    @EventListener
+    public void onSubscribe(SessionSubscribeEvent event) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        StatsKey key = parse(accessor.getDestination());
+        if (key == null || accessor.getSessionId() == null || accessor.getSubscriptionId() == null) {
+            return;
+        }
+        sessionSubscriptions.computeIfAbsent(accessor.getSessionId(), id -> new ConcurrentHashMap<>())
+                .put(accessor.getSubscriptionId(), key);
+        // 新建流要查询数据库，放在映射锁之外构造，只在 compute 中登记订阅者
+        StatsStream candidate = streams.containsKey(key) ? null : new StatsStream(key);
+        while (true) {
+            StatsStream prebuilt = candidate;
+            StatsStream stream = streams.compute(key, (k, existing) -> {
+                StatsStream target = existing != null ? existing : prebuilt;
+                if (target != null) {
+                    target.subscribers++;
+                }
+                return target;
+            });
+            if (stream != null) {
+                return;
+            }
+            // 构造期间流已被最后一个订阅者移除
+            candidate = new StatsStream(key);
+        }
+    }
+
+    @EventListener
+    public void onUnsubscribe(SessionUnsubscribeEvent event) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        Map<String, StatsKey> subscriptions = sessionSubscriptions.get(accessor.getSessionId());
+        if (subscriptions != null && accessor.getSubscriptionId() != null) {
+            release(subscriptions.remove(accessor.getSubscriptionId()));
+        }
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        Map<String, StatsKey> subscriptions = sessionSubscriptions.remove(event.getSessionId());
+        if (subscriptions != null) {
+            subscriptions.values().forEach(this::release);
+        }
+    }
+
+    /**
+     * 当前已推送状态的完整快照
+     * 没有订阅者的问题直接读取当前统计，版本号为 0，客户端收到第一条增量时会重新取快照
+     */
+    public WebSocketMessage snapshot(Long classroomId, Long questionId) {
+        StatsStream stream = streams.get(new StatsKey(classroomId, questionId));
+        ClassroomEvents.QuestionStatsSnapshot payload = stream != null ? stream.snapshot() : currentSnapshot(questionId);
+        return WebSocketMessage.of(ClassroomEvents.QUESTION_STATS_SNAPSHOT, classroomId, payload);
+    }
+
+    /**
+     * 按固定频率（默认 5 Hz）为有订阅者的问题推送增量
+     */
+    @Scheduled(fixedDelayString = "${question-stats.push-interval-ms:200}")
+    public void publish() {
+        for (StatsStream stream : streams.values()) {
+            try {
+                ClassroomEvents.QuestionStatsDelta delta = stream.poll();
+                if (delta != null) {
+                    WebSocketMessage message = WebSocketMessage.of(ClassroomEvents.QUESTION_STATS_DELTA,
+                            stream.key.classroomId(), delta);
+                    eventPublisher.send(stream.key.destination(), message);
+                }
+            } catch (Exception e) {
+                System.err.println("[QuestionStats] Failed to publish stats for question "
+                        + stream.key.questionId() + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private ClassroomEvents.QuestionStatsSnapshot currentSnapshot(Long questionId) {
+        String type = questionService.getQuestionById(questionId).map(Question::getType).orElse(null);
+        boolean tallied = type != null && !TYPE_QUIZ.equals(type);
+        boolean essay = TYPE_ESSAY.equals(type);
+        return new ClassroomEvents.QuestionStatsSnapshot(questionId, type, 0L,
+                tallied ? answerTallyService.getAnswerCount(questionId) : -1L,
+                tallied && !essay ? answerTallyService.getStatistics(questionId) : List.of(),
+                essay ? answerRepository.findByQuestionIdAndIdGreaterThanOrderByIdAsc(questionId, 0L) : List.of());
+    }
+
+    private void release(StatsKey key) {
+        if (key == null) {
+            return;
+        }
+        streams.computeIfPresent(key, (k, stream) -> --stream.subscribers > 0 ? stream : null);
+    }
+
+    private static StatsKey parse(String destination) {
+        if (destination == null) {
+            return null;
+        }
+        Matcher matcher = STATS_DESTINATION.matcher(destination);
+        if (!matcher.matches()) {
+            return null;
+        }
+        return new StatsKey(Long.valueOf(matcher.group(1)), Long.valueOf(matcher.group(2)));
+    }
+
+    private record StatsKey(Long classroomId, Long questionId) {
+        String destination() {
+            return "/topic/classroom/" + classroomId + "/question/" + questionId + "/stats";
+        }
+    }
+
+    /**
+     * 单个问题最近一次推送的状态，快照与增量都基于它计算
+     */
+    private class StatsStream {
+        private final StatsKey key;
+        private final String type;
+        private int subscribers;
+
+        private long version;
+        private long answeredCount = -1;
+        private Map<String, AnswerStatisticsDTO> options = new LinkedHashMap<>();
+        private final List<Answer> essayAnswers = new ArrayList<>();
+        private long lastEssayAnswerId;
+
+        StatsStream(StatsKey key) {
+            this.key = key;
+            this.type = questionService.getQuestionById(key.questionId()).map(Question::getType).orElse(null);
+            poll();
+        }
+
+        synchronized ClassroomEvents.QuestionStatsSnapshot snapshot() {
+            return new ClassroomEvents.QuestionStatsSnapshot(key.questionId(), type, version, answeredCount,
+                    new ArrayList<>(options.values()), new ArrayList<>(essayAnswers));
+        }
+
+        /**
+         * 与上次推送相比有变化时推进版本并返回增量，否则返回 null
+         */
+        synchronized ClassroomEvents.QuestionStatsDelta poll() {
+            if (type == null || TYPE_QUIZ.equals(type)) {
+                return null;
+            }
+            long count = answerTallyService.getAnswerCount(key.questionId());
+            if (count == answeredCount) {
+                return null;
+            }
+
+            List<Answer> addedAnswers = null;
+            List<ClassroomEvents.OptionCount> changedOptions = null;
+            List<AnswerStatisticsDTO> statistics = null;
+            if (TYPE_ESSAY.equals(type)) {
+                List<Answer> added = answerRepository
+                        .findByQuestionIdAndIdGreaterThanOrderByIdAsc(key.questionId(), lastEssayAnswerId);
+                if (!added.isEmpty()) {
+                    lastEssayAnswerId = added.get(added.size() - 1).getId();
+                    essayAnswers.addAll(added);
+                }
+                addedAnswers = added;
+            } else {
+                Map<String, AnswerStatisticsDTO> latest = new LinkedHashMap<>();
+                for (AnswerStatisticsDTO stat : answerTallyService.getStatistics(key.questionId())) {
+                    latest.put(stat.getOptionContent(), stat);
+                }
+                if (latest.keySet().equals(options.keySet())) {
+                    // 只发送计数变化的选项，百分比由客户端按 answeredCount 重新计算
+                    changedOptions = new ArrayList<>();
+                    for (Map.Entry<String, AnswerStatisticsDTO> entry : latest.entrySet()) {
+                        Long latestCount = entry.getValue().getCount();
+                        if (!latestCount.equals(options.get(entry.getKey()).getCount())) {
+                            changedOptions.add(new ClassroomEvents.OptionCount(entry.getKey(), latestCount));
+                        }
+                    }
+                } else {
+                    // 选项被修改过，发送完整统计
+                    statistics = new ArrayList<>(latest.values());
+                }
+                options = latest;
+            }
+
+            long baseVersion = version;
+            answeredCount = count;
+            version = versions.incrementAndGet();
+            return new ClassroomEvents.QuestionStatsDelta(key.questionId(), baseVersion, version, count,
+                    addedAnswers, changedOptions, statistics);
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.classync.websocket;
+
+/**
+ * 节点间转发的广播事件：来源节点 + 来源节点本次启动的纪元 + 纪元内递增的序号构成事件 id。
+ * 节点重启后序号从 1 重新开始，纪元随之变化，接收端据此区分新旧事件
+ */
+public record RelayEvent(String originNodeId, long originEpoch, long sequence, String destination, String contentType,
+        byte[] payload) {
+
+    public String eventId() {
+        return originNodeId + ":" + originEpoch + ":" + sequence;
+    }
+}
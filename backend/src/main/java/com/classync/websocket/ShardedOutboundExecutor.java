@@ -0,0 +1,300 @@
+package com.classync.websocket;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.messaging.support.MessageHandlingRunnable;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.adapter.NativeWebSocketSession;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 按课堂分片的出站执行器（clientOutboundChannel）
+ * 每个课堂的消息固定交给同一个分片线程池，繁忙课堂不会占用其他课堂的发送线程；
+ * 每个会话有独立的有界发送队列，同一会话的消息串行发送（保证顺序），队列满时按策略丢弃新消息或断开连接。
+ * 单次发送阻塞超过 stall-timeout 的会话被判定为卡死并断开（底层阻塞写也设置同样的超时），
+ * 慢客户端占用分片线程的时间因此有上限；客户端重连后按最后收到的序号补发缺失的事件
+ */
+public class ShardedOutboundExecutor extends ThreadPoolTaskExecutor {
+
+    /** 会话发送队列满时的处理策略 */
+    public enum OverflowPolicy {
+        DROP, DISCONNECT
+    }
+
+    private static final Pattern CLASSROOM_DESTINATION = Pattern.compile("/classroom/(\\d+)(/|$)");
+    /** 每次调度最多连续发送的消息数，避免单个会话长期占用线程 */
+    private static final int DRAIN_BATCH = 32;
+    /** Tomcat 阻塞写超时（毫秒），超时后发送线程抛出异常返回 */
+    private static final String TOMCAT_BLOCKING_SEND_TIMEOUT = "org.apache.tomcat.websocket.BLOCKING_SEND_TIMEOUT";
+
+    private final Executor[] shards;
+    private final int sessionQueueCapacity;
+    private final OverflowPolicy overflowPolicy;
+    private final long stallTimeoutMs;
+    // 会话登记时建立发送队列，关闭时移除；未登记的会话不会再建立队列
+    private final Map<String, SessionQueue> queues = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService watchdog;
+    // 关闭会话可能阻塞（要先发送关闭帧），不放在看门狗线程上执行
+    private final ExecutorService closer;
+
+    private final Counter droppedCounter;
+    private final Counter disconnectedCounter;
+    private final Counter stalledCounter;
+
+    /**
+     * @param virtualThreads 为 true 时每个分片为每次发送创建虚拟线程（需要 Java 21），threadsPerShard 不再生效
+     * @param stallTimeoutMs 单次发送的最长阻塞时间，超过后断开该会话
+     */
+    public ShardedOutboundExecutor(int shardCount, int threadsPerShard, int sessionQueueCapacity,
+            OverflowPolicy overflowPolicy, long stallTimeoutMs, boolean virtualThreads, MeterRegistry meterRegistry) {
+        this.shards = new Executor[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            String prefix = "ws-outbound-" + i + "-";
+            if (virtualThreads) {
+                shards[i] = new VirtualThreadTaskExecutor(prefix);
+                continue;
+            }
+            shards[i] = Executors.newFixedThreadPool(threadsPerShard, daemonThreads(prefix));
+        }
+        this.sessionQueueCapacity = sessionQueueCapacity;
+        this.overflowPolicy = overflowPolicy;
+        this.stallTimeoutMs = stallTimeoutMs;
+        this.watchdog = Executors.newSingleThreadScheduledExecutor(daemonThreads("ws-outbound-watchdog-"));
+        this.closer = Executors.newCachedThreadPool(daemonThreads("ws-outbound-closer-"));
+        long checkIntervalMs = Math.max(100, stallTimeoutMs / 4);
+        watchdog.scheduleWithFixedDelay(this::closeStalledSessions, checkIntervalMs, checkIntervalMs,
+                TimeUnit.MILLISECONDS);
+        this.droppedCounter = Counter.builder("websocket.outbound.dropped")
+                .description("发送队列已满被丢弃的消息数")
+                .register(meterRegistry);
+        this.disconnectedCounter = Counter.builder("websocket.outbound.disconnected")
+                .description("发送队列已满被断开的会话数")
+                .register(meterRegistry);
+        this.stalledCounter = Counter.builder("websocket.outbound.stalled")
+                .description("单次发送阻塞超时被断开的会话数")
+                .register(meterRegistry);
+        setThreadNamePrefix("ws-outbound-");
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        Message<?> message = task instanceof MessageHandlingRunnable runnable ? runnable.getMessage() : null;
+        String sessionId = message != null ? SimpMessageHeaderAccessor.getSessionId(message.getHeaders()) : null;
+        if (sessionId == null) {
+            shards[0].execute(task);
+            return;
+        }
+
+        Executor shard = shardFor(message, sessionId);
+        SessionQueue queue = queues.get(sessionId);
+        if (queue == null) {
+            // 会话已关闭（或尚未登记），直接发送
+            shard.execute(task);
+            return;
+        }
+        if (!queue.offer(task, shard)) {
+            overflow(queue, message);
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        watchdog.shutdownNow();
+        closer.shutdownNow();
+        for (Executor shard : shards) {
+            if (shard instanceof ExecutorService service) {
+                service.shutdownNow();
+            }
+        }
+        super.shutdown();
+    }
+
+    /**
+     * 登记 WebSocket 会话并建立发送队列；底层 Tomcat 会话的阻塞写超时设为 stall-timeout
+     */
+    public void registerSession(WebSocketSession session) {
+        if (session instanceof NativeWebSocketSession nativeSession) {
+            jakarta.websocket.Session tomcatSession = nativeSession.getNativeSession(jakarta.websocket.Session.class);
+            if (tomcatSession != null) {
+                tomcatSession.getUserProperties().put(TOMCAT_BLOCKING_SEND_TIMEOUT, stallTimeoutMs);
+            }
+        }
+        queues.put(session.getId(), new SessionQueue(session));
+    }
+
+    /**
+     * 连接关闭后移除会话的发送队列
+     */
+    public void unregisterSession(String sessionId) {
+        queues.remove(sessionId);
+    }
+
+    private Executor shardFor(Message<?> message, String sessionId) {
+        String destination = SimpMessageHeaderAccessor.getDestination(message.getHeaders());
+        if (destination != null) {
+            Matcher matcher = CLASSROOM_DESTINATION.matcher(destination);
+            if (matcher.find()) {
+                return shards[Math.floorMod(Long.hashCode(Long.parseLong(matcher.group(1))), shards.length)];
+            }
+        }
+        return shards[Math.floorMod(sessionId.hashCode(), shards.length)];
+    }
+
+    private void overflow(SessionQueue queue, Message<?> message) {
+        if (overflowPolicy == OverflowPolicy.DROP) {
+            droppedCounter.increment();
+            // 丢弃带序号的课堂事件后，客户端收到下一条事件时发现序号缺口，会重新加入课堂补齐
+            if (queue.markDropped()) {
+                boolean sequenced = SimpMessageHeaderAccessor.getFirstNativeHeader(
+                        ClassroomEventLog.SEQ_HEADER, message.getHeaders()) != null;
+                System.err.println("[WebSocket] Session " + queue.session.getId() + " send queue full, dropping "
+                        + (sequenced ? "sequenced classroom events" : "messages") + " until it drains");
+            }
+            return;
+        }
+        if (queue.close()) {
+            disconnectedCounter.increment();
+            System.err.println("[WebSocket] Session " + queue.session.getId() + " send queue full, disconnecting");
+            close(queue.session);
+        }
+    }
+
+    /**
+     * 断开单次发送阻塞超过 stall-timeout 的会话，释放其占用的分片线程
+     */
+    private void closeStalledSessions() {
+        long now = System.nanoTime();
+        long limitNanos = TimeUnit.MILLISECONDS.toNanos(stallTimeoutMs);
+        for (SessionQueue queue : queues.values()) {
+            long since = queue.sendingSince;
+            if (since != 0 && now - since > limitNanos && queue.close()) {
+                stalledCounter.increment();
+                System.err.println("[WebSocket] Session " + queue.session.getId() + " blocked a send for over "
+                        + stallTimeoutMs + "ms, disconnecting");
+                close(queue.session);
+            }
+        }
+    }
+
+    private void close(WebSocketSession session) {
+        if (!session.isOpen()) {
+            return;
+        }
+        closer.execute(() -> {
+            try {
+                session.close(CloseStatus.SESSION_NOT_RELIABLE);
+            } catch (Exception e) {
+                System.err.println("[WebSocket] Failed to close slow session " + session.getId() + ": "
+                        + e.getMessage());
+            }
+        });
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger threadIndex = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * 单个会话的有界串行队列：同一时刻最多一个线程在为该会话发送
+     */
+    private class SessionQueue {
+        private final WebSocketSession session;
+        private final Queue<Runnable> tasks = new ArrayDeque<>();
+        private boolean scheduled;
+        private boolean closed;
+        private long dropped;
+        // 当前这次发送开始的时间（System.nanoTime），空闲时为 0，供看门狗判断是否卡死
+        private volatile long sendingSince;
+
+        SessionQueue(WebSocketSession session) {
+            this.session = session;
+        }
+
+        synchronized boolean offer(Runnable task, Executor shard) {
+            if (closed) {
+                // 会话正在断开，丢弃后续消息，避免再次阻塞在这个连接上
+                return true;
+            }
+            if (tasks.size() >= sessionQueueCapacity) {
+                return false;
+            }
+            tasks.add(task);
+            if (!scheduled) {
+                scheduled = true;
+                shard.execute(() -> drain(shard));
+            }
+            return true;
+        }
+
+        /**
+         * 记录一次丢弃，返回是否为本轮队列满后的第一次
+         */
+        synchronized boolean markDropped() {
+            return dropped++ == 0;
+        }
+
+        /**
+         * 标记会话正在断开并清空队列，返回是否为第一次标记
+         */
+        synchronized boolean close() {
+            tasks.clear();
+            if (closed) {
+                return false;
+            }
+            closed = true;
+            return true;
+        }
+
+        private void drain(Executor shard) {
+            for (int i = 0; i < DRAIN_BATCH; i++) {
+                Runnable task;
+                synchronized (this) {
+                    task = tasks.poll();
+                    if (task == null) {
+                        scheduled = false;
+                        if (dropped > 0) {
+                            System.err.println("[WebSocket] Session " + session.getId() + " send queue drained after "
+                                    + "dropping " + dropped + " messages");
+                            dropped = 0;
+                        }
+                        return;
+                    }
+                }
+                sendingSince = System.nanoTime();
+                try {
+                    task.run();
+                } catch (Exception e) {
+                    System.err.println("[WebSocket] Outbound send failed for session " + session.getId() + ": "
+                            + e.getMessage());
+                } finally {
+                    sendingSince = 0;
+                }
+            }
+            // 还有剩余消息时重新排队，让同一分片的其他会话有机会发送
+            shard.execute(() -> drain(shard));
+        }
+    }
+}
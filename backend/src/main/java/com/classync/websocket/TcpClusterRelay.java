@@ -0,0 +1,346 @@
+package com.classync.websocket;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * 基于 TCP 的全互联事件转发
+ * 每个节点在 cluster.relay.bind-address:port 上监听，并主动连接 cluster.relay.peers 中的每个节点，只在自己发起的连接上发送。
+ * 单条 TCP 连接内按顺序写入、由单个线程读取，因此同一来源节点的事件按顺序到达；
+ * 接收端按来源节点记录已投递的位置（纪元 + 序号），重复或过期的事件直接丢弃，来源节点重启后的新纪元从头接收。
+ * 连接建立后先做共享密钥的挑战应答（监听端发送随机数，连接端回复 HMAC-SHA256），未通过的连接直接关闭；
+ * 单条事件超过 max-frame-bytes 时断开连接，不按对端声明的长度分配内存
+ */
+@Component
+@ConditionalOnProperty(name = "cluster.relay.type", havingValue = "tcp")
+public class TcpClusterRelay implements ClusterRelay {
+
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    private static final int NONCE_BYTES = 32;
+    private static final int MAC_BYTES = 32;
+
+    @Value("${cluster.node-id:}")
+    private String configuredNodeId;
+
+    @Value("${cluster.relay.bind-address:127.0.0.1}")
+    private String bindAddress;
+
+    @Value("${cluster.relay.port:9400}")
+    private int port;
+
+    @Value("${cluster.relay.peers:}")
+    private List<String> peers;
+
+    @Value("${cluster.relay.secret:}")
+    private String secret;
+
+    @Value("${cluster.relay.max-frame-bytes:1048576}")
+    private int maxFrameBytes;
+
+    @Value("${cluster.relay.handshake-timeout-ms:5000}")
+    private int handshakeTimeoutMs;
+
+    @Value("${cluster.relay.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${cluster.relay.reconnect-interval-ms:1000}")
+    private long reconnectIntervalMs;
+
+    private String nodeId;
+    private SecretKeySpec key;
+    private ServerSocket serverSocket;
+    private volatile boolean running;
+    private final SecureRandom random = new SecureRandom();
+    private final List<PeerLink> links = new ArrayList<>();
+    private final List<Consumer<RelayEvent>> handlers = new CopyOnWriteArrayList<>();
+    private final Map<String, Position> lastDelivered = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void start() throws IOException {
+        if (secret == null || secret.isBlank()) {
+            throw new IllegalStateException("cluster.relay.secret must be set when cluster.relay.type=tcp");
+        }
+        key = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), HMAC_ALGORITHM);
+        nodeId = configuredNodeId == null || configuredNodeId.isBlank()
+                ? UUID.randomUUID().toString()
+                : configuredNodeId;
+        running = true;
+
+        serverSocket = new ServerSocket();
+        serverSocket.bind(new InetSocketAddress(InetAddress.getByName(bindAddress), port));
+        startDaemon("cluster-relay-accept", this::acceptLoop);
+
+        for (String peer : peers) {
+            if (peer.isBlank()) {
+                continue;
+            }
+            String[] hostPort = peer.trim().split(":");
+            PeerLink link = new PeerLink(hostPort[0], Integer.parseInt(hostPort[1]));
+            links.add(link);
+            startDaemon("cluster-relay-peer-" + peer.trim(), link::writeLoop);
+        }
+        System.out.println("[ClusterRelay] Node " + nodeId + " listening on " + bindAddress + ":" + port
+                + ", peers " + peers);
+    }
+
+    @PreDestroy
+    public void stop() throws IOException {
+        running = false;
+        serverSocket.close();
+        links.forEach(PeerLink::close);
+    }
+
+    @Override
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    @Override
+    public void publish(RelayEvent event) {
+        if (event.payload().length > maxFrameBytes) {
+            // 对端会因超长断开连接，连同同批的其他事件一起丢失
+            System.err.println("[ClusterRelay] Event " + event.eventId() + " of " + event.payload().length
+                    + " bytes exceeds " + maxFrameBytes + ", not relaying");
+            return;
+        }
+        for (PeerLink link : links) {
+            if (!link.queue.offer(event)) {
+                System.err.println("[ClusterRelay] Queue to " + link.host + ":" + link.port
+                        + " is full, dropping event " + event.eventId());
+            }
+        }
+    }
+
+    @Override
+    public void onEvent(Consumer<RelayEvent> handler) {
+        handlers.add(handler);
+    }
+
+    private void acceptLoop() {
+        while (running) {
+            try {
+                Socket socket = serverSocket.accept();
+                startDaemon("cluster-relay-reader-" + socket.getRemoteSocketAddress(), () -> readLoop(socket));
+            } catch (IOException e) {
+                if (running) {
+                    System.err.println("[ClusterRelay] Accept failed: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void readLoop(Socket socket) {
+        try (socket; DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()))) {
+            if (!authenticate(socket, in)) {
+                System.err.println("[ClusterRelay] Rejected unauthenticated connection from "
+                        + socket.getRemoteSocketAddress());
+                return;
+            }
+            while (running) {
+                String origin = in.readUTF();
+                long epoch = in.readLong();
+                long sequence = in.readLong();
+                String destination = in.readUTF();
+                String contentType = in.readUTF();
+                int length = in.readInt();
+                if (length < 0 || length > maxFrameBytes) {
+                    System.err.println("[ClusterRelay] Frame of " + length + " bytes from "
+                            + socket.getRemoteSocketAddress() + " exceeds " + maxFrameBytes + ", closing");
+                    return;
+                }
+                byte[] payload = new byte[length];
+                in.readFully(payload);
+                deliver(new RelayEvent(origin, epoch, sequence, destination,
+                        contentType.isEmpty() ? null : contentType, payload));
+            }
+        } catch (EOFException e) {
+            // 对端关闭连接
+        } catch (IOException e) {
+            if (running) {
+                System.err.println("[ClusterRelay] Connection from " + socket.getRemoteSocketAddress()
+                        + " failed: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 监听端：发送随机数，在 handshake-timeout 内收到正确的 HMAC 才接受该连接
+     */
+    private boolean authenticate(Socket socket, DataInputStream in) throws IOException {
+        byte[] nonce = new byte[NONCE_BYTES];
+        random.nextBytes(nonce);
+        socket.setSoTimeout(handshakeTimeoutMs);
+        socket.getOutputStream().write(nonce);
+        socket.getOutputStream().flush();
+        byte[] received = new byte[MAC_BYTES];
+        in.readFully(received);
+        socket.setSoTimeout(0);
+        return MessageDigest.isEqual(mac(nonce), received);
+    }
+
+    private byte[] mac(byte[] nonce) {
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(key);
+            return mac.doFinal(nonce);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 not available", e);
+        }
+    }
+
+    private void deliver(RelayEvent event) {
+        if (nodeId.equals(event.originNodeId())) {
+            return;
+        }
+        // 按来源节点去重：同一纪元只投递序号更大的事件；更新的纪元说明来源节点已重启，从头接收；旧纪元的事件丢弃
+        boolean[] fresh = new boolean[1];
+        lastDelivered.compute(event.originNodeId(), (origin, last) -> {
+            if (last != null && (event.originEpoch() < last.epoch()
+                    || event.originEpoch() == last.epoch() && event.sequence() <= last.sequence())) {
+                return last;
+            }
+            fresh[0] = true;
+            return new Position(event.originEpoch(), event.sequence());
+        });
+        if (!fresh[0]) {
+            return;
+        }
+        for (Consumer<RelayEvent> handler : handlers) {
+            try {
+                handler.accept(event);
+            } catch (Exception e) {
+                System.err.println("[ClusterRelay] Failed to deliver event " + event.eventId() + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private static void startDaemon(String name, Runnable task) {
+        Thread thread = new Thread(task, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /** 某个来源节点已投递到的位置 */
+    private record Position(long epoch, long sequence) {
+    }
+
+    /**
+     * 到单个对端节点的发送连接，断开后自动重连（断开期间正在写入的事件会丢失）
+     */
+    private class PeerLink {
+        private final String host;
+        private final int port;
+        private final BlockingQueue<RelayEvent> queue = new ArrayBlockingQueue<>(queueCapacity);
+        private volatile Socket socket;
+
+        PeerLink(String host, int port) {
+            this.host = host;
+            this.port = port;
+        }
+
+        void writeLoop() {
+            List<RelayEvent> batch = new ArrayList<>();
+            while (running) {
+                try (Socket connected = new Socket(host, port);
+                     DataOutputStream out = new DataOutputStream(new BufferedOutputStream(connected.getOutputStream()))) {
+                    socket = connected;
+                    connected.setTcpNoDelay(true);
+                    respond(connected, out);
+                    System.out.println("[ClusterRelay] Connected to peer " + host + ":" + port);
+                    while (running) {
+                        RelayEvent first = queue.poll(1, TimeUnit.SECONDS);
+                        if (first == null) {
+                            continue;
+                        }
+                        batch.add(first);
+                        queue.drainTo(batch);
+                        for (RelayEvent event : batch) {
+                            write(out, event);
+                        }
+                        out.flush();
+                        batch.clear();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (IOException e) {
+                    batch.clear();
+                    if (running) {
+                        sleepBeforeReconnect();
+                    }
+                }
+            }
+        }
+
+        /**
+         * 连接端：读取对端的随机数并回复 HMAC
+         */
+        private void respond(Socket connected, DataOutputStream out) throws IOException {
+            connected.setSoTimeout(handshakeTimeoutMs);
+            byte[] nonce = new byte[NONCE_BYTES];
+            new DataInputStream(connected.getInputStream()).readFully(nonce);
+            connected.setSoTimeout(0);
+            out.write(mac(nonce));
+            out.flush();
+        }
+
+        private void write(DataOutputStream out, RelayEvent event) throws IOException {
+            out.writeUTF(event.originNodeId());
+            out.writeLong(event.originEpoch());
+            out.writeLong(event.sequence());
+            out.writeUTF(event.destination());
+            out.writeUTF(event.contentType() == null ? "" : event.contentType());
+            out.writeInt(event.payload().length);
+            out.write(event.payload());
+        }
+
+        private void sleepBeforeReconnect() {
+            try {
+                Thread.sleep(reconnectIntervalMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        void close() {
+            Socket current = socket;
+            if (current != null) {
+                try {
+                    current.close();
+                } catch (IOException ignored) {
+                    // 关闭时忽略
+                }
+            }
+        }
+    }
+}
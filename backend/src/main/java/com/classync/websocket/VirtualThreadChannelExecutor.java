@@ -0,0 +1,40 @@
+package com.classync.websocket;
+
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+
+/**
+ * 每个任务一个新的虚拟线程，不做池化
+ * STOMP 通道注册只接受 ThreadPoolTaskExecutor，这里沿用其类型，但所有任务都交给 VirtualThreadTaskExecutor，
+ * 父类的线程池从不接收任务（需要 Java 21）
+ */
+public class VirtualThreadChannelExecutor extends ThreadPoolTaskExecutor {
+
+    private final VirtualThreadTaskExecutor delegate;
+
+    public VirtualThreadChannelExecutor(String threadNamePrefix) {
+        this.delegate = new VirtualThreadTaskExecutor(threadNamePrefix);
+        setThreadNamePrefix(threadNamePrefix);
+        setCorePoolSize(1);
+        setMaxPoolSize(1);
+        setQueueCapacity(0);
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        delegate.execute(task);
+    }
+
+    @Override
+    public Future<?> submit(Runnable task) {
+        return delegate.submit(task);
+    }
+
+    @Override
+    public <T> Future<T> submit(Callable<T> task) {
+        return delegate.submit(task);
+    }
+}
@@ -1,78 +1,66 @@
 package com.classync.websocket;
 
-import com.classync.entity.Classroom;
 import com.classync.entity.Question;
 import com.classync.service.ClassroomService;
-import com.classync.service.PageLockService;
 import com.classync.service.QuestionService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.messaging.handler.annotation.DestinationVariable;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.handler.annotation.Payload;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.annotation.SubscribeMapping;
 import org.springframework.stereotype.Controller;
 
-import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 
 @Controller
 @RequiredArgsConstructor
 public class WebSocketController {
 
-    private final SimpMessagingTemplate messagingTemplate;
+    private final ClassroomEventPublisher eventPublisher;
     private final ClassroomService classroomService;
     private final QuestionService questionService;
-    private final PageLockService pageLockService;
-
-    // 事件常量
-    private static final String EVENT_CLASSROOM_STATE = "CLASSROOM_STATE";
-    private static final String EVENT_PAGE_UPDATE = "PAGE_UPDATE";
-    private static final String EVENT_QUESTION_OPENED = "QUESTION_OPENED";
-    private static final String EVENT_QUESTION_CLOSED = "QUESTION_CLOSED";
-    private static final String EVENT_QUESTION_FINISHED = "QUESTION_FINISHED";
-    private static final String EVENT_ANSWER_SUBMITTED = "ANSWER_SUBMITTED";
-    private static final String EVENT_DISCUSSION_NEW = "DISCUSSION_NEW";
-    private static final String EVENT_DISPLAY_CODE_TOGGLE = "DISPLAY_CODE_TOGGLE";
-    private static final String EVENT_PAGE_LOCK_UPDATE = "PAGE_LOCK_UPDATE";
-    private static final String EVENT_PAGE_LOCK_BATCH = "PAGE_LOCK_BATCH";
-    private static final String EVENT_PAGE_LOCK_BATCH_UNLOCK = "PAGE_LOCK_BATCH_UNLOCK";
-    private static final String EVENT_DISPLAY_QUESTION = "DISPLAY_QUESTION";
+    private final AnswerBroadcastCoalescer answerBroadcastCoalescer;
+    private final QuestionStatsPublisher questionStatsPublisher;
+    private final ClassroomSnapshotCache classroomSnapshotCache;
+    private final ClassroomEventLog classroomEventLog;
 
+    private static final String CLASSROOM_STATE_QUEUE = "/queue/classroom-state";
+
+    /**
+     * 加入课堂：回复只发给加入的会话（/user/queue/classroom-state），不再广播给整个课堂。
+     * 重连时请求带上 stream 和 lastSeq，日志仍保留缺失的事件时只补发这些事件，否则回复完整状态
+     */
     @MessageMapping("/join_classroom")
-    public void joinClassroom(@Payload Map<String, Object> request) {
+    public void joinClassroom(@Payload Map<String, Object> request, SimpMessageHeaderAccessor headerAccessor) {
         Long classroomId = Long.valueOf(request.get("classroomId").toString());
-
-        // 获取课堂当前状态
-        Classroom classroom = classroomService.getClassroomById(classroomId).orElse(null);
-        if (classroom == null) {
-            return;
+        String sessionId = headerAccessor.getSessionId();
+
+        Object stream = request.get("stream");
+        Object lastSeq = request.get("lastSeq");
+        if (stream != null && lastSeq != null) {
+            ClassroomEventLog.Replay replay = classroomEventLog.since(
+                    classroomId, stream.toString(), Long.parseLong(lastSeq.toString()));
+            if (replay != null) {
+                for (ClassroomEventLog.Event event : replay.events()) {
+                    eventPublisher.sendToSession(sessionId, CLASSROOM_STATE_QUEUE, event.frame(),
+                            new ClassroomEventLog.Position(replay.stream(), event.seq()));
+                }
+                WebSocketMessage resumed = WebSocketMessage.of(ClassroomEvents.CLASSROOM_RESUMED, classroomId,
+                        new ClassroomEvents.ClassroomResumed(replay.seq(), replay.events().size()));
+                eventPublisher.sendToSession(sessionId, CLASSROOM_STATE_QUEUE, eventPublisher.encode(resumed),
+                        new ClassroomEventLog.Position(replay.stream(), replay.seq()));
+                return;
+            }
         }
 
-        List<Question> openQuestions = questionService.getQuestionsByClassroomId(classroomId)
-                .stream()
-                .filter(Question::getIsOpen)
-                .toList();
-
-        // 获取页面锁定状态
-        Map<Integer, Boolean> pageLocks = pageLockService.getPageLocksByClassroom(classroomId);
-
-        Map<String, Object> payload = new HashMap<>();
-        payload.put("currentPage", classroom.getCurrentPage());
-        payload.put("openQuestions", openQuestions);
-        payload.put("pageLocks", pageLocks);
-
-        // 添加问题展示状态
-        if (classroom.getDisplayQuestionId() != null) {
-            payload.put("displayQuestionId", classroom.getDisplayQuestionId());
-            payload.put("displayQuestionMode", classroom.getDisplayQuestionMode());
+        // 课堂状态快照（按版本缓存，状态未变化时不重新查询）
+        ClassroomSnapshotCache.Snapshot snapshot = classroomSnapshotCache.get(classroomId);
+        if (snapshot == null) {
+            return;
         }
 
-        WebSocketMessage response = WebSocketMessage.of(
-                EVENT_CLASSROOM_STATE,
-                classroomId,
-                payload);
-
-        messagingTemplate.convertAndSend("/topic/classroom/" + classroomId, response);
+        eventPublisher.sendToSession(sessionId, CLASSROOM_STATE_QUEUE, snapshot.frame(), snapshot.position());
     }
 
     @MessageMapping("/page_change")
@@ -85,12 +73,8 @@ public class WebSocketController {
         classroomService.updateCurrentPage(classroomId, pageNumber);
 
         // 广播页码更新（轻量级）
-        WebSocketMessage response = WebSocketMessage.of(
-                EVENT_PAGE_UPDATE,
-                classroomId,
-                Map.of("pageNumber", pageNumber));
-
-        messagingTemplate.convertAndSend("/topic/classroom/" + classroomId, response);
+        eventPublisher.broadcast(classroomId, ClassroomEvents.PAGE_UPDATE,
+                new ClassroomEvents.PageUpdate(pageNumber));
     }
 
     @MessageMapping("/question_toggle")
@@ -108,19 +92,14 @@ public class WebSocketController {
         }
 
         // 根据当前状态发送对应事件
-        String event = question.getIsOpen() ? EVENT_QUESTION_OPENED : EVENT_QUESTION_CLOSED;
-
-        // 轻量级payload
-        Map<String, Object> payload = new HashMap<>();
-        payload.put("questionId", questionId);
-        payload.put("isOpen", question.getIsOpen());
+        String event = question.getIsOpen() ? ClassroomEvents.QUESTION_OPENED : ClassroomEvents.QUESTION_CLOSED;
 
         System.out.println(
                 "Broadcasting " + event + " for question " + questionId + " with isOpen=" + question.getIsOpen());
 
-        WebSocketMessage response = WebSocketMessage.of(event, classroomId, payload);
-
-        messagingTemplate.convertAndSend("/topic/classroom/" + classroomId, response);
+        // 轻量级payload
+        eventPublisher.broadcast(classroomId, event,
+                new ClassroomEvents.QuestionToggled(questionId, question.getIsOpen()));
     }
 
     @MessageMapping("/question_finish")
@@ -132,54 +111,38 @@ public class WebSocketController {
         questionService.finishQuestion(questionId);
 
         // 轻量级payload
-        WebSocketMessage response = WebSocketMessage.of(
-                EVENT_QUESTION_FINISHED,
-                classroomId,
-                Map.of("questionId", questionId));
-
-        messagingTemplate.convertAndSend("/topic/classroom/" + classroomId, response);
+        eventPublisher.broadcast(classroomId, ClassroomEvents.QUESTION_FINISHED,
+                new ClassroomEvents.QuestionFinished(questionId));
     }
 
     @MessageMapping("/answer_submit")
     public void answerSubmit(@Payload Map<String, Object> request) {
         Long classroomId = Long.valueOf(request.get("classroomId").toString());
         Map<String, Object> data = (Map<String, Object>) request.get("data");
+        Long questionId = Long.valueOf(data.get("questionId").toString());
 
-        // 广播答案更新（轻量级）
-        WebSocketMessage response = WebSocketMessage.of(
-                EVENT_ANSWER_SUBMITTED,
-                classroomId,
-                Map.of("questionId", data.get("questionId")));
-
-        messagingTemplate.convertAndSend("/topic/classroom/" + classroomId, response);
+        // 合并窗口内的提交后再广播（携带已作答人数和选项统计）
+        answerBroadcastCoalescer.submitted(classroomId, questionId);
     }
 
-    @MessageMapping("/discussion_new")
-    public void discussionNew(@Payload Map<String, Object> request) {
-        Long classroomId = Long.valueOf(request.get("classroomId").toString());
-        Map<String, Object> data = (Map<String, Object>) request.get("data");
-
-        // 广播新讨论
-        WebSocketMessage response = WebSocketMessage.of(
-                EVENT_DISCUSSION_NEW,
-                classroomId,
-                data);
-
-        messagingTemplate.convertAndSend("/topic/classroom/" + classroomId, response);
+    /**
+     * 问题实时统计快照，直接回复给订阅者（之后的增量在 /topic 下的同名目的地推送）
+     */
+    @SubscribeMapping("/classroom/{classroomId}/question/{questionId}/stats")
+    public WebSocketMessage questionStatsSnapshot(@DestinationVariable Long classroomId,
+            @DestinationVariable Long questionId) {
+        return questionStatsPublisher.snapshot(classroomId, questionId);
     }
 
     @MessageMapping("/display_code_toggle")
     public void displayCodeToggle(@Payload Map<String, Object> request) {
         Long classroomId = Long.valueOf(request.get("classroomId").toString());
         Map<String, Object> data = (Map<String, Object>) request.get("data");
+        Boolean show = (Boolean) data.get("show");
 
         // 广播展示课堂码切换状态
-        WebSocketMessage response = WebSocketMessage.of(
-                EVENT_DISPLAY_CODE_TOGGLE,
-                classroomId,
-                data);
-
-        messagingTemplate.convertAndSend("/topic/classroom/" + classroomId, response);
+        eventPublisher.broadcast(classroomId, ClassroomEvents.DISPLAY_CODE_TOGGLE,
+                new ClassroomEvents.DisplayCodeToggle(show));
     }
 
     @MessageMapping("/page_lock_toggle")
@@ -190,42 +153,8 @@ public class WebSocketController {
         Boolean isLocked = (Boolean) data.get("isLocked");
 
         // 广播页面锁定状态更新
-        WebSocketMessage response = WebSocketMessage.of(
-                EVENT_PAGE_LOCK_UPDATE,
-                classroomId,
-                Map.of("pageNumber", pageNumber, "isLocked", isLocked));
-
-        messagingTemplate.convertAndSend("/topic/classroom/" + classroomId, response);
-    }
-
-    @MessageMapping("/page_lock_batch")
-    public void pageLockBatch(@Payload Map<String, Object> request) {
-        Long classroomId = Long.valueOf(request.get("classroomId").toString());
-        Map<String, Object> data = (Map<String, Object>) request.get("data");
-
-        // 广播批量锁定
-        WebSocketMessage response = WebSocketMessage.of(
-                EVENT_PAGE_LOCK_BATCH,
-                classroomId,
-                data);
-
-        messagingTemplate.convertAndSend("/topic/classroom/" + classroomId, response);
-    }
-
-    @MessageMapping("/page_lock_batch_unlock")
-    public void pageLockBatchUnlock(@Payload Map<String, Object> request) {
-        Long classroomId = Long.valueOf(request.get("classroomId").toString());
-        Map<String, Object> data = (Map<String, Object>) request.get("data");
-
-        System.out.println("[WebSocket] Broadcasting batch unlock: " + data);
-
-        // 广播批量解锁
-        WebSocketMessage response = WebSocketMessage.of(
-                EVENT_PAGE_LOCK_BATCH_UNLOCK,
-                classroomId,
-                data);
-
-        messagingTemplate.convertAndSend("/topic/classroom/" + classroomId, response);
+        eventPublisher.broadcast(classroomId, ClassroomEvents.PAGE_LOCK_UPDATE,
+                new ClassroomEvents.PageLockUpdate(pageNumber, isLocked));
     }
 
     /**
@@ -236,14 +165,15 @@ public class WebSocketController {
         Long classroomId = Long.valueOf(request.get("classroomId").toString());
         Map<String, Object> data = (Map<String, Object>) request.get("data");
 
+        Long questionId = data.get("questionId") != null ? Long.valueOf(data.get("questionId").toString()) : null;
+        Integer subQuestionIndex = data.get("subQuestionIndex") != null
+                ? Integer.valueOf(data.get("subQuestionIndex").toString())
+                : null;
+
         System.out.println("[WebSocket] Broadcasting display question: " + data);
 
         // 广播到放映页
-        WebSocketMessage response = WebSocketMessage.of(
-                EVENT_DISPLAY_QUESTION,
-                classroomId,
-                data);
-
-        messagingTemplate.convertAndSend("/topic/classroom/" + classroomId, response);
+        eventPublisher.broadcast(classroomId, ClassroomEvents.DISPLAY_QUESTION,
+                new ClassroomEvents.DisplayQuestion(questionId, (String) data.get("mode"), subQuestionIndex));
     }
 }
@@ -0,0 +1,22 @@
+package com.classync.config;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DataSourceGuardConfigTest {
+
+    @Test
+    void defaultsToHalfTheCarrierThreadsWithinThePool() {
+        assertThat(DataSourceGuardConfig.resolveMaxConcurrent(null, 10, 8)).isEqualTo(4);
+        assertThat(DataSourceGuardConfig.resolveMaxConcurrent(null, 10, 32)).isEqualTo(10);
+        assertThat(DataSourceGuardConfig.resolveMaxConcurrent(null, 10, 1)).isEqualTo(1);
+    }
+
+    @Test
+    void clampsConfiguredValueToThePool() {
+        assertThat(DataSourceGuardConfig.resolveMaxConcurrent(6, 10, 8)).isEqualTo(6);
+        assertThat(DataSourceGuardConfig.resolveMaxConcurrent(50, 10, 8)).isEqualTo(10);
+        assertThat(DataSourceGuardConfig.resolveMaxConcurrent(0, 10, 8)).isEqualTo(1);
+    }
+}
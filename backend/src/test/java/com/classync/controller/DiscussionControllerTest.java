@@ -0,0 +1,44 @@
+package com.classync.controller;
+
+import com.classync.dto.DiscussionRequest;
+import com.classync.entity.Discussion;
+import com.classync.service.DiscussionService;
+import com.classync.service.RateLimitExceededException;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class DiscussionControllerTest {
+
+    private final DiscussionService discussionService = mock(DiscussionService.class);
+    private final DiscussionController controller = new DiscussionController(discussionService);
+
+    @Test
+    void rateLimitedDiscussionReturns429() {
+        when(discussionService.createDiscussion(any(Discussion.class)))
+                .thenThrow(new RateLimitExceededException("too fast"));
+
+        assertThat(controller.createDiscussion(request()).getStatusCode()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+    }
+
+    @Test
+    void otherIllegalStateIsNotReportedAsRateLimit() {
+        when(discussionService.createDiscussion(any(Discussion.class)))
+                .thenThrow(new IllegalStateException("broken"));
+
+        assertThatThrownBy(() -> controller.createDiscussion(request())).isInstanceOf(IllegalStateException.class);
+    }
+
+    private static DiscussionRequest request() {
+        DiscussionRequest request = new DiscussionRequest();
+        request.setClassroomId(1L);
+        request.setUserId(2L);
+        request.setContent("hello");
+        return request;
+    }
+}
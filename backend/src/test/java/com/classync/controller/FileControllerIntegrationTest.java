@@ -0,0 +1,212 @@
+package com.classync.controller;
+
+import com.classync.ClassyncApplication;
+import com.classync.entity.Classroom;
+import com.classync.repository.ClassroomRepository;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 通过真实的 Tomcat 连接器（NIO，文件体走 sendfile）下载上传文件：
+ * 完整下载、单段 Range（206）、条件请求（304）和无法满足的 Range（416），
+ * 以及原文件和完整课件只提供给主讲人
+ */
+class FileControllerIntegrationTest {
+
+    private static final int LARGE_SIZE = 512 * 1024;
+    private static final int SMALL_SIZE = 4 * 1024;
+    private static final Long HOST_ID = 7L;
+    private static final Long STUDENT_ID = 8L;
+
+    @TempDir
+    static Path uploads;
+
+    private static ConfigurableApplicationContext context;
+    private static HttpClient client;
+    private static String serverUrl;
+    private static String baseUrl;
+    private static Long classroomId;
+    private static String largeName;
+    private static byte[] large;
+    private static String smallName;
+    private static byte[] small;
+
+    @BeforeAll
+    static void start() throws IOException {
+        large = randomBytes(LARGE_SIZE, 1);
+        largeName = UUID.randomUUID() + ".pdf";
+        Files.write(uploads.resolve(largeName), large);
+        small = randomBytes(SMALL_SIZE, 2);
+        smallName = "notes.pdf";
+        Files.write(uploads.resolve(smallName), small);
+
+        context = new SpringApplicationBuilder(ClassyncApplication.class).run(
+                "--server.port=0",
+                "--spring.datasource.url=jdbc:h2:mem:files-" + UUID.randomUUID(),
+                "--spring.jpa.show-sql=false",
+                "--upload.path=" + uploads);
+        serverUrl = "http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort();
+        baseUrl = serverUrl + "/uploads/";
+        client = HttpClient.newHttpClient();
+        classroomId = createClassroom("FILES1", largeName);
+        createClassroom("FILES2", smallName);
+        // 主讲人请求不存在或不安全的文件名时同样 404
+        createClassroom("FILES3", "missing.pdf");
+        createClassroom("FILES4", ".hidden");
+    }
+
+    @AfterAll
+    static void stop() {
+        context.close();
+    }
+
+    @Test
+    void fullDownloadReturnsBodyWithValidators() throws Exception {
+        HttpResponse<byte[]> response = get(largeName);
+
+        assertThat(response.statusCode()).isEqualTo(200);
+        assertThat(response.body()).isEqualTo(large);
+        assertThat(response.headers().firstValue("Content-Length")).hasValue(String.valueOf(LARGE_SIZE));
+        assertThat(response.headers().firstValue("Content-Type")).hasValue("application/pdf");
+        assertThat(response.headers().firstValue("Accept-Ranges")).hasValue("bytes");
+        assertThat(response.headers().firstValue("ETag")).hasValueSatisfying(etag -> assertThat(etag).startsWith("\""));
+        assertThat(response.headers().firstValue("Last-Modified")).isPresent();
+        // UUID 命名的文件不会被覆盖，按不可变资源缓存；其他名称每次协商
+        assertThat(response.headers().firstValue("Cache-Control"))
+                .hasValue("private, max-age=31536000, immutable");
+        assertThat(get(smallName).headers().firstValue("Cache-Control")).hasValue("no-cache");
+    }
+
+    @Test
+    void byteRangeReturnsPartialContent() throws Exception {
+        HttpResponse<byte[]> response = get(largeName, "Range", "bytes=1000-65535");
+
+        assertThat(response.statusCode()).isEqualTo(206);
+        assertThat(response.headers().firstValue("Content-Range")).hasValue("bytes 1000-65535/" + LARGE_SIZE);
+        assertThat(response.headers().firstValue("Content-Length")).hasValue(String.valueOf(65536 - 1000));
+        assertThat(response.body()).isEqualTo(Arrays.copyOfRange(large, 1000, 65536));
+    }
+
+    @Test
+    void suffixAndOpenRangesOnSmallFile() throws Exception {
+        HttpResponse<byte[]> suffix = get(smallName, "Range", "bytes=-100");
+        assertThat(suffix.statusCode()).isEqualTo(206);
+        assertThat(suffix.headers().firstValue("Content-Range"))
+                .hasValue("bytes " + (SMALL_SIZE - 100) + "-" + (SMALL_SIZE - 1) + "/" + SMALL_SIZE);
+        assertThat(suffix.body()).isEqualTo(Arrays.copyOfRange(small, SMALL_SIZE - 100, SMALL_SIZE));
+
+        HttpResponse<byte[]> open = get(smallName, "Range", "bytes=4000-");
+        assertThat(open.statusCode()).isEqualTo(206);
+        assertThat(open.body()).isEqualTo(Arrays.copyOfRange(small, 4000, SMALL_SIZE));
+    }
+
+    @Test
+    void matchingValidatorsReturnNotModified() throws Exception {
+        HttpResponse<byte[]> first = get(largeName);
+        String etag = first.headers().firstValue("ETag").orElseThrow();
+        String lastModified = first.headers().firstValue("Last-Modified").orElseThrow();
+
+        HttpResponse<byte[]> byEtag = get(largeName, "If-None-Match", etag);
+        assertThat(byEtag.statusCode()).isEqualTo(304);
+        assertThat(byEtag.body()).isEmpty();
+        assertThat(byEtag.headers().firstValue("ETag")).hasValue(etag);
+
+        assertThat(get(largeName, "If-Modified-Since", lastModified).statusCode()).isEqualTo(304);
+        assertThat(get(largeName, "If-None-Match", "\"other\"").statusCode()).isEqualTo(200);
+    }
+
+    @Test
+    void unsatisfiableRangeReturns416() throws Exception {
+        HttpResponse<byte[]> response = get(largeName, "Range", "bytes=" + LARGE_SIZE + "-");
+
+        assertThat(response.statusCode()).isEqualTo(416);
+        assertThat(response.headers().firstValue("Content-Range")).hasValue("bytes */" + LARGE_SIZE);
+    }
+
+    @Test
+    void staleIfRangeReturnsFullFile() throws Exception {
+        HttpResponse<byte[]> response = get(largeName, "Range", "bytes=0-99", "If-Range", "\"stale\"");
+
+        assertThat(response.statusCode()).isEqualTo(200);
+        assertThat(response.body()).isEqualTo(large);
+    }
+
+    @Test
+    void missingOrHiddenFilesAreNotServed() throws Exception {
+        Files.writeString(uploads.resolve(".hidden"), "secret");
+
+        assertThat(get("missing.pdf").statusCode()).isEqualTo(404);
+        assertThat(get(".hidden").statusCode()).isEqualTo(404);
+    }
+
+    @Test
+    void uploadsAreOnlyServedToTheHost() throws Exception {
+        assertThat(send(baseUrl + largeName).statusCode()).isEqualTo(404);
+        assertThat(send(baseUrl + largeName + "?userId=" + STUDENT_ID).statusCode()).isEqualTo(404);
+    }
+
+    @Test
+    void fullDeckIsOnlyServedToTheHost() throws Exception {
+        String deck = serverUrl + "/api/classrooms/" + classroomId + "/pdf?userId=";
+
+        HttpResponse<byte[]> host = send(deck + HOST_ID);
+        assertThat(host.statusCode()).isEqualTo(200);
+        assertThat(host.body()).isEqualTo(large);
+        assertThat(send(deck + STUDENT_ID).statusCode()).isEqualTo(403);
+    }
+
+    @Test
+    void classroomJsonDoesNotExposeFileName() throws Exception {
+        String json = new String(send(serverUrl + "/api/classrooms/" + classroomId).body());
+
+        assertThat(json).contains("\"hasPdf\":true").doesNotContain("pdfPath").doesNotContain(largeName);
+    }
+
+    private static HttpResponse<byte[]> get(String filename, String... headers) throws Exception {
+        return send(baseUrl + filename + "?userId=" + HOST_ID, headers);
+    }
+
+    private static HttpResponse<byte[]> send(String url, String... headers) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(url)).GET();
+        for (int i = 0; i < headers.length; i += 2) {
+            request.header(headers[i], headers[i + 1]);
+        }
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+    }
+
+    private static Long createClassroom(String classCode, String pdfPath) {
+        Classroom classroom = new Classroom();
+        classroom.setName(classCode);
+        classroom.setStartTime(LocalDateTime.now().minusHours(1));
+        classroom.setEndTime(LocalDateTime.now().plusHours(2));
+        classroom.setClassCode(classCode);
+        classroom.setHostUserId(HOST_ID);
+        classroom.setPdfPath(pdfPath);
+        return context.getBean(ClassroomRepository.class).save(classroom).getId();
+    }
+
+    private static byte[] randomBytes(int size, long seed) {
+        byte[] bytes = new byte[size];
+        new Random(seed).nextBytes(bytes);
+        return bytes;
+    }
+}
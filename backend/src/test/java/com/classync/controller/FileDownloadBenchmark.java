@@ -0,0 +1,149 @@
+package com.classync.controller;
+
+import com.classync.ClassyncApplication;
+import com.classync.entity.Classroom;
+import com.classync.repository.ClassroomRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * FileController 与原先的 /uploads/** 静态资源映射（ResourceHttpRequestHandler）的下载吞吐对比：
+ * 多个并发客户端反复完整下载同一份 PDF，以及按 pdf.js 的方式随机读取 64 KB 区间。
+ * 原映射在本测试中以 /legacy-uploads/** 注册。只在 -Dbenchmark=true 时运行
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class FileDownloadBenchmark {
+
+    private static final int FILE_SIZE = 8 * 1024 * 1024;
+    private static final int RANGE_SIZE = 64 * 1024;
+    private static final int CLIENTS = 32;
+    private static final int FULL_DOWNLOADS = 400;
+    private static final int RANGE_REQUESTS = 8000;
+    private static final int ROUNDS = 4;
+    private static final Long HOST_ID = 1L;
+
+    @TempDir
+    Path uploads;
+
+    @Test
+    void compareWithResourceHandler() throws Exception {
+        String filename = UUID.randomUUID() + ".pdf";
+        byte[] content = new byte[FILE_SIZE];
+        new Random(1).nextBytes(content);
+        Files.write(uploads.resolve(filename), content);
+
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(
+                ClassyncApplication.class, LegacyUploadHandler.class).run(
+                "--server.port=0",
+                "--spring.datasource.url=jdbc:h2:mem:download-" + UUID.randomUUID(),
+                "--spring.jpa.show-sql=false",
+                "--upload.path=" + uploads)) {
+            String base = "http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort();
+            // 上传文件只提供给引用它的课堂的主讲人
+            Classroom classroom = new Classroom();
+            classroom.setName("Benchmark");
+            classroom.setStartTime(LocalDateTime.now().minusHours(1));
+            classroom.setEndTime(LocalDateTime.now().plusHours(2));
+            classroom.setClassCode("BENCH2");
+            classroom.setHostUserId(HOST_ID);
+            classroom.setPdfPath(filename);
+            context.getBean(ClassroomRepository.class).save(classroom);
+            String query = "?userId=" + HOST_ID;
+            HttpClient client = HttpClient.newHttpClient();
+            ExecutorService clients = Executors.newFixedThreadPool(CLIENTS);
+            try {
+                for (String prefix : new String[] { "/uploads/", "/legacy-uploads/" }) {
+                    // 预热
+                    run(clients, client, base + prefix + filename + query, FULL_DOWNLOADS / 4, false);
+                    run(clients, client, base + prefix + filename + query, RANGE_REQUESTS / 4, true);
+                }
+                // 先后顺序对结果影响明显（连接复用、JIT），每轮交换顺序
+                for (int round = 0; round < ROUNDS; round++) {
+                    String[] order = round % 2 == 0
+                            ? new String[] { "/uploads/", "/legacy-uploads/" }
+                            : new String[] { "/legacy-uploads/", "/uploads/" };
+                    for (String prefix : order) {
+                        String url = base + prefix + filename + query;
+                        String full = run(clients, client, url, FULL_DOWNLOADS, false);
+                        String ranges = run(clients, client, url, RANGE_REQUESTS, true);
+                        System.out.println("[FileDownloadBenchmark] round " + round + " " + prefix
+                                + " full: " + full + ", 64KB ranges: " + ranges);
+                    }
+                }
+            } finally {
+                clients.shutdownNow();
+            }
+        }
+    }
+
+    private static String run(ExecutorService clients, HttpClient client, String url, int requests, boolean ranged)
+            throws Exception {
+        AtomicLong remaining = new AtomicLong(requests);
+        AtomicLong bytes = new AtomicLong();
+        List<Future<?>> workers = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int i = 0; i < CLIENTS; i++) {
+            workers.add(clients.submit(() -> {
+                while (remaining.getAndDecrement() > 0) {
+                    HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(url)).GET();
+                    int expected = 200;
+                    if (ranged) {
+                        long offset = ThreadLocalRandom.current().nextLong(FILE_SIZE - RANGE_SIZE);
+                        request.header("Range", "bytes=" + offset + "-" + (offset + RANGE_SIZE - 1));
+                        expected = 206;
+                    }
+                    HttpResponse<Void> response = client.send(request.build(), HttpResponse.BodyHandlers.discarding());
+                    assertThat(response.statusCode()).isEqualTo(expected);
+                    bytes.addAndGet(response.headers().firstValueAsLong("Content-Length").orElseThrow());
+                }
+                return null;
+            }));
+        }
+        for (Future<?> worker : workers) {
+            worker.get();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        return String.format("%.0f req/s, %.1f MB/s", requests / seconds, bytes.get() / seconds / (1024 * 1024));
+    }
+
+    /**
+     * 原 WebConfig 中的上传文件映射，挂在另一个路径下作对比
+     */
+    static class LegacyUploadHandler implements WebMvcConfigurer {
+
+        @Value("${upload.path}")
+        private String uploadPath;
+
+        @Override
+        public void addResourceHandlers(ResourceHandlerRegistry registry) {
+            registry.addResourceHandler("/legacy-uploads/**")
+                    .addResourceLocations("file:" + uploadPath + "/");
+        }
+    }
+}
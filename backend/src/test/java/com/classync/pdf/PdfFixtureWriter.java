@@ -0,0 +1,166 @@
+package com.classync.pdf;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.Deflater;
+
+/**
+ * 测试用的最小 PDF 生成器：按顺序写出对象，再以交叉引用表或交叉引用流结束一个段；
+ * 在已结束的文件后继续写对象和新段即为增量更新（新段的 /Prev 指向上一段）
+ */
+final class PdfFixtureWriter {
+
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    /** 当前段写出的对象：对象号 -> {类型, 偏移或对象流号, 流内序号} */
+    private final Map<Integer, long[]> section = new TreeMap<>();
+    private int size;
+    private long lastXref = -1;
+
+    PdfFixtureWriter() {
+        write("%PDF-1.5\n%âãÏÓ\n");
+    }
+
+    PdfFixtureWriter object(int number, String body) {
+        begin(number);
+        write(body);
+        write("\nendobj\n");
+        return this;
+    }
+
+    PdfFixtureWriter stream(int number, String dict, byte[] data) {
+        begin(number);
+        write("<< " + dict + " /Length " + data.length + " >>\nstream\n");
+        out.writeBytes(data);
+        write("\nendstream\nendobj\n");
+        return this;
+    }
+
+    /**
+     * 把若干对象压缩进一个对象流（/Type /ObjStm），交叉引用中记为类型 2
+     */
+    PdfFixtureWriter objectStream(int number, Map<Integer, String> objects) {
+        StringBuilder header = new StringBuilder();
+        StringBuilder body = new StringBuilder();
+        for (Map.Entry<Integer, String> entry : objects.entrySet()) {
+            header.append(entry.getKey()).append(' ').append(body.length()).append(' ');
+            body.append(entry.getValue()).append('\n');
+        }
+        byte[] data = (header.toString() + body).getBytes(StandardCharsets.ISO_8859_1);
+        stream(number, "/Type /ObjStm /N " + objects.size() + " /First " + header.length() + " /Filter /FlateDecode",
+                deflate(data));
+        int index = 0;
+        for (Integer member : objects.keySet()) {
+            section.put(member, new long[] { 2, number, index++ });
+            size = Math.max(size, member + 1);
+        }
+        return this;
+    }
+
+    /**
+     * 以交叉引用表结束当前段，每段连续的对象号写成一个子段
+     */
+    PdfFixtureWriter xrefTable(int rootNumber) {
+        long xref = out.size();
+        StringBuilder table = new StringBuilder("xref\n");
+        if (lastXref < 0) {
+            section.put(0, null);
+        }
+        List<List<Integer>> runs = new ArrayList<>();
+        int previous = -2;
+        for (int number : section.keySet()) {
+            if (number != previous + 1) {
+                runs.add(new ArrayList<>());
+            }
+            runs.get(runs.size() - 1).add(number);
+            previous = number;
+        }
+        for (List<Integer> run : runs) {
+            table.append(run.get(0)).append(' ').append(run.size()).append('\n');
+            for (Integer number : run) {
+                long[] entry = section.get(number);
+                table.append(entry == null ? "0000000000 65535 f\r\n" : String.format("%010d 00000 n\r\n", entry[1]));
+            }
+        }
+        write(table.toString());
+        write("trailer\n<< " + trailer(rootNumber) + " >>\n");
+        return finish(xref);
+    }
+
+    /**
+     * 以交叉引用流（/W [1 4 2]，FlateDecode + PNG Up 预测器）结束当前段
+     */
+    PdfFixtureWriter xrefStream(int number, int rootNumber) {
+        long xref = out.size();
+        section.put(number, new long[] { 1, xref, 0 });
+        size = Math.max(size, number + 1);
+        int columns = 7;
+        List<Integer> numbers = new ArrayList<>(section.keySet());
+        ByteArrayOutputStream rows = new ByteArrayOutputStream();
+        byte[] previous = new byte[columns];
+        for (Integer member : numbers) {
+            long[] entry = section.get(member);
+            byte[] row = new byte[columns];
+            row[0] = (byte) entry[0];
+            for (int i = 0; i < 4; i++) {
+                row[1 + i] = (byte) (entry[1] >>> (24 - 8 * i));
+            }
+            row[5] = (byte) (entry[2] >>> 8);
+            row[6] = (byte) entry[2];
+            rows.write(2);
+            for (int i = 0; i < columns; i++) {
+                rows.write(row[i] - previous[i]);
+            }
+            previous = row;
+        }
+        StringBuilder index = new StringBuilder();
+        for (Integer member : numbers) {
+            index.append(member).append(" 1 ");
+        }
+        stream(number, "/Type /XRef " + trailer(rootNumber) + " /W [1 4 2] /Index [" + index.toString().trim()
+                        + "] /Filter /FlateDecode /DecodeParms << /Predictor 12 /Columns " + columns + " >>",
+                deflate(rows.toByteArray()));
+        return finish(xref);
+    }
+
+    byte[] toByteArray() {
+        return out.toByteArray();
+    }
+
+    static byte[] deflate(byte[] data) {
+        Deflater deflater = new Deflater();
+        deflater.setInput(data);
+        deflater.finish();
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        while (!deflater.finished()) {
+            compressed.write(buffer, 0, deflater.deflate(buffer));
+        }
+        deflater.end();
+        return compressed.toByteArray();
+    }
+
+    private String trailer(int rootNumber) {
+        return "/Size " + size + " /Root " + rootNumber + " 0 R" + (lastXref >= 0 ? " /Prev " + lastXref : "");
+    }
+
+    private PdfFixtureWriter finish(long xref) {
+        write("startxref\n" + xref + "\n%%EOF\n");
+        section.clear();
+        lastXref = xref;
+        return this;
+    }
+
+    private void begin(int number) {
+        section.put(number, new long[] { 1, out.size(), 0 });
+        size = Math.max(size, number + 1);
+        write(number + " 0 obj\n");
+    }
+
+    private void write(String text) {
+        out.writeBytes(text.getBytes(StandardCharsets.ISO_8859_1));
+    }
+}
@@ -0,0 +1,171 @@
+package com.classync.pdf;
+
+import com.classync.pdf.PdfParser.Name;
+import com.classync.pdf.PdfParser.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 用生成的小型 PDF 覆盖四种交叉引用结构：交叉引用表、交叉引用流、对象流和增量更新。
+ * 拆分后检查页数、每页内容，以及每个单页文件都能按其交叉引用表重新解析
+ */
+class PdfSplitterTest {
+
+    private static final String CATALOG = "<< /Type /Catalog /Pages 2 0 R >>";
+    private static final String FONT = "<< /Type /Font /Subtype /Type1 /BaseFont /Helvetica >>";
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void splitsClassicXrefTable() throws Exception {
+        PdfFixtureWriter pdf = new PdfFixtureWriter()
+                .object(1, CATALOG)
+                .object(2, pages(3, 4, 5))
+                .object(3, page(6)).object(4, page(7)).object(5, page(8));
+        contents(pdf, 6, "Page 1", "Page 2", "Page 3")
+                .object(9, FONT)
+                .xrefTable(1);
+
+        assertSplit(pdf, "Page 1", "Page 2", "Page 3");
+    }
+
+    @Test
+    void splitsXrefStream() throws Exception {
+        PdfFixtureWriter pdf = new PdfFixtureWriter()
+                .object(1, CATALOG)
+                .object(2, pages(3, 4, 5))
+                .object(3, page(6)).object(4, page(7)).object(5, page(8));
+        contents(pdf, 6, "Page 1", "Page 2", "Page 3")
+                .object(9, FONT)
+                .xrefStream(10, 1);
+
+        assertSplit(pdf, "Page 1", "Page 2", "Page 3");
+    }
+
+    @Test
+    void splitsPagesStoredInObjectStream() throws Exception {
+        Map<Integer, String> compressed = new LinkedHashMap<>();
+        compressed.put(1, CATALOG);
+        compressed.put(2, pages(3, 4, 5));
+        compressed.put(3, page(6));
+        compressed.put(4, page(7));
+        compressed.put(5, page(8));
+        compressed.put(9, FONT);
+        PdfFixtureWriter pdf = contents(new PdfFixtureWriter(), 6, "Page 1", "Page 2", "Page 3")
+                .objectStream(10, compressed)
+                .xrefStream(11, 1);
+
+        assertSplit(pdf, "Page 1", "Page 2", "Page 3");
+    }
+
+    @Test
+    void splitsIncrementalUpdate() throws Exception {
+        PdfFixtureWriter pdf = new PdfFixtureWriter()
+                .object(1, CATALOG)
+                .object(2, pages(3, 4, 5))
+                .object(3, page(6)).object(4, page(7)).object(5, page(8));
+        contents(pdf, 6, "Page 1", "Page 2", "Page 3")
+                .object(9, FONT)
+                .xrefTable(1);
+        // 更新段：替换第 3 页内容、追加第 4 页并改写页面树
+        pdf.object(2, pages(3, 4, 5, 10))
+                .stream(8, "", content("Page 3 revised"))
+                .object(10, page(11))
+                .stream(11, "", content("Page 4"))
+                .xrefTable(1);
+
+        assertSplit(pdf, "Page 1", "Page 2", "Page 3 revised", "Page 4");
+    }
+
+    @Test
+    void inflateStopsAtLimit() throws Exception {
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        byte[] zeros = new byte[1024 * 1024];
+        byte[] buffer = new byte[8192];
+        for (long written = 0; written <= PdfDocument.MAX_INFLATED_BYTES; written += zeros.length) {
+            deflater.setInput(zeros);
+            while (!deflater.needsInput()) {
+                compressed.write(buffer, 0, deflater.deflate(buffer));
+            }
+        }
+        deflater.finish();
+        while (!deflater.finished()) {
+            compressed.write(buffer, 0, deflater.deflate(buffer));
+        }
+        deflater.end();
+        Stream bomb = new Stream(Map.of("Filter", new Name("FlateDecode")), ByteBuffer.wrap(compressed.toByteArray()));
+
+        assertThatThrownBy(() -> PdfDocument.decode(bomb))
+                .isInstanceOf(PdfException.class)
+                .hasMessageContaining(String.valueOf(PdfDocument.MAX_INFLATED_BYTES));
+    }
+
+    private void assertSplit(PdfFixtureWriter pdf, String... expected) throws Exception {
+        Path source = dir.resolve("source.pdf");
+        Files.write(source, pdf.toByteArray());
+        PdfDocument original = PdfDocument.open(source);
+        assertThat(original.rebuilt()).isFalse();
+        assertThat(original.pages()).hasSize(expected.length);
+
+        Path target = dir.resolve("pages");
+        assertThat(PdfSplitter.split(source, target)).isEqualTo(expected.length);
+
+        for (int i = 0; i < expected.length; i++) {
+            PdfDocument single = PdfDocument.open(target.resolve((i + 1) + ".pdf"));
+            assertThat(single.rebuilt()).as("page %d xref", i + 1).isFalse();
+            List<PdfDocument.Page> pages = single.pages();
+            assertThat(pages).hasSize(1);
+            Map<String, Object> page = pages.get(0).dict();
+            Stream contents = (Stream) single.resolve(page.get("Contents"));
+            assertThat(new String(PdfDocument.decode(contents), StandardCharsets.ISO_8859_1))
+                    .contains("(" + expected[i] + ")");
+            // 继承自页面树的资源随页面写出
+            Map<?, ?> resources = (Map<?, ?>) single.resolve(page.get("Resources"));
+            Map<?, ?> fonts = (Map<?, ?>) single.resolve(resources.get("Font"));
+            Map<?, ?> font = (Map<?, ?>) single.resolve(fonts.get("F1"));
+            assertThat(font.get("BaseFont")).isEqualTo(new Name("Helvetica"));
+        }
+        try (java.util.stream.Stream<Path> files = Files.list(target)) {
+            assertThat(files.count()).isEqualTo(expected.length);
+        }
+    }
+
+    private static PdfFixtureWriter contents(PdfFixtureWriter pdf, int firstNumber, String... texts) {
+        for (int i = 0; i < texts.length; i++) {
+            pdf.stream(firstNumber + i, "", content(texts[i]));
+        }
+        return pdf;
+    }
+
+    private static String pages(int... kids) {
+        StringBuilder refs = new StringBuilder();
+        for (int kid : kids) {
+            refs.append(kid).append(" 0 R ");
+        }
+        return "<< /Type /Pages /Kids [" + refs.toString().trim() + "] /Count " + kids.length
+                + " /MediaBox [0 0 612 792] /Resources << /Font << /F1 9 0 R >> >> >>";
+    }
+
+    private static String page(int contents) {
+        return "<< /Type /Page /Parent 2 0 R /Contents " + contents + " 0 R >>";
+    }
+
+    private static byte[] content(String text) {
+        return ("BT /F1 24 Tf 72 720 Td (" + text + ") Tj ET").getBytes(StandardCharsets.ISO_8859_1);
+    }
+}
@@ -0,0 +1,134 @@
+package com.classync.service;
+
+import com.classync.dto.DiscussionWithUserDTO;
+import com.classync.entity.Discussion;
+import com.classync.repository.DiscussionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 并发创建讨论时 ID 乱序到达：增量读取只返回连续的前缀，轮询方不会跳过任何一条
+ */
+class DiscussionServiceTest {
+
+    private static final Long CLASSROOM_ID = 1L;
+
+    private final DiscussionRepository discussionRepository = mock(DiscussionRepository.class);
+    private final DiscussionRateLimiter rateLimiter = mock(DiscussionRateLimiter.class);
+    private final AtomicLong ids = new AtomicLong();
+    private DiscussionService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new DiscussionService(discussionRepository, mock(UserNameCache.class),
+                mock(ClassroomLiveStateService.class), rateLimiter, mock(ApplicationEventPublisher.class));
+        ReflectionTestUtils.setField(service, "recentCapacity", 1000);
+        when(rateLimiter.tryAcquire(anyLong(), anyLong())).thenReturn(true);
+    }
+
+    @Test
+    void laterIdIsHeldBackUntilEarlierSaveCompletes() throws Exception {
+        CountDownLatch assigned = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(discussionRepository.save(any(Discussion.class))).thenAnswer(invocation -> {
+            Discussion discussion = assign(invocation.getArgument(0));
+            if ("slow".equals(discussion.getContent())) {
+                assigned.countDown();
+                release.await(10, TimeUnit.SECONDS);
+            }
+            return discussion;
+        });
+        assertThat(service.getDiscussionsSince(CLASSROOM_ID, 0)).isEmpty();
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Discussion> slow = executor.submit(() -> service.createDiscussion(discussion("slow")));
+            assertThat(assigned.await(10, TimeUnit.SECONDS)).isTrue();
+            service.createDiscussion(discussion("fast"));
+
+            // ID 1 已分配但尚未写入缓冲，ID 2 不能先被读到
+            assertThat(service.getDiscussionsSince(CLASSROOM_ID, 0)).isEmpty();
+
+            release.countDown();
+            slow.get(10, TimeUnit.SECONDS);
+            assertThat(service.getDiscussionsSince(CLASSROOM_ID, 0))
+                    .extracting(DiscussionWithUserDTO::getId)
+                    .containsExactly(1L, 2L);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void pollerSeesEveryConcurrentlyCreatedDiscussion() throws Exception {
+        int writers = 8;
+        int perWriter = 50;
+        when(discussionRepository.save(any(Discussion.class))).thenAnswer(invocation -> {
+            Discussion discussion = assign(invocation.getArgument(0));
+            // 分配 ID 之后的耗时不同，写入缓冲的顺序与 ID 顺序不一致
+            Thread.sleep(ThreadLocalRandom.current().nextInt(3));
+            return discussion;
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(writers);
+        List<Long> polled = new ArrayList<>();
+        try {
+            for (int i = 0; i < writers; i++) {
+                executor.submit(() -> {
+                    for (int j = 0; j < perWriter; j++) {
+                        service.createDiscussion(discussion("message"));
+                    }
+                    return null;
+                });
+            }
+            long lastId = 0;
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+            while (polled.size() < writers * perWriter && System.nanoTime() < deadline) {
+                for (DiscussionWithUserDTO dto : service.getDiscussionsSince(CLASSROOM_ID, lastId)) {
+                    polled.add(dto.getId());
+                    lastId = dto.getId();
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(polled).containsExactlyElementsOf(
+                LongStream.rangeClosed(1, writers * perWriter).boxed().toList());
+    }
+
+    private Discussion assign(Discussion discussion) {
+        discussion.setId(ids.incrementAndGet());
+        discussion.setCreatedAt(LocalDateTime.now());
+        return discussion;
+    }
+
+    private static Discussion discussion(String content) {
+        Discussion discussion = new Discussion();
+        discussion.setClassroomId(CLASSROOM_ID);
+        discussion.setUserId(2L);
+        discussion.setContent(content);
+        discussion.setIsAnonymous(true);
+        return discussion;
+    }
+}
@@ -0,0 +1,72 @@
+package com.classync.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PageLockSetTest {
+
+    @Test
+    void rangesRoundTripThroughEncoding() {
+        PageLockSet set = PageLockSet.EMPTY
+                .withRange(1, 5, true)
+                .with(10, true)
+                .withRanges(List.of(new int[] { 20, 300 }), true);
+
+        assertThat(set.encode()).isEqualTo("1-5,10,20-300");
+        assertThat(PageLockSet.decode(set.encode()).toRanges())
+                .containsExactly(new int[] { 1, 5 }, new int[] { 10, 10 }, new int[] { 20, 300 });
+        assertThat(set.count()).isEqualTo(5 + 1 + 281);
+    }
+
+    @Test
+    void rejectsPagesBeyondTheMaximum() {
+        assertThatThrownBy(() -> PageLockSet.EMPTY.withRange(1, Integer.MAX_VALUE, true))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> PageLockSet.EMPTY.withRanges(List.of(new int[] { 1, 2_000_000_000 }), true))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> PageLockSet.EMPTY.with(PageLockSet.MAX_PAGE + 1, true))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> PageLockSet.EMPTY.with(0, true))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        PageLockSet all = PageLockSet.EMPTY.withRange(1, PageLockSet.MAX_PAGE, true);
+        assertThat(all.count()).isEqualTo(PageLockSet.MAX_PAGE);
+    }
+
+    @Test
+    void decodeIgnoresPagesBeyondTheMaximum() {
+        PageLockSet decoded = PageLockSet.decode("1-3,9999-2147483647,2000000000");
+
+        assertThat(decoded.toRanges()).containsExactly(new int[] { 1, 3 }, new int[] { 9999, PageLockSet.MAX_PAGE });
+    }
+
+    @Test
+    void worstCaseEncodingFitsTheColumn() {
+        int bound = 0;
+        for (int page = 1; page <= PageLockSet.MAX_PAGE; page++) {
+            bound += String.valueOf(page).length() + 1;
+        }
+        assertThat(PageLockSet.MAX_ENCODED_LENGTH).isEqualTo(bound);
+
+        // 每隔一页锁定一页（全部单页）以及每三页锁定两页（全部两页区间）
+        List<int[]> singles = new ArrayList<>();
+        List<int[]> pairs = new ArrayList<>();
+        for (int page = 1; page <= PageLockSet.MAX_PAGE; page++) {
+            if (page % 2 == 1) {
+                singles.add(new int[] { page, page });
+            }
+            if (page % 3 == 1) {
+                pairs.add(new int[] { page, Math.min(page + 1, PageLockSet.MAX_PAGE) });
+            }
+        }
+        assertThat(PageLockSet.EMPTY.withRanges(singles, true).encode().length())
+                .isLessThanOrEqualTo(PageLockSet.MAX_ENCODED_LENGTH);
+        assertThat(PageLockSet.EMPTY.withRanges(pairs, true).encode().length())
+                .isLessThanOrEqualTo(PageLockSet.MAX_ENCODED_LENGTH);
+    }
+}
@@ -0,0 +1,84 @@
+package com.classync.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class QuestionAggregatesTest {
+
+    private static final long SLOW = 1L;
+    private static final long FAST = 2L;
+
+    private final CountDownLatch loading = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    // 已落库的答案：慢加载读取的是开始加载时的快照
+    private final QuestionAggregates<Set<Long>, Long> aggregates = new QuestionAggregates<>(questionId -> {
+        Set<Long> loaded = ConcurrentHashMap.newKeySet();
+        loaded.add(100L);
+        if (questionId == SLOW) {
+            loading.countDown();
+            await(release);
+        }
+        return loaded;
+    }, Set::add);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void slowLoadDoesNotBlockOtherQuestions() throws Exception {
+        Future<Set<Long>> slow = executor.submit(() -> aggregates.get(SLOW));
+        assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(aggregates.get(FAST)).containsExactly(100L);
+
+        release.countDown();
+        assertThat(slow.get(5, TimeUnit.SECONDS)).containsExactly(100L);
+    }
+
+    @Test
+    void updateDuringLoadIsApplied() throws Exception {
+        Future<Set<Long>> slow = executor.submit(() -> aggregates.get(SLOW));
+        assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // 加载查询之后落库的答案
+        aggregates.update(SLOW, 101L);
+        release.countDown();
+
+        assertThat(slow.get(5, TimeUnit.SECONDS)).containsExactlyInAnyOrder(100L, 101L);
+        assertThat(aggregates.get(SLOW)).containsExactlyInAnyOrder(100L, 101L);
+    }
+
+    @Test
+    void removalDuringLoadIsNotOverwrittenByStaleResult() throws Exception {
+        Future<Set<Long>> slow = executor.submit(() -> aggregates.get(SLOW));
+        assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+
+        aggregates.remove(SLOW);
+        release.countDown();
+
+        assertThat(slow.get(5, TimeUnit.SECONDS)).containsExactly(100L);
+        assertThat(aggregates.peek(SLOW)).isNull();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.classync.service;
+
+import com.classync.repository.ClassroomRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class StorageSweeperTest {
+
+    private static final String SHA = "a".repeat(64);
+    private static final String OTHER_SHA = "b".repeat(64);
+
+    private final ClassroomRepository classroomRepository = mock(ClassroomRepository.class);
+    private final FileService fileService = mock(FileService.class);
+    private final PdfPageService pdfPageService = mock(PdfPageService.class);
+    private final PageRasterService pageRasterService = mock(PageRasterService.class);
+    private StorageSweeper sweeper;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        sweeper = new StorageSweeper(classroomRepository, fileService, pdfPageService, pageRasterService,
+                new SimpleMeterRegistry());
+        sweeper.start();
+        when(fileService.deleteUnclaimed(anyString(), anyLong())).thenReturn(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        sweeper.stop();
+    }
+
+    @Test
+    void releaseReturnsWithoutWaitingForLegacyHashing() throws Exception {
+        CountDownLatch hashing = new CountDownLatch(1);
+        when(classroomRepository.findDistinctPdfPaths()).thenReturn(List.of("legacy.pdf"));
+        when(fileService.sha256Of("released.pdf")).thenReturn(SHA);
+        when(fileService.sha256Of("legacy.pdf")).thenAnswer(invocation -> {
+            hashing.await(10, TimeUnit.SECONDS);
+            return OTHER_SHA;
+        });
+
+        long started = System.nanoTime();
+        sweeper.release("released.pdf");
+        assertThat(Duration.ofNanos(System.nanoTime() - started)).isLessThan(Duration.ofSeconds(1));
+
+        hashing.countDown();
+        verify(pageRasterService, timeout(5000)).evictKey(SHA);
+        verify(pdfPageService).evict("released.pdf");
+    }
+
+    @Test
+    void releaseKeepsRastersWhileSameContentIsReferenced() throws Exception {
+        String released = "released.pdf";
+        String copy = SHA + ".pdf";
+        when(classroomRepository.findDistinctPdfPaths()).thenReturn(List.of(copy));
+        when(fileService.sha256Of(released)).thenReturn(SHA);
+        when(fileService.sha256Of(copy)).thenReturn(SHA);
+
+        sweeper.release(released);
+
+        verify(pdfPageService, timeout(5000)).evict(released);
+        await().during(Duration.ofMillis(200)).atMost(Duration.ofSeconds(1))
+                .untilAsserted(() -> verify(pageRasterService, never()).evictKey(SHA));
+    }
+}
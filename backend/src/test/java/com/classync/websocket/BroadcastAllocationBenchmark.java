@@ -0,0 +1,108 @@
+package com.classync.websocket;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.broker.SimpleBrokerMessageHandler;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+import org.springframework.messaging.support.MessageBuilder;
+
+import java.lang.management.ManagementFactory;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 课堂广播在 1 / 100 / 1000 个订阅会话下每次广播分配的字节数
+ * 覆盖 ClassroomEventPublisher 编码和 simple broker 按会话分发到出站通道（同步通道，出站处理器不做实际发送），
+ * 分配量由当前线程的 ThreadMXBean 统计。只在 -Dbenchmark=true 时运行
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class BroadcastAllocationBenchmark {
+
+    private static final Long CLASSROOM_ID = 1L;
+    private static final int WARMUP = 20_000;
+    private static final int MEASURED_MESSAGES = 2_000_000;
+
+    @Test
+    void bytesAllocatedPerBroadcast() {
+        for (int subscribers : new int[] { 1, 100, 1000 }) {
+            Result result = measure(subscribers);
+            System.out.printf("[BroadcastAllocationBenchmark] subscribers=%d bytes/broadcast=%d bytes/subscriber=%d"
+                            + " distinct payload arrays=%d%n",
+                    subscribers, result.bytesPerBroadcast(), result.bytesPerBroadcast() / subscribers,
+                    result.distinctPayloads());
+            // 每次广播只编码一次，所有会话共享同一个 payload 数组
+            assertThat(result.distinctPayloads()).isEqualTo(result.broadcasts());
+        }
+    }
+
+    private static Result measure(int subscribers) {
+        ExecutorSubscribableChannel clientInbound = new ExecutorSubscribableChannel();
+        ExecutorSubscribableChannel clientOutbound = new ExecutorSubscribableChannel();
+        ExecutorSubscribableChannel brokerChannel = new ExecutorSubscribableChannel();
+        SimpleBrokerMessageHandler broker = new SimpleBrokerMessageHandler(
+                clientInbound, clientOutbound, brokerChannel, List.of("/topic"));
+        broker.start();
+
+        Map<Object, Boolean> payloads = new IdentityHashMap<>();
+        boolean[] recording = new boolean[1];
+        clientOutbound.subscribe(message -> {
+            if (recording[0]) {
+                payloads.put(message.getPayload(), Boolean.TRUE);
+            }
+        });
+        for (int i = 0; i < subscribers; i++) {
+            broker.handleMessage(connect("session-" + i));
+            broker.handleMessage(subscribe("session-" + i));
+        }
+
+        ClassroomEventPublisher publisher =
+                new ClassroomEventPublisher(new SimpMessagingTemplate(brokerChannel), new ObjectMapper());
+        for (int i = 0; i < WARMUP; i++) {
+            publisher.broadcast(CLASSROOM_ID, ClassroomEvents.PAGE_UPDATE, new ClassroomEvents.PageUpdate(i));
+        }
+
+        int broadcasts = Math.max(100, MEASURED_MESSAGES / subscribers);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long before = threads.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < broadcasts; i++) {
+            publisher.broadcast(CLASSROOM_ID, ClassroomEvents.PAGE_UPDATE, new ClassroomEvents.PageUpdate(i));
+        }
+        long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+
+        // 单独一轮记录 payload 身份，不计入分配量
+        recording[0] = true;
+        int recorded = 100;
+        for (int i = 0; i < recorded; i++) {
+            publisher.broadcast(CLASSROOM_ID, ClassroomEvents.PAGE_UPDATE, new ClassroomEvents.PageUpdate(i));
+        }
+        broker.stop();
+        return new Result(allocated / broadcasts, recorded, payloads.size());
+    }
+
+    private static Message<byte[]> connect(String sessionId) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.CONNECT);
+        accessor.setSessionId(sessionId);
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+
+    private static Message<byte[]> subscribe(String sessionId) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.SUBSCRIBE);
+        accessor.setSessionId(sessionId);
+        accessor.setSubscriptionId("sub-0");
+        accessor.setDestination("/topic/classroom/" + CLASSROOM_ID);
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+
+    private record Result(long bytesPerBroadcast, int broadcasts, int distinctPayloads) {
+    }
+}
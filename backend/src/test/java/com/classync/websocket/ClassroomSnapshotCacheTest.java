@@ -0,0 +1,94 @@
+package com.classync.websocket;
+
+import com.classync.entity.Classroom;
+import com.classync.service.ClassroomLiveStateService;
+import com.classync.service.PageLockService;
+import com.classync.service.PageLockSet;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ClassroomSnapshotCacheTest {
+
+    private static final Long CLASSROOM_ID = 1L;
+    private static final int LOG_CAPACITY = 16;
+
+    private final ClassroomLiveStateService liveStateService = mock(ClassroomLiveStateService.class);
+    private final PageLockService pageLockService = mock(PageLockService.class);
+    private ClassroomEventLog eventLog;
+    private ClassroomSnapshotCache cache;
+
+    @BeforeEach
+    void setUp() {
+        eventLog = new ClassroomEventLog(liveStateService);
+        ReflectionTestUtils.setField(eventLog, "capacity", LOG_CAPACITY);
+        ClassroomEventPublisher publisher = new ClassroomEventPublisher(
+                new SimpMessagingTemplate(new ExecutorSubscribableChannel()), new ObjectMapper());
+        cache = new ClassroomSnapshotCache(liveStateService, pageLockService, publisher, eventLog);
+
+        Classroom classroom = new Classroom();
+        classroom.setId(CLASSROOM_ID);
+        classroom.setCurrentPage(3);
+        when(liveStateService.getSnapshotVersion(CLASSROOM_ID)).thenReturn(7L);
+        when(liveStateService.getClassroom(CLASSROOM_ID)).thenReturn(Optional.of(classroom));
+        when(liveStateService.getOpenQuestions(CLASSROOM_ID)).thenReturn(List.of());
+        when(pageLockService.getPageLocksByClassroom(CLASSROOM_ID)).thenReturn(PageLockSet.of(List.of()));
+    }
+
+    @Test
+    void cachedSnapshotStartsAtCurrentPosition() {
+        ClassroomSnapshotCache.Snapshot first = cache.get(CLASSROOM_ID);
+
+        // 答题、讨论等事件推进序号但不改变快照版本，数量超过日志容量
+        for (int i = 0; i < LOG_CAPACITY * 3; i++) {
+            append("{\"event\":\"answer_submitted\"}");
+        }
+        ClassroomSnapshotCache.Snapshot joined = cache.get(CLASSROOM_ID);
+
+        assertThat(joined.frame()).isSameAs(first.frame());
+        assertThat(joined.position()).isEqualTo(eventLog.position(CLASSROOM_ID));
+        assertThat(joined.position().seq()).isEqualTo(LOG_CAPACITY * 3);
+        // 下一条事件紧接快照位置，客户端不会判定缺口；按该位置重连也能补发
+        assertThat(append("{\"event\":\"page_update\"}")).isEqualTo(joined.position().seq() + 1);
+        assertThat(eventLog.since(CLASSROOM_ID, joined.position().stream(), joined.position().seq()))
+                .isNotNull();
+        verify(liveStateService, times(1)).getClassroom(CLASSROOM_ID);
+    }
+
+    @Test
+    void versionChangeRebuildsSnapshot() {
+        ClassroomSnapshotCache.Snapshot first = cache.get(CLASSROOM_ID);
+        when(liveStateService.getSnapshotVersion(CLASSROOM_ID)).thenReturn(8L);
+
+        ClassroomSnapshotCache.Snapshot rebuilt = cache.get(CLASSROOM_ID);
+
+        assertThat(rebuilt.version()).isEqualTo(8L);
+        assertThat(rebuilt.frame()).isNotSameAs(first.frame());
+        verify(liveStateService, times(2)).getClassroom(CLASSROOM_ID);
+    }
+
+    private long append(String frame) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setDestination("/topic/classroom/" + CLASSROOM_ID);
+        Message<byte[]> message = MessageBuilder.createMessage(frame.getBytes(), accessor.getMessageHeaders());
+        Message<?> sequenced = eventLog.preSend(message, null);
+        return Long.parseLong(SimpMessageHeaderAccessor.wrap(sequenced)
+                .getFirstNativeHeader(ClassroomEventLog.SEQ_HEADER));
+    }
+}
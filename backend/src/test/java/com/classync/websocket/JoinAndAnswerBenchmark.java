@@ -0,0 +1,216 @@
+package com.classync.websocket;
+
+import com.classync.ClassyncApplication;
+import com.classync.entity.Classroom;
+import com.classync.entity.Question;
+import com.classync.repository.ClassroomRepository;
+import com.classync.repository.QuestionRepository;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.SubProtocolWebSocketHandler;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+
+import java.lang.reflect.Type;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * 平台线程与虚拟线程模式下的加入课堂 + 提交答案基准（默认 2000 个客户端）
+ * 所有客户端先建立 STOMP 连接，然后同时加入同一课堂、收到课堂状态后通过 REST 提交答案并发送 answer_submit，
+ * 记录加入和提交的延迟分布。耗时较长，只在 -Dbenchmark=true 时运行，客户端数可用 -Dbenchmark.clients 调整；
+ * 虚拟线程模式需要 Java 21
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class JoinAndAnswerBenchmark {
+
+    private static final int CLIENTS = Integer.getInteger("benchmark.clients", 2000);
+    private static final int CONNECT_CONCURRENCY = 64;
+    private static final Duration TIMEOUT = Duration.ofMinutes(2);
+    private static final Map<String, String> RESULTS = new ConcurrentHashMap<>();
+
+    @TempDir
+    Path uploads;
+
+    @Test
+    void platformThreads() throws Exception {
+        RESULTS.put("platform", run(false));
+    }
+
+    @Test
+    void virtualThreads() throws Exception {
+        assumeTrue(Runtime.version().feature() >= 21, "virtual threads need Java 21");
+        RESULTS.put("virtual", run(true));
+    }
+
+    @AfterAll
+    static void report() {
+        RESULTS.forEach((mode, result) -> System.out.println("[JoinAndAnswerBenchmark] " + mode + ": " + result));
+    }
+
+    private String run(boolean virtualThreads) throws Exception {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(ClassyncApplication.class).run(
+                "--server.port=0",
+                "--spring.datasource.url=jdbc:h2:mem:bench-" + UUID.randomUUID(),
+                "--spring.jpa.show-sql=false",
+                "--upload.path=" + uploads.resolve(UUID.randomUUID().toString()),
+                "--spring.threads.virtual.enabled=" + virtualThreads)) {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            Long classroomId = createClassroom(context);
+            Long questionId = createQuestion(context, classroomId);
+
+            WebSocketStompClient stompClient = new WebSocketStompClient(new StandardWebSocketClient());
+            stompClient.setMessageConverter(new MappingJackson2MessageConverter());
+            HttpClient httpClient = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(30)).build();
+            List<StompSession> sessions = connectAll(stompClient, port);
+            try {
+                long[] joinNanos = new long[CLIENTS];
+                long[] answerNanos = new long[CLIENTS];
+                AtomicInteger failures = new AtomicInteger();
+                List<CompletableFuture<Void>> clients = new ArrayList<>(CLIENTS);
+                long start = System.nanoTime();
+                for (int i = 0; i < CLIENTS; i++) {
+                    clients.add(joinAndAnswer(sessions.get(i), httpClient, port, classroomId, questionId,
+                            1000L + i, joinNanos, answerNanos, i)
+                            .exceptionally(e -> {
+                                failures.incrementAndGet();
+                                return null;
+                            }));
+                }
+                CompletableFuture.allOf(clients.toArray(CompletableFuture[]::new))
+                        .get(TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+                long wallMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+                assertThat(failures.get()).isZero();
+                return String.format("clients=%d wall=%dms join p50=%dms p99=%dms max=%dms"
+                                + " answer p50=%dms p99=%dms max=%dms",
+                        CLIENTS, wallMs,
+                        percentile(joinNanos, 50), percentile(joinNanos, 99), percentile(joinNanos, 100),
+                        percentile(answerNanos, 50), percentile(answerNanos, 99), percentile(answerNanos, 100));
+            } finally {
+                sessions.forEach(StompSession::disconnect);
+                stompClient.stop();
+                // 等服务端处理完断开，再关闭上下文
+                SubProtocolWebSocketHandler handler = context.getBean(SubProtocolWebSocketHandler.class);
+                await().atMost(Duration.ofSeconds(60)).until(() -> handler.getStats().getWebSocketSessions() == 0);
+            }
+        }
+    }
+
+    private static List<StompSession> connectAll(WebSocketStompClient stompClient, int port) throws Exception {
+        WebSocketHttpHeaders headers = new WebSocketHttpHeaders();
+        headers.setOrigin("http://localhost:5173");
+        String url = "ws://localhost:" + port + "/ws/websocket";
+        Semaphore inFlight = new Semaphore(CONNECT_CONCURRENCY);
+        List<CompletableFuture<StompSession>> pending = new ArrayList<>(CLIENTS);
+        for (int i = 0; i < CLIENTS; i++) {
+            inFlight.acquire();
+            CompletableFuture<StompSession> connected =
+                    stompClient.connectAsync(url, headers, new StompSessionHandlerAdapter() { });
+            connected.whenComplete((session, e) -> inFlight.release());
+            pending.add(connected);
+        }
+        List<StompSession> sessions = new ArrayList<>(CLIENTS);
+        for (CompletableFuture<StompSession> connected : pending) {
+            sessions.add(connected.get(TIMEOUT.toMillis(), TimeUnit.MILLISECONDS));
+        }
+        return sessions;
+    }
+
+    /**
+     * 单个客户端：订阅课堂状态、加入课堂，收到状态后提交答案并通知课堂
+     */
+    private static CompletableFuture<Void> joinAndAnswer(StompSession session, HttpClient httpClient, int port,
+            Long classroomId, Long questionId, long userId, long[] joinNanos, long[] answerNanos, int index) {
+        CompletableFuture<Void> joined = new CompletableFuture<>();
+        session.subscribe("/user/queue/classroom-state", new StompFrameHandler() {
+            @Override
+            public Type getPayloadType(StompHeaders headers) {
+                return Map.class;
+            }
+
+            @Override
+            public void handleFrame(StompHeaders headers, Object payload) {
+                joined.complete(null);
+            }
+        });
+        long joinStart = System.nanoTime();
+        session.send("/app/join_classroom", Map.of("classroomId", classroomId));
+
+        return joined.thenCompose(ignored -> {
+            joinNanos[index] = System.nanoTime() - joinStart;
+            HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/answers"))
+                    .timeout(TIMEOUT)
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString("{\"questionId\":" + questionId
+                            + ",\"userId\":" + userId + ",\"content\":\"answer " + userId + "\"}"))
+                    .build();
+            long answerStart = System.nanoTime();
+            return httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                    .thenAccept(response -> {
+                        if (response.statusCode() != 200) {
+                            throw new IllegalStateException("Answer rejected with " + response.statusCode());
+                        }
+                        answerNanos[index] = System.nanoTime() - answerStart;
+                        session.send("/app/answer_submit", Map.of(
+                                "classroomId", classroomId, "data", Map.of("questionId", questionId)));
+                    });
+        });
+    }
+
+    private static Long createClassroom(ConfigurableApplicationContext context) {
+        Classroom classroom = new Classroom();
+        classroom.setName("Benchmark");
+        classroom.setStartTime(LocalDateTime.now().minusHours(1));
+        classroom.setEndTime(LocalDateTime.now().plusHours(2));
+        classroom.setClassCode("BENCH1");
+        classroom.setHostUserId(1L);
+        return context.getBean(ClassroomRepository.class).save(classroom).getId();
+    }
+
+    private static Long createQuestion(ConfigurableApplicationContext context, Long classroomId) {
+        Question question = new Question();
+        question.setClassroomId(classroomId);
+        question.setType("ESSAY");
+        question.setContent("Benchmark question");
+        question.setIsOpen(true);
+        return context.getBean(QuestionRepository.class).save(question).getId();
+    }
+
+    private static long percentile(long[] nanos, int percentile) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        int index = Math.min(sorted.length - 1, (int) Math.ceil(sorted.length * percentile / 100.0) - 1);
+        return TimeUnit.NANOSECONDS.toMillis(sorted[Math.max(0, index)]);
+    }
+}
@@ -0,0 +1,254 @@
+package com.classync.websocket;
+
+import com.classync.ClassyncApplication;
+import com.classync.entity.Classroom;
+import com.classync.repository.ClassroomRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.InterceptableChannel;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+/**
+ * 两个应用上下文通过 TcpClusterRelay 互相转发课堂广播：
+ * 验证同一来源的事件按顺序到达、不重复，来源节点重启（序号从 1 重新开始）后事件仍被接收，
+ * 一个节点上的翻页和问题展示会同步到另一个节点的加入课堂快照，以及未认证或声明超长的连接被拒绝
+ */
+class TcpClusterRelayIntegrationTest {
+
+    private static final String SECRET = "relay-test-secret";
+    private static final String TOPIC = "/topic/classroom/1";
+
+    @TempDir
+    Path uploads;
+
+    private final List<ConfigurableApplicationContext> contexts = new ArrayList<>();
+
+    @AfterEach
+    void closeContexts() {
+        contexts.forEach(ConfigurableApplicationContext::close);
+    }
+
+    @Test
+    void relaysBothWaysInOrderWithoutDuplicates() throws IOException {
+        int portA = freePort();
+        int portB = freePort();
+        ConfigurableApplicationContext nodeA = startNode("node-a", portA, portB);
+        ConfigurableApplicationContext nodeB = startNode("node-b", portB, portA);
+        List<String> receivedByA = captureRelayed(nodeA);
+        List<String> receivedByB = captureRelayed(nodeB);
+
+        List<String> fromA = payloads("a-", 200);
+        List<String> fromB = payloads("b-", 200);
+        Thread sender = new Thread(() -> fromB.forEach(payload -> send(nodeB, payload)));
+        sender.start();
+        fromA.forEach(payload -> send(nodeA, payload));
+
+        await().atMost(Duration.ofSeconds(20)).until(() -> receivedByB.size() >= 200 && receivedByA.size() >= 200);
+        // 再等一会儿，确认没有迟到的重复事件
+        sleep(500);
+        assertThat(receivedByB).containsExactlyElementsOf(fromA);
+        assertThat(receivedByA).containsExactlyElementsOf(fromB);
+    }
+
+    @Test
+    void acceptsEventsFromRestartedNodeWithSameId() throws IOException {
+        int portA = freePort();
+        int portB = freePort();
+        ConfigurableApplicationContext nodeA = startNode("node-a", portA, portB);
+        ConfigurableApplicationContext nodeB = startNode("node-b", portB, portA);
+        List<String> receivedByB = captureRelayed(nodeB);
+
+        List<String> beforeRestart = payloads("first-boot-", 50);
+        beforeRestart.forEach(payload -> send(nodeA, payload));
+        await().atMost(Duration.ofSeconds(20)).until(() -> receivedByB.size() >= 50);
+
+        // 同一 node-id 重启：ClusterRelayBridge 的序号从 1 重新开始
+        nodeA.close();
+        ConfigurableApplicationContext restartedA = startNode("node-a", portA, portB);
+        List<String> afterRestart = payloads("second-boot-", 30);
+        afterRestart.forEach(payload -> send(restartedA, payload));
+
+        List<String> expected = new ArrayList<>(beforeRestart);
+        expected.addAll(afterRestart);
+        await().atMost(Duration.ofSeconds(20)).until(() -> receivedByB.size() >= expected.size());
+        sleep(500);
+        assertThat(receivedByB).containsExactlyElementsOf(expected);
+    }
+
+    @Test
+    void joinOnPeerSeesStateChangedOnOtherNode() throws IOException {
+        int portA = freePort();
+        int portB = freePort();
+        ConfigurableApplicationContext nodeA = startNode("node-a", portA, portB);
+        ConfigurableApplicationContext nodeB = startNode("node-b", portB, portA);
+        // 各节点使用独立的内存数据库，写入同一课堂模拟共享数据库
+        Long classroomId = createClassroom(nodeA);
+        assertThat(createClassroom(nodeB)).isEqualTo(classroomId);
+        ClassroomSnapshotCache snapshotsB = nodeB.getBean(ClassroomSnapshotCache.class);
+        assertThat(joinFrame(snapshotsB, classroomId)).contains("\"currentPage\":1");
+
+        WebSocketController controllerA = nodeA.getBean(WebSocketController.class);
+        controllerA.pageChange(Map.of("classroomId", classroomId, "data", Map.of("pageNumber", 5)));
+        controllerA.displayQuestion(Map.of("classroomId", classroomId,
+                "data", Map.of("questionId", 42, "mode", "chart")));
+
+        // 来源节点尚未写回数据库时，另一个节点的加入快照已是最新状态
+        await().atMost(Duration.ofSeconds(20)).untilAsserted(() -> assertThat(joinFrame(snapshotsB, classroomId))
+                .contains("\"currentPage\":5", "\"displayQuestionId\":42", "\"displayQuestionMode\":\"chart\""));
+    }
+
+    @Test
+    void rejectsUnauthenticatedPeersAndOversizedFrames() throws Exception {
+        int portA = freePort();
+        int portB = freePort();
+        ConfigurableApplicationContext nodeA = startNode("node-a", portA, portB);
+        ConfigurableApplicationContext nodeB = startNode("node-b", portB, portA);
+        List<String> receivedByB = captureRelayed(nodeB);
+
+        // 错误的 HMAC：连接在注入事件前被关闭
+        try (Socket socket = new Socket("127.0.0.1", portB)) {
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+            DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+            in.readFully(new byte[32]);
+            out.write(new byte[32]);
+            writeFrame(out, "intruder", "injected".getBytes(StandardCharsets.UTF_8).length);
+            out.write("injected".getBytes(StandardCharsets.UTF_8));
+            out.flush();
+            socket.setSoTimeout(5000);
+            assertThat(in.read()).isEqualTo(-1);
+        }
+
+        // 认证通过但声明了超长的事件：连接被关闭，不分配对应大小的内存
+        try (Socket socket = new Socket("127.0.0.1", portB)) {
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+            DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+            byte[] nonce = new byte[32];
+            in.readFully(nonce);
+            out.write(hmac(nonce));
+            writeFrame(out, "oversized", Integer.MAX_VALUE);
+            out.flush();
+            socket.setSoTimeout(5000);
+            assertThat(in.read()).isEqualTo(-1);
+        }
+
+        // 正常节点之间的转发不受影响
+        send(nodeA, "after-rejects");
+        await().atMost(Duration.ofSeconds(20)).until(() -> !receivedByB.isEmpty());
+        assertThat(receivedByB).containsExactly("after-rejects");
+    }
+
+    private ConfigurableApplicationContext startNode(String nodeId, int relayPort, int peerPort) {
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(ClassyncApplication.class).run(
+                "--server.port=0",
+                "--spring.datasource.url=jdbc:h2:mem:relay-" + nodeId + "-" + UUID.randomUUID(),
+                "--spring.jpa.show-sql=false",
+                "--upload.path=" + uploads.resolve(nodeId + "-" + UUID.randomUUID()),
+                "--cluster.relay.type=tcp",
+                "--cluster.node-id=" + nodeId,
+                "--cluster.relay.port=" + relayPort,
+                "--cluster.relay.peers=127.0.0.1:" + peerPort,
+                "--cluster.relay.secret=" + SECRET,
+                "--cluster.relay.reconnect-interval-ms=100");
+        contexts.add(context);
+        return context;
+    }
+
+    /**
+     * 记录经集群转发投递到本地 broker 的课堂广播
+     */
+    private static List<String> captureRelayed(ConfigurableApplicationContext context) {
+        List<String> received = new CopyOnWriteArrayList<>();
+        InterceptableChannel brokerChannel = context.getBean("brokerChannel", InterceptableChannel.class);
+        brokerChannel.addInterceptor(new ChannelInterceptor() {
+            @Override
+            public Message<?> preSend(Message<?> message, MessageChannel channel) {
+                SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(message);
+                if (TOPIC.equals(accessor.getDestination()) && accessor.getHeader("classyncRelayedEventId") != null) {
+                    received.add(new String((byte[]) message.getPayload(), StandardCharsets.UTF_8));
+                }
+                return message;
+            }
+        });
+        return received;
+    }
+
+    private static Long createClassroom(ConfigurableApplicationContext context) {
+        Classroom classroom = new Classroom();
+        classroom.setName("RELAY1");
+        classroom.setStartTime(LocalDateTime.now().minusHours(1));
+        classroom.setEndTime(LocalDateTime.now().plusHours(2));
+        classroom.setClassCode("RELAY1");
+        classroom.setHostUserId(1L);
+        classroom.setCurrentPage(1);
+        return context.getBean(ClassroomRepository.class).save(classroom).getId();
+    }
+
+    private static String joinFrame(ClassroomSnapshotCache snapshots, Long classroomId) {
+        return new String(snapshots.get(classroomId).frame(), StandardCharsets.UTF_8);
+    }
+
+    private static void send(ConfigurableApplicationContext context, String payload) {
+        context.getBean(SimpMessagingTemplate.class).convertAndSend(TOPIC, payload);
+    }
+
+    private static void writeFrame(DataOutputStream out, String origin, int length) throws IOException {
+        out.writeUTF(origin);
+        out.writeLong(1L);
+        out.writeLong(1L);
+        out.writeUTF(TOPIC);
+        out.writeUTF("text/plain");
+        out.writeInt(length);
+    }
+
+    private static byte[] hmac(byte[] nonce) throws Exception {
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(SECRET.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+        return mac.doFinal(nonce);
+    }
+
+    private static List<String> payloads(String prefix, int count) {
+        return IntStream.range(0, count).mapToObj(i -> prefix + i).toList();
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
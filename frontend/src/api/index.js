@@ -26,6 +26,15 @@ api.interceptors.response.use(
   }
 )
 
+const UPLOAD_MAX_RETRIES = 5
+
+// 计算文件的 SHA-256（十六进制），浏览器不支持 Web Crypto（非安全上下文）时返回 undefined，服务端跳过校验
+async function sha256Hex(file) {
+  if (!globalThis.crypto?.subtle) return undefined
+  const hash = await crypto.subtle.digest('SHA-256', await file.arrayBuffer())
+  return Array.from(new Uint8Array(hash), b => b.toString(16).padStart(2, '0')).join('')
+}
+
 export default {
   // 用户相关
   auth: {
@@ -44,17 +53,62 @@ export default {
     removeParticipant: (classroomId, userId) => api.delete(`/classrooms/${classroomId}/participant/${userId}`),
     delete: (id) => api.delete(`/classrooms/${id}`),
     updateTime: (id, data) => api.put(`/classrooms/${id}/time`, data),
-    uploadPdf: (id, file) => {
-      const formData = new FormData()
-      formData.append('file', file)
-      return api.post(`/classrooms/${id}/upload`, formData, {
-        headers: { 'Content-Type': 'multipart/form-data' }
-      })
+    // 分片上传 PDF：中断后查询已接收的偏移量从断点继续，完成后返回更新后的课堂；
+    // 服务端按 SHA-256 识别出已保存的相同文件时跳过传输
+    // onProgress(已上传字节数, 总字节数) 可选
+    uploadPdf: async (id, file, onProgress) => {
+      const sha256 = await sha256Hex(file)
+      const upload = await api.post(`/classrooms/${id}/upload/chunks`, { filename: file.name, size: file.size, sha256 })
+      // 服务端已有相同内容的文件，无需传输
+      if (upload.complete) {
+        onProgress?.(file.size, file.size)
+        return upload.classroom
+      }
+      let offset = upload.offset
+      let retries = 0
+      while (true) {
+        const end = Math.min(offset + upload.chunkSize, file.size)
+        try {
+          const result = await api.put(`/classrooms/${id}/upload/chunks/${upload.uploadId}`, file.slice(offset, end), {
+            params: { offset },
+            headers: { 'Content-Type': 'application/octet-stream' },
+            timeout: 60000
+          })
+          offset = result.offset
+          retries = 0
+          onProgress?.(offset, file.size)
+          if (result.complete) {
+            return result.classroom
+          }
+        } catch (error) {
+          // 会话已不存在（过期或校验失败）或重试次数用尽时放弃
+          if (error.response?.status === 404 || ++retries > UPLOAD_MAX_RETRIES) {
+            throw error
+          }
+          await new Promise(resolve => setTimeout(resolve, 1000 * retries))
+          const status = await api.get(`/classrooms/${id}/upload/chunks/${upload.uploadId}`)
+          offset = status.offset
+        }
+      }
     },
     setDisplayQuestion: (classroomId, questionId, mode) => api.post(`/classrooms/${classroomId}/display-question`, {
       questionId,
       mode
     }),
+    // 按页获取课件：页数，以及单页 PDF 的地址（锁定页面仅主讲人可获取）
+    getPageCount: (id) => api.get(`/classrooms/${id}/pages`),
+    // 完整课件，仅主讲人可获取
+    deckUrl: (id, userId) => `/api/classrooms/${id}/pdf?userId=${userId}`,
+    pageUrl: (id, pageNumber, userId) => `/api/classrooms/${id}/pages/${pageNumber}${userId ? `?userId=${userId}` : ''}`,
+    // 页面位图：已缓存的页面和版本 key，图片地址带 key 可长期缓存；主讲人上传渲染结果
+    getRasters: (id) => api.get(`/classrooms/${id}/rasters`),
+    rasterUrl: (id, pageNumber, width, key, userId) =>
+      `/api/classrooms/${id}/pages/${pageNumber}/raster?width=${width}&v=${key}${userId ? `&userId=${userId}` : ''}`,
+    uploadRaster: (id, pageNumber, userId, blob) => api.put(`/classrooms/${id}/pages/${pageNumber}/raster`, blob, {
+      params: { userId },
+      headers: { 'Content-Type': blob.type },
+      timeout: 60000
+    }),
     // 课堂状态检查
     getStatus: (id) => api.get(`/classrooms/${id}/status`),
     canJoin: (id) => api.get(`/classrooms/${id}/can-join`),
@@ -82,12 +136,21 @@ export default {
     submit: (data) => api.post('/answers', data),
     getByQuestion: (questionId) => api.get(`/answers/question/${questionId}`),
     getStatistics: (questionId) => api.get(`/answers/statistics/${questionId}`),
+    getQuizStatistics: (questionId, subQuestionIndex = null) => api.get(`/answers/quiz-statistics/${questionId}`, {
+      params: subQuestionIndex !== null ? { subQuestionIndex } : {}
+    }),
     getEssayAnswers: (questionId) => api.get(`/answers/essay/${questionId}`)
   },
 
   // 讨论相关
   discussion: {
     getByClassroom: (classroomId) => api.get(`/discussions/classroom/${classroomId}`),
+    // 游标分页：afterId 为已有的最后一条 ID，order 为 'desc' 时最新在前
+    getPage: (classroomId, { afterId = null, limit = 50, order = 'asc' } = {}) => api.get(`/discussions/classroom/${classroomId}`, {
+      params: afterId !== null ? { afterId, limit, order } : { limit, order }
+    }),
+    // 增量获取 lastId 之后的新讨论
+    getSince: (classroomId, lastId) => api.get(`/discussions/classroom/${classroomId}/since/${lastId}`),
     create: (data) => api.post('/discussions', data)
   },
 
@@ -217,6 +280,8 @@ export default {
     getByClassroom: (classroomId) => api.get(`/page-locks/classroom/${classroomId}`),
     toggle: (classroomId, pageNumber) => api.post('/page-locks/toggle', { classroomId, pageNumber }),
     lockFrom: (classroomId, fromPage, totalPages) => api.post('/page-locks/lock-from', { classroomId, fromPage, totalPages }),
+    // ranges: [[起始页, 结束页], ...]，一次请求锁定或解锁多个区间
+    setRanges: (classroomId, ranges, isLocked) => api.post('/page-locks/ranges', { classroomId, ranges, isLocked }),
     unlockFrom: (classroomId, fromPage) => api.post('/page-locks/unlock-from', { classroomId, fromPage }),
     unlockAll: (classroomId) => api.post('/page-locks/unlock-all', { classroomId })
   }
@@ -0,0 +1,12 @@
+// 服务端以区间列表下发已锁定页面：[[起始页, 结束页], ...]
+// 展开为组件使用的 { pageNumber: true } 形式
+export function expandPageLocks(ranges) {
+  const locks = {}
+  if (!Array.isArray(ranges)) return locks
+  ranges.forEach(([from, to]) => {
+    for (let page = from; page <= to; page++) {
+      locks[page] = true
+    }
+  })
+  return locks
+}
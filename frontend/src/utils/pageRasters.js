@@ -0,0 +1,68 @@
+import api from '../api'
+
+const RASTER_QUEUE_FULL_RETRIES = 3
+const RASTER_JPEG_QUALITY = 0.9
+const BUSY_POLL_MS = 2000
+
+// 主讲人端：把服务端还没有位图的页面用 pdf.js 渲染一次并上传，
+// 服务端缩放为各个宽度，学生端和大屏直接获取图片，不必各自渲染整份课件。
+// 只按缩略图实际需要的宽度渲染（不超过服务端最大档位），编码为 JPEG 上传。
+// 逐页顺序执行，每页都等浏览器空闲后再渲染；isBusy 返回 true 时（主讲人正在翻页放映）暂停
+export async function publishPageRasters(classroomId, userId, pdfDoc, { width: neededWidth, isBusy } = {}) {
+  const status = await api.classroom.getRasters(classroomId)
+  const existing = new Set(status.pages)
+  const width = renderWidth(status.widths, neededWidth)
+
+  for (let pageNum = 1; pageNum <= pdfDoc.numPages; pageNum++) {
+    if (existing.has(pageNum)) continue
+
+    await waitUntilIdle(isBusy)
+    const page = await pdfDoc.getPage(pageNum)
+    const scale = width / page.getViewport({ scale: 1 }).width
+    const viewport = page.getViewport({ scale })
+    const canvas = document.createElement('canvas')
+    canvas.width = Math.floor(viewport.width)
+    canvas.height = Math.floor(viewport.height)
+    const context = canvas.getContext('2d')
+    // JPEG 没有透明通道，先铺白底
+    context.fillStyle = '#fff'
+    context.fillRect(0, 0, canvas.width, canvas.height)
+    await page.render({ canvasContext: context, viewport }).promise
+    page.cleanup()
+    const blob = await new Promise(resolve => canvas.toBlob(resolve, 'image/jpeg', RASTER_JPEG_QUALITY))
+
+    // 服务端缩放队列已满时稍后重试
+    for (let retries = 0; ; retries++) {
+      try {
+        await api.classroom.uploadRaster(classroomId, pageNum, userId, blob)
+        break
+      } catch (error) {
+        if (error.response?.status !== 503 || retries >= RASTER_QUEUE_FULL_RETRIES) {
+          throw error
+        }
+        await new Promise(resolve => setTimeout(resolve, 5000))
+      }
+    }
+  }
+}
+
+// 不小于所需宽度的最小档位，没有时取最大档位；未指定所需宽度时取最大档位
+function renderWidth(widths, neededWidth) {
+  const sorted = [...widths].sort((a, b) => a - b)
+  const largest = sorted[sorted.length - 1]
+  if (!neededWidth) return largest
+  return sorted.find(width => width >= neededWidth) ?? largest
+}
+
+async function waitUntilIdle(isBusy) {
+  while (isBusy?.()) {
+    await new Promise(resolve => setTimeout(resolve, BUSY_POLL_MS))
+  }
+  await new Promise(resolve => {
+    if (window.requestIdleCallback) {
+      window.requestIdleCallback(resolve, { timeout: BUSY_POLL_MS })
+    } else {
+      setTimeout(resolve, 0)
+    }
+  })
+}
@@ -4,6 +4,7 @@ import SockJS from 'sockjs-client'
 // 事件常量
 export const WS_EVENTS = {
   CLASSROOM_STATE: 'CLASSROOM_STATE',
+  CLASSROOM_RESUMED: 'CLASSROOM_RESUMED',
   PAGE_UPDATE: 'PAGE_UPDATE',
   QUESTION_OPENED: 'QUESTION_OPENED',
   QUESTION_CLOSED: 'QUESTION_CLOSED',
@@ -13,7 +14,6 @@ export const WS_EVENTS = {
   DISPLAY_CODE_TOGGLE: 'DISPLAY_CODE_TOGGLE',
   PAGE_LOCK_UPDATE: 'PAGE_LOCK_UPDATE',
   PAGE_LOCK_BATCH: 'PAGE_LOCK_BATCH',
-  PAGE_LOCK_BATCH_UNLOCK: 'PAGE_LOCK_BATCH_UNLOCK',
   DISPLAY_QUESTION: 'DISPLAY_QUESTION'
 }
 
@@ -23,9 +23,19 @@ class WebSocketService {
     this.connected = false
     this.subscriptions = new Map()
     this.eventHandlers = new Map() // 事件处理器注册表
+    // 课堂事件日志位置：重连时据此只补发缺失的事件
+    this.classroomId = null
+    this.stream = null
+    this.lastSeq = null
+    this.resuming = false
+    this.pendingEvents = []
   }
 
   connect(classroomId, callbacks = {}) {
+    this.classroomId = classroomId
+    this.stream = null
+    this.lastSeq = null
+
     return new Promise((resolve, reject) => {
       this.client = new Client({
         webSocketFactory: () => new SockJS('http://localhost:8080/ws'),
@@ -36,22 +46,52 @@ class WebSocketService {
         onConnect: () => {
           console.log('WebSocket Connected')
           this.connected = true
+          // 加入回复（快照或补发）到达前，课堂广播先缓存
+          this.resuming = true
+          this.pendingEvents = []
 
           // 订阅课堂主题
           const subscription = this.client.subscribe(
             `/topic/classroom/${classroomId}`,
             (message) => {
               const data = JSON.parse(message.body)
-              this.handleMessage(data, callbacks)
+              if (this.resuming) {
+                this.pendingEvents.push({ headers: message.headers, data })
+                return
+              }
+              this.applyEvent(message.headers, data, callbacks)
             }
           )
 
           this.subscriptions.set(classroomId, subscription)
 
-          // 发送加入课堂消息
-          this.send('/app/join_classroom', {
-            classroomId: classroomId
-          })
+          // 订阅本会话的加入回复：完整状态，或重连时补发的事件加 CLASSROOM_RESUMED 结束标记
+          const stateSubscription = this.client.subscribe(
+            '/user/queue/classroom-state',
+            (message) => {
+              const data = JSON.parse(message.body)
+              if (data.event === WS_EVENTS.CLASSROOM_STATE || data.event === WS_EVENTS.CLASSROOM_RESUMED) {
+                this.stream = message.headers.stream
+                this.lastSeq = Number(message.headers.seq)
+                if (data.event === WS_EVENTS.CLASSROOM_STATE) {
+                  this.handleMessage(data, callbacks)
+                }
+                this.finishResume(callbacks)
+                return
+              }
+              this.applyEvent(message.headers, data, callbacks)
+            }
+          )
+
+          this.subscriptions.set(`${classroomId}:state`, stateSubscription)
+
+          // 发送加入课堂消息（重连时带上已收到的位置）
+          const join = { classroomId }
+          if (this.stream !== null && this.lastSeq !== null) {
+            join.stream = this.stream
+            join.lastSeq = this.lastSeq
+          }
+          this.send('/app/join_classroom', join)
 
           resolve()
         },
@@ -124,9 +164,6 @@ class WebSocketService {
       case WS_EVENTS.PAGE_LOCK_BATCH:
         callbacks.onPageLockBatch?.(payload)
         break
-      case WS_EVENTS.PAGE_LOCK_BATCH_UNLOCK:
-        callbacks.onPageLockBatchUnlock?.(payload)
-        break
       case WS_EVENTS.DISPLAY_QUESTION:
         callbacks.onDisplayQuestion?.(payload)
         break
@@ -135,6 +172,43 @@ class WebSocketService {
     }
   }
 
+  // 处理一条带序号的课堂事件并记录位置
+  applyEvent(headers, data, callbacks) {
+    const seq = Number(headers.seq)
+    if (headers.stream !== this.stream) {
+      this.stream = headers.stream
+      this.lastSeq = seq
+    } else if (!this.resuming && seq > this.lastSeq + 1) {
+      // 序号出现缺口（服务端发送队列满时丢弃过事件）：先缓存这条，重新加入课堂补发缺失的部分
+      this.resync({ headers, data })
+      return
+    } else if (seq > this.lastSeq) {
+      this.lastSeq = seq
+    }
+    this.handleMessage(data, callbacks)
+  }
+
+  // 带上已收到的位置重新加入课堂，回复到达前课堂广播先缓存
+  resync(pendingEvent) {
+    this.resuming = true
+    this.pendingEvents = [pendingEvent]
+    this.send('/app/join_classroom', {
+      classroomId: this.classroomId,
+      stream: this.stream,
+      lastSeq: this.lastSeq
+    })
+  }
+
+  // 加入回复已处理完：应用缓存的广播中快照 / 补发之后的部分
+  finishResume(callbacks) {
+    const pending = this.pendingEvents
+    this.resuming = false
+    this.pendingEvents = []
+    pending
+      .filter(({ headers }) => headers.stream !== this.stream || Number(headers.seq) > this.lastSeq)
+      .forEach(({ headers, data }) => this.applyEvent(headers, data, callbacks))
+  }
+
   // 注册事件处理器（替代window.dispatchEvent）
   on(event, handler) {
     if (!this.eventHandlers.has(event)) {
@@ -165,6 +239,78 @@ class WebSocketService {
     }
   }
 
+  // 订阅问题实时统计（仅主持人端和放映端使用）：先取完整快照，再按版本号合并增量
+  // onUpdate 收到 { answeredCount, statistics, essayAnswers }，返回取消订阅函数（未连接时返回 null）
+  subscribeQuestionStats(classroomId, questionId, onUpdate) {
+    if (!this.connected || !this.client) {
+      console.warn('WebSocket not connected, cannot subscribe question stats')
+      return null
+    }
+
+    const destination = `/classroom/${classroomId}/question/${questionId}/stats`
+    let state = null
+    let resyncing = false
+
+    const emit = () => onUpdate({
+      answeredCount: state.answeredCount,
+      statistics: state.statistics,
+      essayAnswers: state.essayAnswers
+    })
+
+    const requestSnapshot = () => {
+      resyncing = true
+      const snapshotSub = this.client.subscribe(`/app${destination}`, (message) => {
+        snapshotSub.unsubscribe()
+        const { payload } = JSON.parse(message.body)
+        state = {
+          version: payload.version,
+          answeredCount: payload.answeredCount,
+          statistics: payload.statistics || [],
+          essayAnswers: payload.essayAnswers || []
+        }
+        resyncing = false
+        emit()
+      })
+    }
+
+    const applyDelta = (delta) => {
+      state.version = delta.version
+      state.answeredCount = delta.answeredCount
+      if (delta.statistics) {
+        state.statistics = delta.statistics
+      } else if (delta.options) {
+        const counts = new Map(delta.options.map(o => [o.optionContent, o.count]))
+        state.statistics = state.statistics.map(stat => {
+          const count = counts.has(stat.optionContent) ? counts.get(stat.optionContent) : stat.count
+          return {
+            ...stat,
+            count,
+            percentage: delta.answeredCount > 0 ? count * 100 / delta.answeredCount : 0
+          }
+        })
+      }
+      if (delta.essayAnswers && delta.essayAnswers.length > 0) {
+        state.essayAnswers = [...state.essayAnswers, ...delta.essayAnswers]
+      }
+    }
+
+    const topicSub = this.client.subscribe(`/topic${destination}`, (message) => {
+      const { payload } = JSON.parse(message.body)
+      // 快照到达前的增量已包含在快照中
+      if (!state || resyncing || payload.version <= state.version) return
+      if (payload.baseVersion !== state.version) {
+        console.warn('[WebSocket] Question stats version gap, requesting snapshot')
+        requestSnapshot()
+        return
+      }
+      applyDelta(payload)
+      emit()
+    })
+
+    requestSnapshot()
+    return () => topicSub.unsubscribe()
+  }
+
   disconnect() {
     if (this.client) {
       this.subscriptions.forEach(sub => sub.unsubscribe())
@@ -207,14 +353,6 @@ class WebSocketService {
     })
   }
 
-  // 发送新讨论消息
-  sendDiscussionNew(classroomId, discussion) {
-    this.send('/app/discussion_new', {
-      classroomId,
-      data: discussion
-    })
-  }
-
   // 发送展示课堂码切换消息
   sendDisplayCodeToggle(classroomId, show) {
     this.send('/app/display_code_toggle', {
@@ -231,22 +369,6 @@ class WebSocketService {
     })
   }
 
-  // 发送批量锁定消息
-  sendPageLockBatch(classroomId, fromPage) {
-    this.send('/app/page_lock_batch', {
-      classroomId,
-      data: { fromPage }
-    })
-  }
-
-  // 发送批量解锁消息
-  sendPageLockBatchUnlock(classroomId, fromPage = 1) {
-    this.send('/app/page_lock_batch_unlock', {
-      classroomId,
-      data: { fromPage }
-    })
-  }
-
   // 发送问题展示消息
   sendDisplayQuestion(classroomId, questionId, mode, subQuestionIndex = null) {
     this.send('/app/display_question', {
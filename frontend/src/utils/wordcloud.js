@@ -1,161 +1,23 @@
-import { isStopword } from './stopwords'
-
-// 动态导入 jieba-wasm
-let jiebaModule = null
-let jiebaInitialized = false
-let jiebaInitPromise = null
-
-/**
- * 初始化 jieba（单例模式）
- */
-export const initJiebaOnce = async () => {
-    if (jiebaInitialized && jiebaModule) {
-        return
-    }
-    if (jiebaInitPromise) {
-        return jiebaInitPromise
-    }
-    jiebaInitPromise = (async () => {
-        try {
-            console.log('[WordCloud] Initializing jieba-wasm...')
-            jiebaModule = await import('jieba-wasm')
-            console.log('[WordCloud] Jieba module loaded, initializing...')
-            await jiebaModule.default()
-            jiebaInitialized = true
-            console.log('[WordCloud] Jieba initialized successfully')
-        } catch (error) {
-            console.error('[WordCloud] Failed to initialize jieba:', error)
-            jiebaInitPromise = null
-            throw error
-        }
-    })()
-    return jiebaInitPromise
-}
-
-/**
- * 使用 jieba 分词
- */
-export const cutText = (text, useHMM = true) => {
-    if (!jiebaModule || !jiebaInitialized) {
-        throw new Error('Jieba not initialized')
-    }
-    if (!jiebaModule.cut) {
-        throw new Error('Jieba cut function not available')
-    }
-    return jiebaModule.cut(text, !useHMM)
-}
-
 /**
- * 生成词云数据（词频统计）
+ * 从服务端获取词频（服务端在答案提交时已完成分词和停用词过滤）
+ * @param {number} questionId - 问题ID
+ * @param {number|null} subQuestionIndex - 测验子问题下标，问答题传 null
+ * @param {number} k - 返回的词数
+ * @returns {Promise<Array<{word, count, normalizedFrequency}>>}
  */
-export const generateWordCloud = async (answers) => {
-    if (!answers || answers.length === 0) {
-        return []
-    }
-
+export const fetchWordFrequency = async (questionId, subQuestionIndex = null, k = 50) => {
     try {
-        console.log('[WordCloud] Starting word cloud generation with', answers.length, 'answers')
-
-        // 确保 jieba 已初始化
-        await initJiebaOnce()
-
-        // 合并所有答案文本
-        const allText = answers.map(a => a.content).join(' ')
-        console.log('[WordCloud] Combined text length:', allText.length)
-
-        // 配置参数 - 限制词数以提高性能
-        const config = {
-            maxWords: 50,            // 减少到50个词，提高性能
-            minWordLength: 1,
-            minFrequency: 1,
-            includeNumbers: false,
-            normalizePlurals: false
-        }
-
-        // 使用jieba进行中文分词
-        const words = []
-        const chineseText = allText.replace(/[^\u4e00-\u9fa5a-zA-Z0-9\s]/g, ' ')
-
-        try {
-            const segments = cutText(chineseText, true)
-            words.push(...segments.filter(s => s && s.trim().length > 0))
-        } catch (error) {
-            console.warn('Jieba segmentation failed, using fallback:', error)
-            const fallbackWords = chineseText.split(/\s+/).filter(s => s && s.trim().length > 0)
-            words.push(...fallbackWords)
+        const params = new URLSearchParams({ k })
+        if (subQuestionIndex !== null && subQuestionIndex !== undefined) {
+            params.append('subQuestionIndex', subQuestionIndex)
         }
-
-        // 提取英文单词
-        const englishWords = allText.match(/[a-zA-Z]{2,}/g) || []
-        englishWords.forEach(word => {
-            words.push(word.toLowerCase())
-        })
-
-        // 过滤和统计词频
-        const frequency = {}
-
-        words.forEach(word => {
-            if (!word || word.trim().length === 0) {
-                return
-            }
-
-            const trimmedWord = word.trim()
-
-            // 最小词长度过滤
-            if (trimmedWord.length < config.minWordLength) {
-                return
-            }
-
-            // 英文单词至少2个字符
-            if (/^[a-zA-Z]+$/.test(trimmedWord) && trimmedWord.length < 2) {
-                return
-            }
-
-            // 过滤停用词
-            if (isStopword(trimmedWord)) {
-                return
-            }
-
-            // 过滤纯数字
-            if (!config.includeNumbers && /^\d+$/.test(trimmedWord)) {
-                return
-            }
-
-            // 过滤单个标点符号
-            if (/^[^\u4e00-\u9fa5a-zA-Z0-9]+$/.test(trimmedWord)) {
-                return
-            }
-
-            // 统计词频
-            const normalizedWord = trimmedWord.toLowerCase()
-            frequency[normalizedWord] = (frequency[normalizedWord] || 0) + 1
-        })
-
-        // 转换为数组并排序
-        const sortedFrequencies = Object.entries(frequency)
-            .filter(([word, count]) => count >= config.minFrequency)
-            .sort((a, b) => b[1] - a[1])
-            .slice(0, config.maxWords)
-
-        if (sortedFrequencies.length === 0) {
-            console.warn('[WordCloud] No valid words found after filtering')
+        const response = await fetch(`/api/answers/word-frequency/${questionId}?${params}`)
+        if (!response.ok) {
             return []
         }
-
-        // 归一化频率
-        const maxFrequency = sortedFrequencies[0][1]
-        const wordFrequency = sortedFrequencies.map(([word, count]) => ({
-            word,
-            count,
-            normalizedFrequency: count / maxFrequency
-        }))
-
-        console.log('[WordCloud] Generated', wordFrequency.length, 'words')
-        console.log('[WordCloud] Top words:', wordFrequency.slice(0, 10))
-
-        return wordFrequency
+        return await response.json()
     } catch (error) {
-        console.error('[WordCloud] Failed to generate word cloud:', error)
+        console.error('[WordCloud] Failed to fetch word frequency:', error)
         return []
     }
 }
@@ -13,10 +13,6 @@ export default defineConfig({
     // Fix for sockjs-client
     global: 'globalThis',
   },
-  optimizeDeps: {
-    exclude: ['jieba-wasm'],
-    include: []
-  },
   server: {
     host: '0.0.0.0', // 允许外部访问
     port: 5173,